@@ -1,14 +1,16 @@
 // src/main/java/com/uniops/core/aspect/HttpRequestLogAspect.java
 package com.uniops.core.aspect;
 
+import com.uniops.core.cache.LiveMetricsRegistry;
 import com.uniops.core.entity.HttpRequestLog;
 import com.uniops.core.service.HttpRequestLogService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.uniops.core.service.ISystemRegisterService;
+import com.uniops.core.util.CapturePolicy;
 import com.uniops.core.util.HttpCallLoggerUtil;
 import com.uniops.core.util.MDCUtil;
-import com.uniops.core.util.OkHttpUtil;
 import jakarta.annotation.Resource;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -16,11 +18,15 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Aspect
 @Component
@@ -30,24 +36,41 @@ public class HttpRequestLogAspect {
     @Autowired
     private HttpRequestLogService httpRequestLogService;
 
-    @Autowired
-    private ObjectMapper objectMapper;
     @Resource
     ISystemRegisterService systemRegisterService;
     @Resource
     HttpCallLoggerUtil httpCallLoggerUtil;
+    @Resource
+    LiveMetricsRegistry liveMetricsRegistry;
+    @Resource
+    CapturePolicy capturePolicy;
 
     @Around("execution(* com..controller..*(..)) && " +
             "!execution(* com.uniops.core.controller.HttpRequestLogController.*(..))")
     public Object logHttpRequest(ProceedingJoinPoint joinPoint) throws Throwable {
         try {
-            String traceId = MDCUtil.generateTraceId();
-            MDC.put(MDCUtil.TRACE_ID, traceId);
             ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
             HttpServletRequest request = null;
             if (attributes != null) {
                 request = attributes.getRequest();
             }
+            // 上游带了链路信息就沿用，跨服务的调用归到同一个traceId下
+            MDCUtil.Traceparent parent = request == null ? null
+                    : MDCUtil.parseTraceparent(request.getHeader(MDCUtil.TRACEPARENT_HEADER));
+            String traceId;
+            if (parent != null) {
+                traceId = parent.traceId();
+            } else if (request != null && MDCUtil.isValidTraceId(request.getHeader(MDCUtil.X_TRACE_ID_HEADER))) {
+                traceId = request.getHeader(MDCUtil.X_TRACE_ID_HEADER);
+            } else {
+                traceId = MDCUtil.generateTraceId();
+            }
+            String spanId = MDCUtil.generateSpanId();
+            MDC.put(MDCUtil.TRACE_ID, traceId);
+            MDC.put(MDCUtil.SPAN_ID, spanId);
+            if (attributes != null && attributes.getResponse() != null) {
+                attributes.getResponse().setHeader(MDCUtil.X_TRACE_ID_HEADER, traceId);
+            }
             HttpRequestLog logEntry = new HttpRequestLog();
             if (request != null) {
                 logEntry.setApiPath(request.getRequestURI());
@@ -64,11 +87,16 @@ public class HttpRequestLogAspect {
             logEntry.setRequestTime(LocalDateTime.now());
             logEntry.setAppId(systemRegisterService.localSystem().getId());
             logEntry.setLogTraceId(traceId);
-            // 记录请求参数
-            try {
-                logEntry.setRequestParams(objectMapper.writeValueAsString(getRequestParameters(joinPoint)));
-            } catch (Exception e) {
-                logEntry.setRequestParams("无法序列化参数");
+            logEntry.setSpanId(spanId);
+            logEntry.setParentSpanId(parent != null ? parent.parentSpanId() : null);
+            // 记录请求参数，超出长度的部分不序列化；成功和失败都不会保存报文时不序列化
+            CapturePolicy.Rule captureRule = capturePolicy.forHttpPath(logEntry.getApiPath());
+            CapturePolicy.Sampling sampling = capturePolicy.sample(captureRule);
+            Object requestParameters = getRequestParameters(joinPoint);
+            if (sampling.none()) {
+                logEntry.setRequestParams(requestParameters == null ? null : CapturePolicy.NOT_SAMPLED);
+            } else {
+                logEntry.setRequestParams(capturePolicy.serialize(requestParameters, captureRule, "无法序列化参数"));
             }
             long startTime = System.currentTimeMillis();
             Object result = null;
@@ -92,24 +120,34 @@ public class HttpRequestLogAspect {
                 logEntry.setDuration(endTime - startTime);
                 logEntry.setResponseTime(LocalDateTime.now());
 
-                if (result != null) {
-                    try {
-                        logEntry.setResponseMessage(objectMapper.writeValueAsString(result));
-                    } catch (Exception e) {
-                        logEntry.setResponseMessage("无法序列化响应");
+                // 未采样的请求照常写一行，只是不保存报文，返回值也不再序列化
+                if (sampling.sampled(exceptionStack == null)) {
+                    if (result != null) {
+                        logEntry.setResponseMessage(capturePolicy.serialize(result, captureRule, "无法序列化响应"));
+                    }
+                } else {
+                    if (logEntry.getRequestParams() != null) {
+                        logEntry.setRequestParams(CapturePolicy.NOT_SAMPLED);
+                    }
+                    if (result != null) {
+                        logEntry.setResponseMessage(CapturePolicy.NOT_SAMPLED);
                     }
                 }
 
                 if (exceptionStack != null) {
-                    logEntry.setExceptionStack(exceptionStack);
+                    logEntry.setExceptionStack(capturePolicy.truncate(exceptionStack, captureRule));
                 }
 
                 // 获取响应状态码（如果有ResponseEntity等）
                 logEntry.setStatusCode(200); // 默认成功状态
 
-                // 保存日志
+                // 实时指标按映射模板统计，避免路径参数把同一个接口拆成多条
+                liveMetricsRegistry.record(LiveMetricsRegistry.CATEGORY_HTTP, getMetricPath(request, logEntry),
+                        logEntry.getDuration(), exceptionStack == null);
+
+                // 保存日志，交给异步写入器批量落库
                 try {
-                    httpRequestLogService.save(logEntry);
+                    httpRequestLogService.saveLogAsync(logEntry);
                 } catch (Exception e) {
                     // 避免日志记录失败影响主要业务逻辑
                     e.printStackTrace();
@@ -133,6 +171,7 @@ public class HttpRequestLogAspect {
             }
         } finally {
             MDC.remove(MDCUtil.TRACE_ID);
+            MDC.remove(MDCUtil.SPAN_ID);
         }
 
     }
@@ -142,13 +181,28 @@ public class HttpRequestLogAspect {
         if (args.length == 0) {
             return null;
         }
-        // 过滤掉HttpServletRequest、HttpServletResponse等特殊参数
-        for (int i = 0; i < args.length; i++) {
-            if (args[i] instanceof HttpServletRequest) {
+        // 过滤掉HttpServletRequest、HttpServletResponse、上传文件等不能序列化的参数
+        List<Object> params = new ArrayList<>(args.length);
+        for (Object arg : args) {
+            if (arg instanceof ServletRequest || arg instanceof ServletResponse || arg instanceof InputStreamSource) {
                 continue;
             }
+            params.add(arg);
+        }
+        if (params.isEmpty()) {
+            return null;
+        }
+        return params.size() == 1 ? params.get(0) : params;
+    }
+
+    private String getMetricPath(HttpServletRequest request, HttpRequestLog logEntry) {
+        if (request != null) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) {
+                return pattern.toString();
+            }
         }
-        return args.length == 1 ? args[0] : args;
+        return logEntry.getApiPath();
     }
 
     private String getClientIpAddress(HttpServletRequest request) {
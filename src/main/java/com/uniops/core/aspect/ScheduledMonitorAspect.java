@@ -1,5 +1,8 @@
 package com.uniops.core.aspect;
 
+import com.uniops.core.cache.LiveMetricsRegistry;
+import com.uniops.core.cache.ScheduledConfigCache;
+import com.uniops.core.cache.StatisticsRollupManager;
 import com.uniops.core.condition.SystemCondition;
 import com.uniops.core.util.MDCUtil;
 import jakarta.annotation.Resource;
@@ -35,6 +38,12 @@ public class ScheduledMonitorAspect {
     private IScheduledConfigService configService;
     @Resource
     SystemCondition systemCondition;
+    @Resource
+    StatisticsRollupManager statisticsRollupManager;
+    @Resource
+    LiveMetricsRegistry liveMetricsRegistry;
+    @Resource
+    ScheduledConfigCache scheduledConfigCache;
 
     /**
      * 环绕通知：拦截@Scheduled方法
@@ -44,11 +53,12 @@ public class ScheduledMonitorAspect {
         try {
             String traceId = MDCUtil.generateTraceId();
             MDC.put(MDCUtil.TRACE_ID, traceId);
+            MDC.put(MDCUtil.SPAN_ID, MDCUtil.generateSpanId());
             String beanName = joinPoint.getTarget().getClass().getSimpleName();
             String methodName = joinPoint.getSignature().getName();
 
-            // 检查是否启用监控
-            ScheduledConfig config = configService.getByBeanAndMethod(beanName, methodName);
+            // 检查是否启用监控，读内存快照，配置修改时由ScheduledConfigServiceImpl失效
+            ScheduledConfig config = scheduledConfigCache.get(beanName, methodName);
             if (config == null || !"ENABLED".equals(config.getMonitorStatus())) {
                 // 未启用监控，直接执行
                 return joinPoint.proceed();
@@ -76,13 +86,17 @@ public class ScheduledMonitorAspect {
                 throw e;
             } finally {
                 long duration = System.currentTimeMillis() - startTime;
+                liveMetricsRegistry.record(LiveMetricsRegistry.CATEGORY_SCHEDULED, beanName + "." + methodName,
+                        duration, success);
                 // 更新日志状态
                 logEntry.setStatus(success ? "SUCCESS" : "FAILED");
                 logEntry.setDurationMs((int) duration);
                 logEntry.setExceptionMsg(exceptionMsg);
                 logEntry.setTriggerTime(new Date());
 //                logService.updateById(logEntry);
-                logService.save(logEntry);
+                if (logService.save(logEntry)) {
+                    statisticsRollupManager.recordScheduledLog(logEntry);
+                }
                 // 更新配置中的最后执行时间
 //                config.setLastFireTime(new Date());
 //                configService.updateById(config);
@@ -94,6 +108,7 @@ public class ScheduledMonitorAspect {
             }
         } finally {
             MDC.remove(MDCUtil.TRACE_ID);
+            MDC.remove(MDCUtil.SPAN_ID);
         }
 
     }
@@ -0,0 +1,385 @@
+package com.uniops.core.cache;
+
+import com.uniops.core.vo.CircuitBreakerStatsVO;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 第三方调用熔断与并发隔离
+ * 按thirdPartyName分别维护：最近N次调用的失败率（错误、5xx和慢调用按失败计，和调用日志用的是同一份结果和耗时）
+ * 达到阈值后熔断一段时间，到期放行一次探测调用，成功则恢复；配置了最大并发数的第三方再用信号量限制并发，
+ * 慢的第三方占满名额后同步调用按maxWaitMs等待或拒绝，异步调用在该第三方自己的队列中等待，有名额归还时才交给OkHttp，
+ * 不会把Tomcat线程和OkHttp调度器的名额都拖住
+ *
+ * @author liyang
+ * @since 2026/2/20
+ */
+@Component
+@Slf4j
+public class CircuitBreakerManager {
+
+    public static final String STATE_CLOSED = "CLOSED";
+    public static final String STATE_OPEN = "OPEN";
+    public static final String STATE_HALF_OPEN = "HALF_OPEN";
+
+    /**
+     * 未启用时使用的许可，不做任何限制
+     */
+    private static final Permit UNRESTRICTED = new Permit(null, null, false, null);
+
+    @Resource
+    UniOpsProperties uniOpsProperties;
+
+    private final ConcurrentHashMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 一次调用的许可，调用结束后必须调用complete归还并发名额并记录结果
+     */
+    public static final class Permit {
+        private final Breaker breaker;
+        private final String rejectReason;
+        private final boolean probe;
+        private final Window window;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Permit(Breaker breaker, String rejectReason, boolean probe, Window window) {
+            this.breaker = breaker;
+            this.rejectReason = rejectReason;
+            this.probe = probe;
+            this.window = window;
+        }
+
+        public boolean isRejected() {
+            return rejectReason != null;
+        }
+
+        public String getRejectReason() {
+            return rejectReason;
+        }
+
+        /**
+         * 记录调用结果，重复调用只生效一次
+         *
+         * @param responseStatus 响应码，网络异常时为null
+         * @param errorMessage   异常信息，正常响应时为null
+         */
+        public void complete(Integer responseStatus, String errorMessage, long durationMs) {
+            if (breaker == null || isRejected() || !completed.compareAndSet(false, true)) {
+                return;
+            }
+            breaker.release();
+            breaker.onResult(this, isFailure(responseStatus, errorMessage, durationMs));
+        }
+
+        private boolean isFailure(Integer responseStatus, String errorMessage, long durationMs) {
+            // 4xx是调用方的问题，不计入第三方的健康状况
+            return (errorMessage != null && !errorMessage.isEmpty())
+                    || (responseStatus != null && responseStatus >= 500)
+                    || durationMs >= breaker.config.getSlowCallThresholdMs();
+        }
+    }
+
+    /**
+     * 申请一次同步调用，并发名额按maxWaitMs等待
+     *
+     * @return 被拒绝时isRejected为true，不需要complete
+     */
+    public Permit acquire(String thirdPartyName) {
+        UniOpsProperties.CircuitBreaker config = uniOpsProperties.getCircuitBreaker();
+        if (!config.isEnabled()) {
+            return UNRESTRICTED;
+        }
+        return breakerOf(thirdPartyName, config).acquire(config.getMaxWaitMs());
+    }
+
+    /**
+     * 申请一次异步调用，不阻塞当前线程
+     * 有名额时立即回调；名额已满时排队，由归还名额的线程回调；已熔断时立即以被拒绝的许可回调
+     *
+     * @param onPermit 拿到许可后执行，应当只做发起请求这类不阻塞的操作
+     */
+    public void acquireAsync(String thirdPartyName, Consumer<Permit> onPermit) {
+        UniOpsProperties.CircuitBreaker config = uniOpsProperties.getCircuitBreaker();
+        if (!config.isEnabled()) {
+            onPermit.accept(UNRESTRICTED);
+            return;
+        }
+        breakerOf(thirdPartyName, config).acquireAsync(onPermit);
+    }
+
+    private Breaker breakerOf(String thirdPartyName, UniOpsProperties.CircuitBreaker config) {
+        return breakers.computeIfAbsent(thirdPartyName == null ? "" : thirdPartyName,
+                name -> new Breaker(name, config));
+    }
+
+    public List<CircuitBreakerStatsVO> stats() {
+        List<CircuitBreakerStatsVO> result = new ArrayList<>();
+        for (Breaker breaker : breakers.values()) {
+            result.add(breaker.stats());
+        }
+        result.sort(Comparator.comparing(CircuitBreakerStatsVO::getThirdPartyName));
+        return result;
+    }
+
+    /**
+     * 状态和进入时间一起替换
+     */
+    private record Phase(String state, long since) {
+    }
+
+    /**
+     * 最近N次调用的结果，环形数组，写入时用getAndSet替换旧结果并同步调整计数，不需要加锁
+     */
+    private static final class Window {
+        private static final int EMPTY = 0;
+        private static final int SUCCESS = 1;
+        private static final int FAILURE = 2;
+
+        final AtomicIntegerArray outcomes;
+        final AtomicLong cursor = new AtomicLong();
+        final AtomicInteger buffered = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        Window(int size) {
+            this.outcomes = new AtomicIntegerArray(Math.max(1, size));
+        }
+
+        void record(boolean failure) {
+            int slot = (int) (cursor.getAndIncrement() % outcomes.length());
+            int previous = outcomes.getAndSet(slot, failure ? FAILURE : SUCCESS);
+            if (previous == EMPTY) {
+                buffered.incrementAndGet();
+            } else if (previous == FAILURE) {
+                failed.decrementAndGet();
+            }
+            if (failure) {
+                failed.incrementAndGet();
+            }
+        }
+
+        double failureRate() {
+            int total = buffered.get();
+            return total == 0 ? 0 : failed.get() * 100.0 / total;
+        }
+    }
+
+    private static final class Breaker {
+        final String name;
+        final UniOpsProperties.CircuitBreaker config;
+        final int maxConcurrentCalls;
+        /**
+         * 未配置最大并发数时为null，不限制并发
+         */
+        final Semaphore bulkhead;
+        final AtomicInteger activeCalls = new AtomicInteger();
+        /**
+         * 等待并发名额的异步调用
+         */
+        final ConcurrentLinkedQueue<Consumer<Permit>> waiters = new ConcurrentLinkedQueue<>();
+        final AtomicReference<Phase> phase = new AtomicReference<>(new Phase(STATE_CLOSED, System.currentTimeMillis()));
+        final AtomicReference<Window> window;
+        /**
+         * 半开状态下是否已有探测调用在进行
+         */
+        final AtomicBoolean probing = new AtomicBoolean();
+        final LongAdder breakerRejected = new LongAdder();
+        final LongAdder bulkheadRejected = new LongAdder();
+        final LongAdder openCount = new LongAdder();
+
+        Breaker(String name, UniOpsProperties.CircuitBreaker config) {
+            this.name = name;
+            this.config = config;
+            this.maxConcurrentCalls = Math.max(0, config.getMaxConcurrentCallsPerParty()
+                    .getOrDefault(name, config.getMaxConcurrentCalls()));
+            this.bulkhead = maxConcurrentCalls > 0 ? new Semaphore(maxConcurrentCalls) : null;
+            this.window = new AtomicReference<>(new Window(config.getWindowSize()));
+        }
+
+        Permit acquire(long maxWaitMs) {
+            Permit admission = admit();
+            if (admission.isRejected()) {
+                return admission;
+            }
+            if (!tryAcquireBulkhead(maxWaitMs)) {
+                if (admission.probe) {
+                    probing.set(false);
+                }
+                bulkheadRejected.increment();
+                return new Permit(this, "第三方[" + name + "]并发调用数已达上限" + maxConcurrentCalls + "，调用被拒绝", false, null);
+            }
+            activeCalls.incrementAndGet();
+            return new Permit(this, null, admission.probe, window.get());
+        }
+
+        void acquireAsync(Consumer<Permit> onPermit) {
+            if (bulkhead == null) {
+                onPermit.accept(acquire(0));
+                return;
+            }
+            // 熔断期间直接拒绝，不进入排队
+            Phase current = phase.get();
+            if (STATE_OPEN.equals(current.state())
+                    && System.currentTimeMillis() - current.since() < config.getOpenDurationMs()) {
+                breakerRejected.increment();
+                onPermit.accept(new Permit(this, "第三方[" + name + "]已熔断，调用被拒绝", false, null));
+                return;
+            }
+            waiters.add(onPermit);
+            drain();
+        }
+
+        /**
+         * 有空闲名额时按顺序放行排队的异步调用
+         * 入队和归还名额后都会调用，名额和队列的竞争由tryAcquire决定，不会有调用在有名额时一直排队
+         */
+        private void drain() {
+            while (!waiters.isEmpty() && bulkhead.tryAcquire()) {
+                Consumer<Permit> next = waiters.poll();
+                if (next == null) {
+                    // 被其他线程取走了，归还后重新检查队列
+                    bulkhead.release();
+                    continue;
+                }
+                // 排队期间可能已经熔断，放行前再判断一次
+                Permit admission = admit();
+                if (admission.isRejected()) {
+                    bulkhead.release();
+                    notify(next, admission);
+                    continue;
+                }
+                activeCalls.incrementAndGet();
+                notify(next, new Permit(this, null, admission.probe, window.get()));
+            }
+        }
+
+        private void notify(Consumer<Permit> onPermit, Permit permit) {
+            try {
+                onPermit.accept(permit);
+            } catch (RuntimeException e) {
+                log.warn("[UniOps] 第三方[{}]异步调用发起失败: {}", name, e.getMessage());
+                permit.complete(null, "调用异常", 0);
+            }
+        }
+
+        /**
+         * 熔断判断，被拒绝时返回拒绝的许可，放行时返回的许可只用于带出是否为探测调用
+         */
+        private Permit admit() {
+            boolean probe = false;
+            Phase current = phase.get();
+            if (STATE_OPEN.equals(current.state())) {
+                if (System.currentTimeMillis() - current.since() < config.getOpenDurationMs()
+                        || !phase.compareAndSet(current, new Phase(STATE_HALF_OPEN, System.currentTimeMillis()))) {
+                    breakerRejected.increment();
+                    return new Permit(this, "第三方[" + name + "]已熔断，调用被拒绝", false, null);
+                }
+                log.info("[UniOps] 第三方[{}]熔断到期，放行探测调用", name);
+                current = phase.get();
+            }
+            if (STATE_HALF_OPEN.equals(current.state())) {
+                // 半开时只放行一个探测调用，其余拒绝
+                if (!probing.compareAndSet(false, true)) {
+                    breakerRejected.increment();
+                    return new Permit(this, "第三方[" + name + "]正在探测恢复，调用被拒绝", false, null);
+                }
+                probe = true;
+            }
+            return new Permit(this, null, probe, null);
+        }
+
+        private boolean tryAcquireBulkhead(long maxWaitMs) {
+            if (bulkhead == null) {
+                return true;
+            }
+            if (maxWaitMs <= 0) {
+                return bulkhead.tryAcquire();
+            }
+            try {
+                return bulkhead.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        void release() {
+            activeCalls.decrementAndGet();
+            if (bulkhead != null) {
+                bulkhead.release();
+                drain();
+            }
+        }
+
+        void onResult(Permit permit, boolean failure) {
+            if (permit.probe) {
+                probing.set(false);
+                Phase current = phase.get();
+                if (!STATE_HALF_OPEN.equals(current.state())) {
+                    return;
+                }
+                if (failure) {
+                    if (phase.compareAndSet(current, new Phase(STATE_OPEN, System.currentTimeMillis()))) {
+                        openCount.increment();
+                        log.warn("[UniOps] 第三方[{}]探测调用失败，继续熔断{}ms", name, config.getOpenDurationMs());
+                    }
+                } else if (phase.compareAndSet(current, new Phase(STATE_CLOSED, System.currentTimeMillis()))) {
+                    // 恢复后从空窗口重新统计，熔断前的失败不再计入
+                    window.set(new Window(config.getWindowSize()));
+                    log.info("[UniOps] 第三方[{}]探测调用成功，熔断恢复", name);
+                }
+                return;
+            }
+            // 熔断前发出、熔断后才结束的调用记在旧窗口上，不影响恢复后的统计
+            Window target = permit.window;
+            target.record(failure);
+            Phase current = phase.get();
+            if (failure && STATE_CLOSED.equals(current.state()) && target == window.get()
+                    && target.buffered.get() >= Math.max(1, config.getMinimumCalls())
+                    && target.failureRate() >= config.getFailureRateThreshold()
+                    && phase.compareAndSet(current, new Phase(STATE_OPEN, System.currentTimeMillis()))) {
+                openCount.increment();
+                log.warn("[UniOps] 第三方[{}]最近{}次调用失败率{}%，熔断{}ms", name, target.buffered.get(),
+                        String.format("%.1f", target.failureRate()), config.getOpenDurationMs());
+            }
+        }
+
+        CircuitBreakerStatsVO stats() {
+            Phase current = phase.get();
+            Window w = window.get();
+            CircuitBreakerStatsVO vo = new CircuitBreakerStatsVO();
+            vo.setThirdPartyName(name);
+            vo.setState(current.state());
+            vo.setStateSince(LocalDateTime.ofInstant(Instant.ofEpochMilli(current.since()), ZoneId.systemDefault()));
+            vo.setBufferedCalls(w.buffered.get());
+            vo.setFailedCalls(w.failed.get());
+            vo.setFailureRate(w.failureRate());
+            vo.setActiveCalls(activeCalls.get());
+            vo.setQueuedCalls(waiters.size());
+            vo.setMaxConcurrentCalls(maxConcurrentCalls);
+            vo.setBreakerRejected(breakerRejected.sum());
+            vo.setBulkheadRejected(bulkheadRejected.sum());
+            vo.setOpenCount(openCount.sum());
+            return vo;
+        }
+    }
+}
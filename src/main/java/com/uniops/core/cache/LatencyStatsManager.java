@@ -0,0 +1,372 @@
+package com.uniops.core.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.uniops.core.annotation.NoManagedJob;
+import com.uniops.core.condition.SystemCondition;
+import com.uniops.core.entity.LatencyHourly;
+import com.uniops.core.entity.SystemRegister;
+import com.uniops.core.mapper.LatencyHourlyMapper;
+import com.uniops.core.service.ISystemRegisterService;
+import com.uniops.core.util.LatencyHistogram;
+import com.uniops.core.vo.LatencyPercentileVO;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 耗时百分位统计管理器
+ * 当前分钟用无锁直方图记录，分钟结束后压缩为稀疏快照保留最近60分钟，同时累加到小时直方图，
+ * 整点后把小时直方图写入uniops_latency_hourly
+ *
+ * @author liyang
+ * @since 2026/2/15
+ */
+@Component
+@Slf4j
+public class LatencyStatsManager {
+
+    public static final int WINDOW_MINUTES = 60;
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final long HOUR_MILLIS = 3_600_000;
+
+    /**
+     * 分钟结束后再等待的时间，保证该分钟内正在进行的记录已经完成
+     */
+    private static final long CLOSE_GRACE_MILLIS = 5_000;
+
+    /**
+     * 写库失败后保留待重试的小时数据上限
+     */
+    private static final int MAX_PENDING_ROWS = 10_000;
+
+    @Resource
+    LatencyHourlyMapper latencyHourlyMapper;
+    @Resource
+    ISystemRegisterService systemRegisterService;
+    @Resource
+    SystemCondition systemCondition;
+
+    private final Map<String, ConcurrentHashMap<String, LatencySeries>> categories = new ConcurrentHashMap<>();
+
+    /**
+     * 被新分钟覆盖但还没来得及压缩的直方图
+     */
+    private final ConcurrentLinkedQueue<OpenMinute> displaced = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 待写库的小时数据
+     */
+    private final ConcurrentLinkedQueue<LatencyHourly> pendingRows = new ConcurrentLinkedQueue<>();
+
+    private record OpenMinute(LatencySeries series, long minute, LatencyHistogram histogram) {
+    }
+
+    /**
+     * 记录一次耗时，name需要由调用方控制基数
+     */
+    public void record(String category, String name, long durationMs) {
+        LatencySeries series = categories.computeIfAbsent(category, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(name, n -> new LatencySeries(category, n));
+        long minute = System.currentTimeMillis() / MINUTE_MILLIS;
+        int slot = (int) (minute & 1);
+        while (true) {
+            OpenMinute current = series.open.get(slot);
+            if (current != null && current.minute() >= minute) {
+                current.histogram().record(durationMs);
+                return;
+            }
+            OpenMinute next = new OpenMinute(series, minute, new LatencyHistogram());
+            if (series.open.compareAndSet(slot, current, next)) {
+                if (current != null) {
+                    displaced.add(current);
+                }
+                next.histogram().record(durationMs);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 最近N分钟的百分位（内存数据）
+     */
+    public List<LatencyPercentileVO> recent(String category, int minutes) {
+        int window = Math.min(Math.max(1, minutes), WINDOW_MINUTES);
+        long nowMinute = System.currentTimeMillis() / MINUTE_MILLIS;
+        long fromMinute = nowMinute - window + 1;
+        List<LatencyPercentileVO> result = new ArrayList<>();
+        for (LatencySeries series : seriesOf(category)) {
+            long[] buckets = new long[LatencyHistogram.BUCKET_COUNT];
+            long max = 0;
+            synchronized (series) {
+                for (int i = 0; i < WINDOW_MINUTES; i++) {
+                    LatencyHistogram.Snapshot snapshot = series.minutes[i];
+                    if (snapshot != null && series.minuteIds[i] >= fromMinute) {
+                        snapshot.addTo(buckets);
+                        max = Math.max(max, snapshot.max());
+                    }
+                }
+            }
+            max = Math.max(max, addOpenMinutes(series, fromMinute, buckets));
+            addIfNotEmpty(result, series.name, buckets, max);
+        }
+        result.sort(Comparator.comparingLong(LatencyPercentileVO::getP95).reversed());
+        return result;
+    }
+
+    /**
+     * 最近N小时的百分位，数据库中本应用所有实例的小时数据，加上本实例当前小时尚未写库的部分
+     */
+    public List<LatencyPercentileVO> hourly(String category, int hours) {
+        int window = Math.min(Math.max(1, hours), 24 * 31);
+        long nowMillis = System.currentTimeMillis();
+        long currentHour = nowMillis / HOUR_MILLIS;
+        LocalDateTime from = toLocalDateTime((currentHour - window + 1) * HOUR_MILLIS);
+
+        Map<String, long[]> bucketsByName = new HashMap<>();
+        Map<String, Long> maxByName = new HashMap<>();
+        QueryWrapper<LatencyHourly> wrapper = new QueryWrapper<>();
+        wrapper.select("name", "max_value", "histogram")
+                .eq("category", category)
+                .eq("app_name", systemCondition.getApplicationName())
+                .ge("stat_hour", from);
+        for (LatencyHourly row : latencyHourlyMapper.selectList(wrapper)) {
+            LatencyHistogram.Snapshot snapshot = LatencyHistogram.Snapshot.decode(row.getHistogram(),
+                    row.getMaxValue() == null ? 0 : row.getMaxValue());
+            snapshot.addTo(bucketsByName.computeIfAbsent(row.getName(), k -> new long[LatencyHistogram.BUCKET_COUNT]));
+            maxByName.merge(row.getName(), snapshot.max(), Math::max);
+        }
+        // 已从内存移出、等待写库的小时数据还查不到，一并加上
+        for (LatencyHourly row : pendingRows) {
+            if (category.equals(row.getCategory()) && !row.getStatHour().isBefore(from)) {
+                LatencyHistogram.Snapshot.decode(row.getHistogram(), row.getMaxValue())
+                        .addTo(bucketsByName.computeIfAbsent(row.getName(), k -> new long[LatencyHistogram.BUCKET_COUNT]));
+                maxByName.merge(row.getName(), row.getMaxValue(), Math::max);
+            }
+        }
+        long fromMinute = (currentHour - window + 1) * 60;
+        for (LatencySeries series : seriesOf(category)) {
+            long[] buckets = bucketsByName.computeIfAbsent(series.name, k -> new long[LatencyHistogram.BUCKET_COUNT]);
+            long max = 0;
+            synchronized (series) {
+                if (series.hourBuckets != null && series.hour >= currentHour - window + 1) {
+                    for (int i = 0; i < buckets.length; i++) {
+                        buckets[i] += series.hourBuckets[i];
+                    }
+                    max = series.hourMax;
+                }
+            }
+            max = Math.max(max, addOpenMinutes(series, fromMinute, buckets));
+            maxByName.merge(series.name, max, Math::max);
+        }
+
+        List<LatencyPercentileVO> result = new ArrayList<>();
+        bucketsByName.forEach((name, buckets) -> addIfNotEmpty(result, name, buckets, maxByName.getOrDefault(name, 0L)));
+        result.sort(Comparator.comparingLong(LatencyPercentileVO::getP95).reversed());
+        return result;
+    }
+
+    /**
+     * 定时压缩已结束的分钟，并把已结束的小时写库
+     */
+    @Scheduled(fixedDelayString = "${uniops.statistics.latency-tick-interval-ms:10000}")
+    @NoManagedJob
+    public void tick() {
+        long nowMillis = System.currentTimeMillis();
+        OpenMinute displacedMinute;
+        while ((displacedMinute = displaced.poll()) != null) {
+            closeMinute(displacedMinute);
+        }
+        for (ConcurrentHashMap<String, LatencySeries> map : categories.values()) {
+            for (LatencySeries series : map.values()) {
+                for (int slot = 0; slot < 2; slot++) {
+                    OpenMinute open = series.open.get(slot);
+                    if (open != null && nowMillis >= (open.minute() + 1) * MINUTE_MILLIS + CLOSE_GRACE_MILLIS
+                            && series.open.compareAndSet(slot, open, null)) {
+                        closeMinute(open);
+                    }
+                }
+                closeHourIfDue(series, nowMillis);
+            }
+        }
+        persistPendingRows();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // 停机时把当前小时已有的数据也写入，重启后同一小时会再写一行，查询时会合并
+        for (ConcurrentHashMap<String, LatencySeries> map : categories.values()) {
+            for (LatencySeries series : map.values()) {
+                for (int slot = 0; slot < 2; slot++) {
+                    OpenMinute open = series.open.getAndSet(slot, null);
+                    if (open != null) {
+                        closeMinute(open);
+                    }
+                }
+                closeHourIfDue(series, Long.MAX_VALUE);
+            }
+        }
+        persistPendingRows();
+    }
+
+    private void closeMinute(OpenMinute open) {
+        LatencySeries series = open.series();
+        long[] buckets = open.histogram().snapshot();
+        long max = open.histogram().getMax();
+        long hour = open.minute() / 60;
+        synchronized (series) {
+            int slot = (int) (open.minute() % WINDOW_MINUTES);
+            if (series.minutes[slot] == null || series.minuteIds[slot] <= open.minute()) {
+                series.minutes[slot] = LatencyHistogram.Snapshot.of(buckets, max);
+                series.minuteIds[slot] = open.minute();
+            }
+            if (series.hourBuckets != null && series.hour != hour) {
+                takeHourRow(series);
+            }
+            if (series.hourBuckets == null) {
+                series.hour = hour;
+                series.hourBuckets = new long[LatencyHistogram.BUCKET_COUNT];
+                series.hourMax = 0;
+            }
+            for (int i = 0; i < buckets.length; i++) {
+                series.hourBuckets[i] += buckets[i];
+            }
+            series.hourMax = Math.max(series.hourMax, max);
+        }
+    }
+
+    private void closeHourIfDue(LatencySeries series, long nowMillis) {
+        synchronized (series) {
+            if (series.hourBuckets != null
+                    && nowMillis >= (series.hour + 1) * HOUR_MILLIS + 2 * CLOSE_GRACE_MILLIS) {
+                takeHourRow(series);
+            }
+        }
+    }
+
+    /**
+     * 把小时直方图转换为待写库的行，调用方持有series锁
+     */
+    private void takeHourRow(LatencySeries series) {
+        LatencyHistogram.Snapshot snapshot = LatencyHistogram.Snapshot.of(series.hourBuckets, series.hourMax);
+        if (snapshot.totalCount() > 0 && pendingRows.size() < MAX_PENDING_ROWS) {
+            LatencyHourly row = new LatencyHourly();
+            row.setAppName(systemCondition.getApplicationName());
+            row.setCategory(series.category);
+            row.setName(series.name);
+            row.setStatHour(toLocalDateTime(series.hour * HOUR_MILLIS));
+            row.setTotalCount(snapshot.totalCount());
+            row.setMaxValue(snapshot.max());
+            row.setP50(LatencyHistogram.valueAtPercentile(series.hourBuckets, 50));
+            row.setP95(LatencyHistogram.valueAtPercentile(series.hourBuckets, 95));
+            row.setP99(LatencyHistogram.valueAtPercentile(series.hourBuckets, 99));
+            row.setHistogram(snapshot.encode());
+            row.setCreatedAt(LocalDateTime.now());
+            pendingRows.add(row);
+        }
+        series.hourBuckets = null;
+        series.hourMax = 0;
+    }
+
+    private void persistPendingRows() {
+        if (pendingRows.isEmpty()) {
+            return;
+        }
+        SystemRegister local = systemRegisterService.localSystem();
+        if (local == null) {
+            return;
+        }
+        LatencyHourly row;
+        while ((row = pendingRows.peek()) != null) {
+            try {
+                row.setAppId(local.getId());
+                latencyHourlyMapper.insert(row);
+                pendingRows.poll();
+            } catch (Exception e) {
+                log.warn("[UniOps] 耗时直方图写入失败，下次重试: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 加上仍在记录中的分钟
+     *
+     * @return 这些分钟内的最大值
+     */
+    private long addOpenMinutes(LatencySeries series, long fromMinute, long[] buckets) {
+        long max = 0;
+        for (int slot = 0; slot < 2; slot++) {
+            OpenMinute open = series.open.get(slot);
+            if (open != null && open.minute() >= fromMinute) {
+                open.histogram().addTo(buckets);
+                max = Math.max(max, open.histogram().getMax());
+            }
+        }
+        return max;
+    }
+
+    private void addIfNotEmpty(List<LatencyPercentileVO> result, String name, long[] buckets, long max) {
+        long count = 0;
+        for (long c : buckets) {
+            count += c;
+        }
+        if (count == 0) {
+            return;
+        }
+        LatencyPercentileVO vo = new LatencyPercentileVO();
+        vo.setName(name);
+        vo.setCount(count);
+        vo.setP50(LatencyHistogram.valueAtPercentile(buckets, 50));
+        vo.setP95(LatencyHistogram.valueAtPercentile(buckets, 95));
+        vo.setP99(LatencyHistogram.valueAtPercentile(buckets, 99));
+        // 百分位取桶上界，不能超过实际最大值
+        vo.setMax(max);
+        vo.setP50(Math.min(vo.getP50(), max));
+        vo.setP95(Math.min(vo.getP95(), max));
+        vo.setP99(Math.min(vo.getP99(), max));
+        result.add(vo);
+    }
+
+    private Iterable<LatencySeries> seriesOf(String category) {
+        ConcurrentHashMap<String, LatencySeries> map = categories.get(category);
+        return map == null ? List.of() : map.values();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 单个接口路径/第三方的直方图
+     * open由记录线程无锁更新，其余字段只在持有该对象锁时访问
+     */
+    private static final class LatencySeries {
+        final String category;
+        final String name;
+        final AtomicReferenceArray<OpenMinute> open = new AtomicReferenceArray<>(2);
+        final LatencyHistogram.Snapshot[] minutes = new LatencyHistogram.Snapshot[WINDOW_MINUTES];
+        final long[] minuteIds = new long[WINDOW_MINUTES];
+        long hour;
+        long[] hourBuckets;
+        long hourMax;
+
+        LatencySeries(String category, String name) {
+            this.category = category;
+            this.name = name;
+        }
+    }
+}
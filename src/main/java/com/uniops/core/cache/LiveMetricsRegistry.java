@@ -0,0 +1,219 @@
+package com.uniops.core.cache;
+
+import com.uniops.core.entity.StatisticsHourly;
+import com.uniops.core.util.LatencyHistogram;
+import com.uniops.core.vo.LiveMetricVO;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 实时指标注册表
+ * 由日志切面和第三方调用记录直接更新，按接口路径/任务/第三方名称维护当天累计和最近60分钟的分钟计数，
+ * 全部基于LongAdder和CAS，不加锁，仪表盘的实时视图不需要查询数据库
+ *
+ * @author liyang
+ * @since 2026/2/15
+ */
+@Component
+public class LiveMetricsRegistry {
+
+    public static final String CATEGORY_HTTP = StatisticsHourly.CATEGORY_HTTP;
+    public static final String CATEGORY_SCHEDULED = StatisticsHourly.CATEGORY_SCHEDULED;
+    public static final String CATEGORY_THIRD_PARTY = StatisticsHourly.CATEGORY_THIRD_PARTY;
+
+    /**
+     * 分钟计数保留的窗口
+     */
+    public static final int WINDOW_MINUTES = 60;
+
+    /**
+     * 每个类别最多跟踪的名称数，防止路径参数等导致无限增长，超出的归入OVERFLOW_NAME
+     */
+    private static final int MAX_SERIES_PER_CATEGORY = 2000;
+    private static final String OVERFLOW_NAME = "[其他]";
+
+    @Resource
+    LatencyStatsManager latencyStatsManager;
+
+    private final Map<String, ConcurrentHashMap<String, Series>> categories = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次调用
+     */
+    public void record(String category, String name, long durationMs, boolean success) {
+        long nowMillis = System.currentTimeMillis();
+        Series series = seriesOf(category, name == null ? OVERFLOW_NAME : name);
+        series.today(LocalDate.now().toEpochDay()).add(durationMs, success);
+        series.minute(nowMillis / 60_000).add(durationMs, success);
+        // 接口和第三方调用额外按分钟/小时保留耗时分布
+        if (!CATEGORY_SCHEDULED.equals(category)) {
+            latencyStatsManager.record(category, series.name, durationMs);
+        }
+    }
+
+    /**
+     * 今日累计
+     */
+    public List<LiveMetricVO> today(String category) {
+        long today = LocalDate.now().toEpochDay();
+        List<LiveMetricVO> result = new ArrayList<>();
+        for (Series series : seriesOf(category)) {
+            Counters counters = series.today.get();
+            if (counters.period == today && counters.count.sum() > 0) {
+                LiveMetricVO vo = new LiveMetricVO();
+                vo.setName(series.name);
+                counters.fill(vo);
+                result.add(vo);
+            }
+        }
+        result.sort(Comparator.comparingLong(LiveMetricVO::getCount).reversed());
+        return result;
+    }
+
+    /**
+     * 最近N分钟（含当前分钟）
+     */
+    public List<LiveMetricVO> recent(String category, int minutes) {
+        int window = Math.min(Math.max(1, minutes), WINDOW_MINUTES);
+        long nowMinute = System.currentTimeMillis() / 60_000;
+        List<LiveMetricVO> result = new ArrayList<>();
+        for (Series series : seriesOf(category)) {
+            LiveMetricVO vo = new LiveMetricVO();
+            vo.setName(series.name);
+            long durationSum = 0;
+            for (long m = nowMinute - window + 1; m <= nowMinute; m++) {
+                Counters counters = series.minutes.get((int) (m % WINDOW_MINUTES));
+                if (counters == null || counters.period != m) {
+                    continue;
+                }
+                vo.setCount(vo.getCount() + counters.count.sum());
+                vo.setSuccessCount(vo.getSuccessCount() + counters.success.sum());
+                vo.setFailedCount(vo.getFailedCount() + counters.failed.sum());
+                vo.setMaxDuration(Math.max(vo.getMaxDuration(), counters.durationMax.get()));
+                durationSum += counters.durationSum.sum();
+            }
+            if (vo.getCount() > 0) {
+                vo.setAvgDuration((double) durationSum / vo.getCount());
+                result.add(vo);
+            }
+        }
+        result.sort(Comparator.comparingLong(LiveMetricVO::getCount).reversed());
+        return result;
+    }
+
+    private Iterable<Series> seriesOf(String category) {
+        ConcurrentHashMap<String, Series> map = categories.get(category);
+        return map == null ? List.of() : map.values();
+    }
+
+    private Series seriesOf(String category, String name) {
+        ConcurrentHashMap<String, Series> map = categories.computeIfAbsent(category, k -> new ConcurrentHashMap<>());
+        Series series = map.get(name);
+        if (series != null) {
+            return series;
+        }
+        String key = map.size() >= MAX_SERIES_PER_CATEGORY ? OVERFLOW_NAME : name;
+        return map.computeIfAbsent(key, Series::new);
+    }
+
+    /**
+     * 单个名称的指标
+     */
+    private static final class Series {
+        final String name;
+        final AtomicReference<Counters> today = new AtomicReference<>(new Counters(Long.MIN_VALUE, false));
+        final AtomicReferenceArray<Counters> minutes = new AtomicReferenceArray<>(WINDOW_MINUTES);
+
+        Series(String name) {
+            this.name = name;
+        }
+
+        Counters today(long day) {
+            while (true) {
+                Counters current = today.get();
+                // 跨天时由第一个写入者换成新的计数，其余线程CAS失败后重读
+                if (current.period >= day) {
+                    return current;
+                }
+                Counters next = new Counters(day, true);
+                if (today.compareAndSet(current, next)) {
+                    return next;
+                }
+            }
+        }
+
+        Counters minute(long minute) {
+            int slot = (int) (minute % WINDOW_MINUTES);
+            while (true) {
+                Counters current = minutes.get(slot);
+                if (current != null && current.period >= minute) {
+                    return current;
+                }
+                Counters next = new Counters(minute, false);
+                if (minutes.compareAndSet(slot, current, next)) {
+                    return next;
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个周期（天或分钟）内的计数
+     */
+    static final class Counters {
+        final long period;
+        final LongAdder count = new LongAdder();
+        final LongAdder success = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder durationSum = new LongAdder();
+        final LongAccumulator durationMax = new LongAccumulator(Math::max, 0);
+        final LatencyHistogram histogram;
+
+        Counters(long period, boolean withHistogram) {
+            this.period = period;
+            this.histogram = withHistogram ? new LatencyHistogram() : null;
+        }
+
+        void add(long durationMs, boolean ok) {
+            long duration = Math.max(0, durationMs);
+            count.increment();
+            if (ok) {
+                success.increment();
+            } else {
+                failed.increment();
+            }
+            durationSum.add(duration);
+            durationMax.accumulate(duration);
+            if (histogram != null) {
+                histogram.record(duration);
+            }
+        }
+
+        void fill(LiveMetricVO vo) {
+            long total = count.sum();
+            vo.setCount(total);
+            vo.setSuccessCount(success.sum());
+            vo.setFailedCount(failed.sum());
+            vo.setMaxDuration(durationMax.get());
+            vo.setAvgDuration(total == 0 ? 0 : (double) durationSum.sum() / total);
+            if (histogram != null) {
+                // 百分位取桶上界，不能超过实际最大值
+                long[] buckets = histogram.snapshot();
+                vo.setP50(Math.min(LatencyHistogram.valueAtPercentile(buckets, 50), vo.getMaxDuration()));
+                vo.setP95(Math.min(LatencyHistogram.valueAtPercentile(buckets, 95), vo.getMaxDuration()));
+                vo.setP99(Math.min(LatencyHistogram.valueAtPercentile(buckets, 99), vo.getMaxDuration()));
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.uniops.core.cache;
+
+import com.uniops.core.annotation.NoManagedJob;
+import com.uniops.core.entity.HttpRequestLog;
+import com.uniops.core.entity.ThirdPartyHttpLog;
+import com.uniops.core.mapper.HttpRequestLogMapper;
+import com.uniops.core.mapper.ThirdPartyHttpLogMapper;
+import com.uniops.core.util.CompressedTextTypeHandler;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * 日志大字段压缩迁移
+ * 启动后按id顺序分批压缩已有日志的大字段，每轮每张表只处理一批，记住处理到的id，下一轮从这里继续；
+ * 只处理启动时已存在的行，之后写入的行由压缩处理器直接压缩。中途重启会从头扫描，已压缩的行不会再被选中。
+ * 日志表由所有应用共用，和日志清理一样只由在线实例中id最小的执行，每一行只会被一个实例压缩
+ *
+ * @author liyang
+ * @since 2026/2/24
+ */
+@Component
+@Slf4j
+public class LogCompressionMigrator {
+
+    @Resource
+    UniOpsProperties uniOpsProperties;
+    @Resource
+    HttpRequestLogMapper httpRequestLogMapper;
+    @Resource
+    ThirdPartyHttpLogMapper thirdPartyHttpLogMapper;
+    @Resource
+    LogRetentionManager logRetentionManager;
+
+    private final Progress httpProgress = new Progress("uniops_http_request_log");
+    private final Progress thirdPartyProgress = new Progress("uniops_third_party_http_log");
+
+    /**
+     * 上一轮未结束时不重复执行
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 单张表的迁移进度
+     */
+    private static final class Progress {
+        final String table;
+        long cursor;
+        Long maxId;
+        boolean done;
+        long compressedRows;
+
+        Progress(String table) {
+            this.table = table;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        UniOpsProperties.LogCompression config = uniOpsProperties.getLogCompression();
+        CompressedTextTypeHandler.configure(config.isEnabled(), config.getThresholdChars());
+    }
+
+    @Scheduled(fixedDelayString = "${uniops.log-compression.migration-interval-ms:10000}")
+    @NoManagedJob
+    public void migrate() {
+        UniOpsProperties.LogCompression config = uniOpsProperties.getLogCompression();
+        if (!config.isEnabled() || !config.isMigrationEnabled() || (httpProgress.done && thirdPartyProgress.done)
+                || !logRetentionManager.isGlobalLeader() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int batchSize = Math.max(1, config.getMigrationBatchSize());
+            migrateBatch(httpProgress, batchSize,
+                    httpRequestLogMapper::selectMaxId,
+                    (cursor, maxId) -> httpRequestLogMapper.selectUncompressed(cursor, maxId, minBytes(), batchSize),
+                    HttpRequestLog::getId, this::compressRow);
+            migrateBatch(thirdPartyProgress, batchSize,
+                    thirdPartyHttpLogMapper::selectMaxId,
+                    (cursor, maxId) -> thirdPartyHttpLogMapper.selectUncompressed(cursor, maxId, minBytes(), batchSize),
+                    ThirdPartyHttpLog::getId, this::compressRow);
+        } catch (Exception e) {
+            // 下一轮从同一位置重试
+            log.warn("[UniOps] 日志压缩迁移失败: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private interface BatchQuery<T> {
+        List<T> select(long cursor, long maxId);
+    }
+
+    private <T> void migrateBatch(Progress progress, int batchSize, LongSupplier maxIdQuery,
+                                  BatchQuery<T> query, Function<T, Long> idOf, ToIntFunction<T> compressor) {
+        if (progress.done) {
+            return;
+        }
+        if (progress.maxId == null) {
+            progress.maxId = maxIdQuery.getAsLong();
+            log.info("[UniOps] 开始压缩{}中已有的日志，id上限{}", progress.table, progress.maxId);
+        }
+        List<T> rows = query.select(progress.cursor, progress.maxId);
+        for (T row : rows) {
+            progress.compressedRows += compressor.applyAsInt(row);
+            progress.cursor = idOf.apply(row);
+        }
+        if (rows.size() < batchSize) {
+            progress.done = true;
+            log.info("[UniOps] {}已有日志压缩完成，共压缩{}行", progress.table, progress.compressedRows);
+        }
+    }
+
+    /**
+     * 压缩一行，只写回压缩后变短的字段
+     *
+     * @return 实际更新的行数
+     */
+    private int compressRow(HttpRequestLog row) {
+        HttpRequestLog update = new HttpRequestLog();
+        update.setId(row.getId());
+        update.setRequestParams(compressedOrNull(row.getRequestParams()));
+        update.setResponseMessage(compressedOrNull(row.getResponseMessage()));
+        update.setExceptionStack(compressedOrNull(row.getExceptionStack()));
+        if (update.getRequestParams() == null && update.getResponseMessage() == null && update.getExceptionStack() == null) {
+            return 0;
+        }
+        return httpRequestLogMapper.updateCompressed(update);
+    }
+
+    private int compressRow(ThirdPartyHttpLog row) {
+        ThirdPartyHttpLog update = new ThirdPartyHttpLog();
+        update.setId(row.getId());
+        update.setRequestParams(compressedOrNull(row.getRequestParams()));
+        update.setRequestBody(compressedOrNull(row.getRequestBody()));
+        update.setResponseBody(compressedOrNull(row.getResponseBody()));
+        if (update.getRequestParams() == null && update.getRequestBody() == null && update.getResponseBody() == null) {
+            return 0;
+        }
+        return thirdPartyHttpLogMapper.updateCompressed(update);
+    }
+
+    private String compressedOrNull(String value) {
+        String compressed = CompressedTextTypeHandler.compress(value);
+        return !CompressedTextTypeHandler.isCompressed(value) && CompressedTextTypeHandler.isCompressed(compressed)
+                ? compressed : null;
+    }
+
+    /**
+     * VARCHAR每个字符至少1字节，按字符数筛选不会漏掉；NVARCHAR下多选出的短字段压缩时会跳过
+     */
+    private int minBytes() {
+        return CompressedTextTypeHandler.getThresholdChars();
+    }
+}
@@ -0,0 +1,314 @@
+package com.uniops.core.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.uniops.core.annotation.NoManagedJob;
+import com.uniops.core.entity.SystemRegister;
+import com.uniops.core.mapper.LogRetentionMapper;
+import com.uniops.core.mapper.SystemRegisterMapper;
+import com.uniops.core.service.ISystemRegisterService;
+import com.uniops.core.vo.LogRetentionStatsVO;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 日志保留清理
+ * 按id顺序分批删除过期日志：每批先取前N条过期行的最大id，再删除这个id范围内的过期行，单条DELETE的锁和事务日志都有上限；
+ * 每次清理先按时间列的索引找到第一条未过期行的id，只在它之前的id范围内查找，过期行删完后不会再扫描保留的日志；
+ * 批与批之间暂停，单次运行超时后记住每张表、每个应用处理到的id，下次从这里继续。
+ * 每个应用按自己的保留配置清理自己的日志，由该应用在线实例中id最小的执行；已经没有在线实例的应用
+ * （以及应用列为空的行）由所有在线实例中id最小的按它的配置清理
+ *
+ * @author liyang
+ * @since 2026/2/25
+ */
+@Component
+@Slf4j
+public class LogRetentionManager {
+
+    public static final String TABLE_HTTP_REQUEST_LOG = "uniops_http_request_log";
+    public static final String TABLE_SCHEDULED_LOG = "uniops_scheduled_log";
+    public static final String TABLE_THIRD_PARTY_HTTP_LOG = "uniops_third_party_http_log";
+
+    /**
+     * @param byRegister 应用列存的是注册表id（app_id），为false时直接存应用名（app_name）
+     */
+    private record Target(String table, String timeColumn, String appColumn, boolean byRegister) {
+    }
+
+    private static final List<Target> TARGETS = List.of(
+            new Target(TABLE_HTTP_REQUEST_LOG, "request_time", "app_id", true),
+            new Target(TABLE_SCHEDULED_LOG, "trigger_time", "app_name", false),
+            new Target(TABLE_THIRD_PARTY_HTTP_LOG, "request_time", "app_id", true));
+
+    @Resource
+    UniOpsProperties uniOpsProperties;
+    @Resource
+    LogRetentionMapper logRetentionMapper;
+    @Resource
+    SystemRegisterMapper systemRegisterMapper;
+    @Resource
+    ISystemRegisterService systemRegisterService;
+
+    /**
+     * 表名|应用名 -> 上次中断时处理到的id，默认规则的应用名为空
+     */
+    private final Map<String, Long> cursors = new ConcurrentHashMap<>();
+
+    private final Map<String, Report> reports = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private static final class Report {
+        volatile LocalDateTime lastRunTime;
+        volatile long lastRemoved;
+        volatile long totalRemoved;
+        volatile String lastError;
+    }
+
+    /**
+     * 本实例在清理中承担的角色
+     *
+     * @param appLeader    本应用在线实例中id最小，清理本应用的日志
+     * @param globalLeader 所有在线实例中id最小，清理没有在线实例的应用的日志
+     * @param onlineApps   有在线实例的应用，它们各自清理
+     */
+    private record Leadership(String localApp, boolean appLeader, boolean globalLeader, List<String> onlineApps) {
+    }
+
+    /**
+     * 单次清理的范围
+     *
+     * @param appId       只清理该实例的日志（只对应用列是app_id的表生效），为null时不限
+     * @param includeApps 只清理这些应用的日志，为null时不限
+     * @param excludeApps 不清理这些应用的日志（它们有单独的保留天数）
+     * @param deadline    超过该时间点停止并记住位置，Long.MAX_VALUE表示不限时
+     */
+    private record Pass(Target target, String cursorKey, LocalDateTime cutoff, Long appId,
+                        List<String> includeApps, List<String> excludeApps, long maxId, long deadline) {
+    }
+
+    @Scheduled(fixedDelayString = "${uniops.retention.run-interval-ms:600000}", initialDelay = 60000)
+    @NoManagedJob
+    public void purgeExpired() {
+        UniOpsProperties.Retention config = uniOpsProperties.getRetention();
+        if (!config.isEnabled() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Leadership leadership = leadership();
+            if (leadership == null || (!leadership.appLeader() && !leadership.globalLeader())) {
+                return;
+            }
+            long deadline = System.currentTimeMillis() + config.getMaxRunMs();
+            for (Target target : TARGETS) {
+                purgeTable(target, config, leadership, deadline);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 手动清理某张表中早于expireTime的日志，同样分批执行；最长运行maxRunMs，超出后停止，再次调用继续
+     *
+     * @param appId 只清理该实例的日志（只对应用列是app_id的表生效），为null时清理整张表
+     * @return 删除的行数
+     */
+    public long purgeBefore(String table, LocalDateTime expireTime, Long appId) {
+        Target target = TARGETS.stream().filter(t -> t.table().equals(table)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("不支持清理的表: " + table));
+        long maxId = logRetentionMapper.selectMaxId(target.table());
+        long deadline = System.currentTimeMillis() + uniOpsProperties.getRetention().getMaxRunMs();
+        long removed = purge(new Pass(target, null, expireTime, appId, null, null, maxId, deadline));
+        log.info("[UniOps] 手动清理{}中{}之前的日志{}行", table, expireTime, removed);
+        return removed;
+    }
+
+    /**
+     * 本实例是否是所有在线实例中id最小的，日志表的全表维护任务只由它执行
+     */
+    public boolean isGlobalLeader() {
+        Leadership leadership = leadership();
+        return leadership != null && leadership.globalLeader();
+    }
+
+    public List<LogRetentionStatsVO> stats() {
+        UniOpsProperties.Retention config = uniOpsProperties.getRetention();
+        List<LogRetentionStatsVO> result = new ArrayList<>();
+        for (Target target : TARGETS) {
+            LogRetentionStatsVO vo = new LogRetentionStatsVO();
+            vo.setTableName(target.table());
+            vo.setRetentionDays(config.getTableDays().getOrDefault(target.table(), config.getDefaultDays()));
+            Report report = reports.get(target.table());
+            if (report != null) {
+                vo.setLastRunTime(report.lastRunTime);
+                vo.setLastRemoved(report.lastRemoved);
+                vo.setTotalRemoved(report.totalRemoved);
+                vo.setLastError(report.lastError);
+            }
+            String prefix = target.table() + "|";
+            vo.setResumePending(cursors.keySet().stream().anyMatch(key -> key.startsWith(prefix)));
+            result.add(vo);
+        }
+        return result;
+    }
+
+    private void purgeTable(Target target, UniOpsProperties.Retention config, Leadership leadership, long deadline) {
+        Report report = reports.computeIfAbsent(target.table(), k -> new Report());
+        long removed = 0;
+        String error = null;
+        try {
+            long maxId = logRetentionMapper.selectMaxId(target.table());
+            LocalDateTime now = LocalDateTime.now();
+            int tableDays = config.getTableDays().getOrDefault(target.table(), config.getDefaultDays());
+            if (leadership.appLeader()) {
+                // 本应用的日志按本应用的配置清理
+                String app = leadership.localApp();
+                Integer appDays = config.getAppDays().get(app);
+                int days = appDays != null ? appDays : tableDays;
+                if (days > 0) {
+                    removed += purge(new Pass(target, target.table() + "|" + app, now.minusDays(days), null,
+                            List.of(app), null, maxId, deadline));
+                }
+            }
+            if (leadership.globalLeader()) {
+                // 没有在线实例的应用：单独配置了保留天数的逐个清理，其余按表的保留天数
+                List<String> excludedApps = new ArrayList<>(leadership.onlineApps());
+                for (Map.Entry<String, Integer> entry : config.getAppDays().entrySet()) {
+                    if (leadership.onlineApps().contains(entry.getKey())) {
+                        continue;
+                    }
+                    excludedApps.add(entry.getKey());
+                    if (entry.getValue() != null && entry.getValue() > 0) {
+                        removed += purge(new Pass(target, target.table() + "|" + entry.getKey(),
+                                now.minusDays(entry.getValue()), null, List.of(entry.getKey()), null, maxId, deadline));
+                    }
+                }
+                if (tableDays > 0) {
+                    removed += purge(new Pass(target, target.table() + "|", now.minusDays(tableDays), null, null,
+                            excludedApps, maxId, deadline));
+                }
+            }
+        } catch (Exception e) {
+            error = e.getMessage();
+            log.warn("[UniOps] 清理{}失败: {}", target.table(), e.getMessage());
+        }
+        report.lastRunTime = LocalDateTime.now();
+        report.lastRemoved = removed;
+        report.totalRemoved += removed;
+        report.lastError = error;
+        if (removed > 0) {
+            log.info("[UniOps] 清理{}过期日志{}行", target.table(), removed);
+        }
+    }
+
+    /**
+     * 分批删除，超时时记住位置；中断位置之后写入的行id更大，继续时不会漏掉
+     * 日志id和时间基本同序，第一条未过期行之后偶有的过期行（写入延迟造成）留到下次清理，那时它已在范围内
+     */
+    private long purge(Pass pass) {
+        UniOpsProperties.Retention config = uniOpsProperties.getRetention();
+        int batchSize = Math.max(1, config.getBatchSize());
+        Target target = pass.target();
+        long cursor = pass.cursorKey() == null ? 0 : cursors.getOrDefault(pass.cursorKey(), 0L);
+        Long firstRetainedId = logRetentionMapper.selectFirstRetainedId(target.table(), target.timeColumn(),
+                pass.cutoff());
+        long upperId = firstRetainedId == null ? pass.maxId() : Math.min(pass.maxId(), firstRetainedId - 1);
+        long removed = 0;
+        while (cursor < upperId) {
+            if (System.currentTimeMillis() > pass.deadline()) {
+                if (pass.cursorKey() != null) {
+                    cursors.put(pass.cursorKey(), cursor);
+                }
+                log.info("[UniOps] 清理{}超出单次运行时间，已处理到id {}", target.table(), cursor);
+                return removed;
+            }
+            Long endId = logRetentionMapper.selectBatchEndId(target.table(), target.timeColumn(), target.appColumn(),
+                    target.byRegister(), cursor, upperId, pass.cutoff(), pass.appId(), pass.includeApps(),
+                    pass.excludeApps(), batchSize);
+            if (endId == null) {
+                break;
+            }
+            removed += logRetentionMapper.deleteExpired(target.table(), target.timeColumn(), target.appColumn(),
+                    target.byRegister(), cursor, endId, pass.cutoff(), pass.appId(), pass.includeApps(),
+                    pass.excludeApps());
+            cursor = endId;
+            if (!pause(config.getPauseMs())) {
+                // 应用关闭时被中断，下次从这里继续
+                if (pass.cursorKey() != null) {
+                    cursors.put(pass.cursorKey(), cursor);
+                }
+                return removed;
+            }
+        }
+        if (pass.cursorKey() != null) {
+            cursors.remove(pass.cursorKey());
+        }
+        return removed;
+    }
+
+    private boolean pause(long pauseMs) {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 按在线实例判断本实例的角色，查询失败或本实例还没有注册时不执行
+     */
+    private Leadership leadership() {
+        try {
+            SystemRegister local = systemRegisterService.localSystem();
+            if (local == null || local.getId() == null || local.getSystemId() == null) {
+                return null;
+            }
+            List<SystemRegister> online = systemRegisterMapper.selectList(
+                    new QueryWrapper<SystemRegister>().select("id", "system_id").eq("status", "1"));
+            Long minId = null;
+            Long minAppId = null;
+            Set<String> onlineApps = new TreeSet<>();
+            onlineApps.add(local.getSystemId());
+            for (SystemRegister register : online) {
+                if (register.getId() == null) {
+                    continue;
+                }
+                if (minId == null || register.getId() < minId) {
+                    minId = register.getId();
+                }
+                if (register.getSystemId() != null) {
+                    onlineApps.add(register.getSystemId());
+                    if (register.getSystemId().equals(local.getSystemId())
+                            && (minAppId == null || register.getId() < minAppId)) {
+                        minAppId = register.getId();
+                    }
+                }
+            }
+            return new Leadership(local.getSystemId(),
+                    minAppId == null || minAppId.equals(local.getId()),
+                    minId == null || minId.equals(local.getId()),
+                    new ArrayList<>(onlineApps));
+        } catch (Exception e) {
+            log.warn("[UniOps] 查询在线实例失败，跳过本次日志清理: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.uniops.core.cache;
+
+import com.uniops.core.annotation.NoManagedJob;
+import com.uniops.core.util.HttpResponseResult;
+import com.uniops.core.util.MDCUtil;
+import com.uniops.core.vo.ResponseCacheStatsVO;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 第三方GET响应缓存
+ * 按thirdPartyName开启，只缓存2xx的成功响应；同一URL和请求头的并发请求只发出一次，其余等待同一个结果。
+ * 命中和合并的请求不访问网络，也不写调用日志；命中/未命中次数按小时计入uniops_statistics_hourly的THIRD_PARTY统计，
+ * 各第三方的明细在缓存统计里查看
+ *
+ * @author liyang
+ * @since 2026/2/21
+ */
+@Component
+public class ResponseCacheManager {
+
+    @Resource
+    UniOpsProperties uniOpsProperties;
+    @Resource
+    StatisticsRollupManager statisticsRollupManager;
+
+    private final ConcurrentHashMap<String, PartyCache> parties = new ConcurrentHashMap<>();
+
+    /**
+     * @param expireAt 过期时间点（毫秒）
+     */
+    private record CacheEntry(HttpResponseResult result, long expireAt) {
+
+        boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+
+    private static final class PartyCache {
+        final String name;
+        final ConcurrentHashMap<String, CacheEntry> entries = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, CompletableFuture<HttpResponseResult>> inFlight = new ConcurrentHashMap<>();
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder expiredEvictions = new LongAdder();
+        final LongAdder capacityEvictions = new LongAdder();
+
+        PartyCache(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * 是否对该第三方开启了缓存
+     */
+    public boolean isEnabled(String thirdPartyName) {
+        Long ttl = thirdPartyName == null ? null : uniOpsProperties.getResponseCache().getTtlMs().get(thirdPartyName);
+        return ttl != null && ttl > 0;
+    }
+
+    /**
+     * 同步读取：命中直接返回，有相同的请求在进行则等待它的结果，否则调用loader并缓存成功响应
+     * 未开启缓存的第三方直接调用loader
+     */
+    public HttpResponseResult load(String thirdPartyName, String url, Map<String, String> headers,
+                                   Supplier<HttpResponseResult> loader) {
+        if (!isEnabled(thirdPartyName)) {
+            return loader.get();
+        }
+        PartyCache party = partyOf(thirdPartyName);
+        String key = keyOf(url, headers);
+        HttpResponseResult cached = lookup(party, key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<HttpResponseResult> mine = new CompletableFuture<>();
+        CompletableFuture<HttpResponseResult> leader = party.inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            party.coalesced.increment();
+            statisticsRollupManager.recordResponseCache(true);
+            return leader.join();
+        }
+        party.misses.increment();
+        statisticsRollupManager.recordResponseCache(false);
+        try {
+            HttpResponseResult result = loader.get();
+            store(party, key, result);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            party.inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 异步读取，规则同load
+     */
+    public CompletableFuture<HttpResponseResult> loadAsync(String thirdPartyName, String url, Map<String, String> headers,
+                                                           Supplier<CompletableFuture<HttpResponseResult>> loader) {
+        if (!isEnabled(thirdPartyName)) {
+            return loader.get();
+        }
+        PartyCache party = partyOf(thirdPartyName);
+        String key = keyOf(url, headers);
+        HttpResponseResult cached = lookup(party, key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<HttpResponseResult> mine = new CompletableFuture<>();
+        CompletableFuture<HttpResponseResult> leader = party.inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            party.coalesced.increment();
+            statisticsRollupManager.recordResponseCache(true);
+            return leader;
+        }
+        party.misses.increment();
+        statisticsRollupManager.recordResponseCache(false);
+        CompletableFuture<HttpResponseResult> call;
+        try {
+            call = loader.get();
+        } catch (RuntimeException e) {
+            party.inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        call.whenComplete((result, error) -> {
+            // 先写缓存再移除进行中的请求，中间到达的相同请求要么合并要么命中
+            if (error == null) {
+                store(party, key, result);
+                mine.complete(result);
+            } else {
+                mine.completeExceptionally(error);
+            }
+            party.inFlight.remove(key, mine);
+        });
+        return mine;
+    }
+
+    /**
+     * 清空某个第三方的缓存，thirdPartyName为null时清空全部
+     */
+    public void invalidate(String thirdPartyName) {
+        if (thirdPartyName == null) {
+            parties.values().forEach(party -> party.entries.clear());
+            return;
+        }
+        PartyCache party = parties.get(thirdPartyName);
+        if (party != null) {
+            party.entries.clear();
+        }
+    }
+
+    /**
+     * 清理过期响应
+     */
+    @Scheduled(fixedDelayString = "${uniops.response-cache.sweep-interval-ms:60000}")
+    @NoManagedJob
+    public void cleanupExpired() {
+        long now = System.currentTimeMillis();
+        for (PartyCache party : parties.values()) {
+            cleanupExpired(party, now);
+        }
+    }
+
+    public List<ResponseCacheStatsVO> stats() {
+        UniOpsProperties.ResponseCache config = uniOpsProperties.getResponseCache();
+        List<ResponseCacheStatsVO> result = new ArrayList<>();
+        for (PartyCache party : parties.values()) {
+            ResponseCacheStatsVO vo = new ResponseCacheStatsVO();
+            vo.setThirdPartyName(party.name);
+            vo.setTtlMs(config.getTtlMs().getOrDefault(party.name, 0L));
+            vo.setSize(party.entries.size());
+            vo.setMaxEntries(config.getMaxEntriesPerParty());
+            vo.setHits(party.hits.sum());
+            vo.setMisses(party.misses.sum());
+            vo.setCoalesced(party.coalesced.sum());
+            long lookups = vo.getHits() + vo.getMisses() + vo.getCoalesced();
+            vo.setHitRate(lookups == 0 ? 0 : (double) (vo.getHits() + vo.getCoalesced()) / lookups);
+            vo.setExpiredEvictions(party.expiredEvictions.sum());
+            vo.setCapacityEvictions(party.capacityEvictions.sum());
+            result.add(vo);
+        }
+        result.sort(Comparator.comparing(ResponseCacheStatsVO::getThirdPartyName));
+        return result;
+    }
+
+    private PartyCache partyOf(String thirdPartyName) {
+        return parties.computeIfAbsent(thirdPartyName, PartyCache::new);
+    }
+
+    private HttpResponseResult lookup(PartyCache party, String key) {
+        CacheEntry entry = party.entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            if (party.entries.remove(key, entry)) {
+                party.expiredEvictions.increment();
+            }
+            return null;
+        }
+        party.hits.increment();
+        statisticsRollupManager.recordResponseCache(true);
+        return entry.result();
+    }
+
+    private void store(PartyCache party, String key, HttpResponseResult result) {
+        if (result == null || !result.isSuccess() || result.getStatusCode() == null
+                || result.getStatusCode() < 200 || result.getStatusCode() >= 300) {
+            return;
+        }
+        UniOpsProperties.ResponseCache config = uniOpsProperties.getResponseCache();
+        Long ttl = config.getTtlMs().get(party.name);
+        if (ttl == null || ttl <= 0) {
+            return;
+        }
+        if (party.entries.size() >= config.getMaxEntriesPerParty() && !party.entries.containsKey(key)) {
+            makeRoom(party, config.getMaxEntriesPerParty());
+        }
+        // 缓存的结果会交给多个调用方，响应头换成只读副本
+        Map<String, String> headers = result.getResponseHeaders() == null
+                ? null : Collections.unmodifiableMap(new HashMap<>(result.getResponseHeaders()));
+        HttpResponseResult shared = new HttpResponseResult(true, result.getStatusCode(), result.getResponseBody(), headers, null);
+        party.entries.put(key, new CacheEntry(shared, System.currentTimeMillis() + ttl));
+    }
+
+    private void cleanupExpired(PartyCache party, long now) {
+        for (Map.Entry<String, CacheEntry> e : party.entries.entrySet()) {
+            if (e.getValue().isExpired(now) && party.entries.remove(e.getKey(), e.getValue())) {
+                party.expiredEvictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 已满时先清理过期条目，仍然满则淘汰最早过期的条目
+     */
+    private void makeRoom(PartyCache party, int maxEntries) {
+        cleanupExpired(party, System.currentTimeMillis());
+        while (party.entries.size() >= Math.max(1, maxEntries)) {
+            String victimKey = null;
+            CacheEntry victim = null;
+            for (Map.Entry<String, CacheEntry> e : party.entries.entrySet()) {
+                if (victim == null || e.getValue().expireAt() < victim.expireAt()) {
+                    victimKey = e.getKey();
+                    victim = e.getValue();
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            if (party.entries.remove(victimKey, victim)) {
+                party.capacityEvictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 缓存键：URL加请求头（名称不区分大小写、按名称排序），链路请求头每次都不同，不参与
+     */
+    private static String keyOf(String url, Map<String, String> headers) {
+        if (headers == null || headers.isEmpty()) {
+            return url;
+        }
+        Map<String, String> sorted = new TreeMap<>();
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            String name = entry.getKey().toLowerCase();
+            if (!MDCUtil.TRACEPARENT_HEADER.equals(name) && !MDCUtil.X_TRACE_ID_HEADER.equalsIgnoreCase(name)) {
+                sorted.put(name, entry.getValue());
+            }
+        }
+        StringBuilder key = new StringBuilder(url);
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            key.append('\n').append(entry.getKey()).append(':').append(entry.getValue());
+        }
+        return key.toString();
+    }
+}
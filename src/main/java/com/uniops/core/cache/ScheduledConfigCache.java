@@ -0,0 +1,116 @@
+package com.uniops.core.cache;
+
+import com.uniops.core.annotation.NoManagedJob;
+import com.uniops.core.condition.SystemCondition;
+import com.uniops.core.entity.ScheduledConfig;
+import com.uniops.core.mapper.ScheduledConfigMapper;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 定时任务配置快照
+ * 整表加载为不可变Map，配置修改时递增版本号，下次读取时发现版本落后再重新加载，
+ * 定时任务切面每次触发只读内存，不再查库
+ *
+ * @author liyang
+ * @since 2026/2/16
+ */
+@Component
+@Slf4j
+public class ScheduledConfigCache {
+
+    @Resource
+    ScheduledConfigMapper scheduledConfigMapper;
+    @Resource
+    SystemCondition systemCondition;
+
+    /**
+     * 期望的版本，每次失效加一
+     */
+    private final AtomicLong version = new AtomicLong(1);
+
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot = new Snapshot(0, Map.of());
+
+    /**
+     * @param version 加载开始时的期望版本
+     * @param configs beanName.methodName -> 配置
+     */
+    private record Snapshot(long version, Map<String, ScheduledConfig> configs) {
+    }
+
+    /**
+     * 按bean和方法名取配置，语义与IScheduledConfigService.getByBeanAndMethod一致
+     *
+     * @return 配置的只读快照，调用方不要修改；不存在时返回null
+     */
+    public ScheduledConfig get(String beanName, String methodName) {
+        Snapshot current = snapshot;
+        if (current.version() != version.get()) {
+            current = reload(current);
+        }
+        return current.configs().get(key(beanName, methodName));
+    }
+
+    /**
+     * 配置已修改，下一次读取时重新加载
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * 兜底刷新，覆盖通用实体管理接口或其他实例直接改库的情况
+     */
+    @Scheduled(fixedDelayString = "${uniops.scheduled-monitor.config-refresh-interval-ms:60000}")
+    @NoManagedJob
+    public void refresh() {
+        invalidate();
+    }
+
+    private Snapshot reload(Snapshot current) {
+        // 已有线程在加载时沿用旧快照，避免多个任务同时触发时重复查库
+        if (!loadLock.tryLock()) {
+            return current;
+        }
+        try {
+            Snapshot latest = snapshot;
+            long expected = version.get();
+            if (latest.version() == expected) {
+                return latest;
+            }
+            List<ScheduledConfig> rows = scheduledConfigMapper.selectList(null);
+            String appName = systemCondition.getApplicationName();
+            Map<String, ScheduledConfig> configs = new HashMap<>(rows.size() * 2);
+            for (ScheduledConfig row : rows) {
+                // 同名任务存在多条时优先本应用的配置
+                configs.merge(key(row.getBeanName(), row.getMethodName()), row,
+                        (existing, added) -> Objects.equals(added.getAppName(), appName)
+                                && !Objects.equals(existing.getAppName(), appName) ? added : existing);
+            }
+            // 加载期间又有失效时版本号仍落后，下次读取会再加载一次
+            Snapshot loaded = new Snapshot(expected, Map.copyOf(configs));
+            snapshot = loaded;
+            return loaded;
+        } catch (Exception e) {
+            log.warn("[UniOps] 定时任务配置加载失败，沿用上一版本: {}", e.getMessage());
+            return current;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private static String key(String beanName, String methodName) {
+        return beanName + "." + methodName;
+    }
+}
@@ -0,0 +1,90 @@
+package com.uniops.core.cache;
+
+import com.uniops.core.annotation.NoManagedJob;
+import com.uniops.core.service.IUserSessionService;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 会话访问时间记录
+ * 请求只在内存中记下每个会话最后一次访问的时间，同一会话多次访问合并为一条，
+ * 定时批量写回last_access_time/expires_time，已认证请求不再产生SQL
+ *
+ * @author liyang
+ * @since 2026/2/16
+ */
+@Component
+@Slf4j
+public class SessionAccessTracker {
+
+    @Resource
+    IUserSessionService userSessionService;
+
+    /**
+     * sessionToken -> 尚未写入数据库的最后访问时间（毫秒）
+     */
+    private final ConcurrentHashMap<String, Long> pendingAccess = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次访问
+     */
+    public void touch(String sessionToken) {
+        pendingAccess.put(sessionToken, System.currentTimeMillis());
+    }
+
+    /**
+     * 会话注销后丢弃未写入的访问时间
+     */
+    public void discard(String sessionToken) {
+        pendingAccess.remove(sessionToken);
+    }
+
+    /**
+     * 定时批量写回访问时间，间隔远小于会话超时时间，过期判断不受影响
+     */
+    @Scheduled(fixedDelayString = "${uniops.session.access-flush-interval-ms:30000}")
+    @NoManagedJob
+    public void flush() {
+        if (pendingAccess.isEmpty()) {
+            return;
+        }
+        Map<String, Long> drained = new HashMap<>();
+        List<String> tokens = new ArrayList<>(pendingAccess.keySet());
+        for (String token : tokens) {
+            Long time = pendingAccess.remove(token);
+            if (time != null) {
+                drained.put(token, time);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        Map<String, LocalDateTime> accessTimes = new HashMap<>(drained.size() * 2);
+        drained.forEach((token, time) ->
+                accessTimes.put(token, LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault())));
+        try {
+            userSessionService.updateSessionAccessBatch(accessTimes);
+        } catch (Exception e) {
+            // 写入失败时放回，期间又有访问的保留较新的时间
+            drained.forEach((token, time) -> pendingAccess.merge(token, time, Math::max));
+            log.warn("[UniOps] 会话访问时间写入失败，下次重试: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+}
@@ -1,45 +1,58 @@
 // src/main/java/com/uniops/core/cache/SessionCacheManager.java
 package com.uniops.core.cache;
 
+import com.uniops.core.annotation.NoManagedJob;
+import com.uniops.core.vo.SessionCacheStatsVO;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 会话缓存管理器
  * 用于缓存会话信息，减少数据库访问
+ * 条目数有上限，无效令牌单独限量且缓存时间更短，过期条目由定时任务主动清理
  */
 @Component
 public class SessionCacheManager {
 
-    // 会话缓存：sessionToken -> (lastCheckTime, isValid)
-    private final ConcurrentHashMap<String, SessionCacheEntry> sessionCache = new ConcurrentHashMap<>();
+    @Resource
+    UniOpsProperties uniOpsProperties;
 
-    private static final long CACHE_DURATION_SECONDS = 300; // 缓存5分钟
+    // 会话缓存：sessionToken -> (isValid, expireAt)
+    private final ConcurrentHashMap<String, SessionCacheEntry> sessionCache = new ConcurrentHashMap<>();
 
     /**
-     * 会话缓存条目
+     * 当前缓存中无效令牌的条数，只在compute/条件删除成功时增减
      */
-    private static class SessionCacheEntry {
-        private final boolean isValid;
-        private final LocalDateTime cacheTime;
+    private final AtomicInteger negativeCount = new AtomicInteger();
 
-        public SessionCacheEntry(boolean isValid) {
-            this.isValid = isValid;
-            this.cacheTime = LocalDateTime.now();
-        }
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expiredEvictions = new LongAdder();
+    private final LongAdder capacityEvictions = new LongAdder();
+    private final LongAdder negativeRejected = new LongAdder();
 
-        public boolean isValid() {
-            return isValid;
-        }
+    /**
+     * 每次主动移除令牌（注销、失效广播）时加一。查询数据库前记下，写缓存时不一致说明期间有令牌失效，
+     * 查询结果可能早于失效，有效的结果不再写入缓存
+     */
+    private final AtomicLong invalidationVersion = new AtomicLong();
 
-        public LocalDateTime getCacheTime() {
-            return cacheTime;
-        }
+    /**
+     * 会话缓存条目，过期时间在创建时算好，查询时只比较毫秒数
+     */
+    private record SessionCacheEntry(boolean isValid, long expireAt) {
 
-        public boolean isExpired() {
-            return java.time.Duration.between(cacheTime, LocalDateTime.now()).getSeconds() > CACHE_DURATION_SECONDS;
+        boolean isExpired(long now) {
+            return now >= expireAt;
         }
     }
 
@@ -48,31 +61,147 @@ public class SessionCacheManager {
      */
     public Boolean getCachedSessionValidity(String sessionToken) {
         SessionCacheEntry entry = sessionCache.get(sessionToken);
-        if (entry == null || entry.isExpired()) {
-            sessionCache.remove(sessionToken);
+        if (entry == null) {
+            misses.increment();
             return null;
         }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            if (removeEntry(sessionToken, entry)) {
+                expiredEvictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        if (entry.isValid()) {
+            hits.increment();
+        } else {
+            negativeHits.increment();
+        }
         return entry.isValid();
     }
 
+    /**
+     * 查询数据库前取当前版本，传给cacheSessionValidity
+     */
+    public long invalidationVersion() {
+        return invalidationVersion.get();
+    }
+
     /**
      * 缓存会话有效性
+     *
+     * @param loadVersion 查询数据库前的invalidationVersion()
      */
-    public void cacheSessionValidity(String sessionToken, boolean isValid) {
-        sessionCache.put(sessionToken, new SessionCacheEntry(isValid));
+    public void cacheSessionValidity(String sessionToken, boolean isValid, long loadVersion) {
+        UniOpsProperties.Session config = uniOpsProperties.getSession();
+        if (!isValid && negativeCount.get() >= config.getMaxNegativeEntries()) {
+            // 无效令牌已达上限时不再缓存，避免随机令牌把缓存撑满
+            negativeRejected.increment();
+            return;
+        }
+        if (sessionCache.size() >= config.getMaxEntries() && !sessionCache.containsKey(sessionToken)) {
+            makeRoom(config.getMaxEntries());
+        }
+        long ttl = isValid ? config.getCacheTtlMs() : config.getNegativeCacheTtlMs();
+        SessionCacheEntry entry = new SessionCacheEntry(isValid, System.currentTimeMillis() + ttl);
+        sessionCache.compute(sessionToken, (token, previous) -> {
+            // 和removeCachedSession在同一个key上串行，期间有失效时保留原值，不写入可能过时的有效结果
+            if (isValid && invalidationVersion.get() != loadVersion) {
+                return previous;
+            }
+            if (previous != null && !previous.isValid()) {
+                negativeCount.decrementAndGet();
+            }
+            if (!isValid) {
+                negativeCount.incrementAndGet();
+            }
+            return entry;
+        });
     }
 
     /**
      * 移除缓存
      */
     public void removeCachedSession(String sessionToken) {
-        sessionCache.remove(sessionToken);
+        sessionCache.compute(sessionToken, (token, previous) -> {
+            invalidationVersion.incrementAndGet();
+            if (previous != null && !previous.isValid()) {
+                negativeCount.decrementAndGet();
+            }
+            return null;
+        });
     }
 
     /**
      * 清理过期缓存
      */
+    @Scheduled(fixedDelayString = "${uniops.session.cache-sweep-interval-ms:60000}")
+    @NoManagedJob
     public void cleanupExpiredCache() {
-        sessionCache.entrySet().removeIf(entry -> entry.getValue().isExpired());
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, SessionCacheEntry> e : sessionCache.entrySet()) {
+            if (e.getValue().isExpired(now) && removeEntry(e.getKey(), e.getValue())) {
+                expiredEvictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 缓存命中/淘汰统计
+     */
+    public SessionCacheStatsVO stats() {
+        SessionCacheStatsVO vo = new SessionCacheStatsVO();
+        vo.setSize(sessionCache.size());
+        vo.setNegativeSize(negativeCount.get());
+        vo.setMaxEntries(uniOpsProperties.getSession().getMaxEntries());
+        vo.setMaxNegativeEntries(uniOpsProperties.getSession().getMaxNegativeEntries());
+        vo.setHits(hits.sum());
+        vo.setNegativeHits(negativeHits.sum());
+        vo.setMisses(misses.sum());
+        long lookups = vo.getHits() + vo.getNegativeHits() + vo.getMisses();
+        vo.setHitRate(lookups == 0 ? 0 : (double) (vo.getHits() + vo.getNegativeHits()) / lookups);
+        vo.setExpiredEvictions(expiredEvictions.sum());
+        vo.setCapacityEvictions(capacityEvictions.sum());
+        vo.setNegativeRejected(negativeRejected.sum());
+        return vo;
+    }
+
+    /**
+     * 缓存已满时腾出位置：先清理过期条目，仍然满则淘汰最早过期的条目，无效令牌优先
+     */
+    private void makeRoom(int maxEntries) {
+        cleanupExpiredCache();
+        while (sessionCache.size() >= maxEntries) {
+            String victimKey = null;
+            SessionCacheEntry victim = null;
+            for (Map.Entry<String, SessionCacheEntry> e : sessionCache.entrySet()) {
+                SessionCacheEntry candidate = e.getValue();
+                if (victim == null
+                        || (victim.isValid() && !candidate.isValid())
+                        || (victim.isValid() == candidate.isValid() && candidate.expireAt() < victim.expireAt())) {
+                    victimKey = e.getKey();
+                    victim = candidate;
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            if (removeEntry(victimKey, victim)) {
+                capacityEvictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 条件删除，只有条目未被替换时才删除并维护无效令牌计数
+     */
+    private boolean removeEntry(String sessionToken, SessionCacheEntry entry) {
+        if (sessionCache.remove(sessionToken, entry)) {
+            if (!entry.isValid()) {
+                negativeCount.decrementAndGet();
+            }
+            return true;
+        }
+        return false;
     }
 }
@@ -0,0 +1,255 @@
+package com.uniops.core.cache;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.uniops.core.annotation.NoManagedJob;
+import com.uniops.core.condition.SystemCondition;
+import com.uniops.core.entity.SessionInvalidation;
+import com.uniops.core.entity.SystemRegister;
+import com.uniops.core.mapper.SessionInvalidationMapper;
+import com.uniops.core.mapper.SystemRegisterMapper;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话失效广播
+ * 失效的令牌写入uniops_session_invalidation，各实例按id增量拉取后清除本地缓存；
+ * IDENTITY按分配顺序而不是提交顺序可见，每次拉取还会重读最近一段时间内的记录，按id去重。
+ * 同时尽力推送给uniops_system_register中在线的其他实例，推送失败由拉取兜底
+ *
+ * @author liyang
+ * @since 2026/2/16
+ */
+@Component
+@Slf4j
+public class SessionInvalidationBroadcaster {
+
+    /**
+     * 各实例接收推送的接口，相对servlet路径
+     */
+    public static final String PUSH_PATH = "/auth/session-invalidated";
+
+    /**
+     * 每条3个参数，不超过SQL Server的2100个参数限制
+     */
+    private static final int INSERT_BATCH_SIZE = 500;
+    private static final int POLL_BATCH_SIZE = 500;
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    @Resource
+    SessionInvalidationMapper sessionInvalidationMapper;
+    @Resource
+    SystemRegisterMapper systemRegisterMapper;
+    @Resource
+    SessionCacheManager sessionCacheManager;
+    @Resource
+    SystemCondition systemCondition;
+    @Resource
+    UniOpsProperties uniOpsProperties;
+
+    /**
+     * 推送专用客户端，不记第三方调用日志，超时很短，不影响注销请求
+     */
+    private final OkHttpClient pushClient = new OkHttpClient.Builder()
+            .connectTimeout(500, TimeUnit.MILLISECONDS)
+            .readTimeout(1, TimeUnit.SECONDS)
+            .writeTimeout(1, TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * 已处理到的失效记录id，-1表示尚未初始化
+     */
+    private volatile long lastId = -1;
+
+    private volatile boolean pollFailing;
+
+    /**
+     * 重叠窗口内已处理的记录id -> 处理时间，只在拉取线程中访问
+     */
+    private final Map<Long, Long> handledIds = new HashMap<>();
+
+    /**
+     * 广播令牌失效：本地立即清除，写入失效表，再推送给其他在线实例
+     */
+    public void publish(Collection<String> sessionTokens, String reason) {
+        if (sessionTokens == null || sessionTokens.isEmpty()) {
+            return;
+        }
+        evict(sessionTokens);
+        try {
+            List<SessionInvalidation> batch = new ArrayList<>(Math.min(sessionTokens.size(), INSERT_BATCH_SIZE));
+            for (String token : sessionTokens) {
+                SessionInvalidation row = new SessionInvalidation();
+                row.setSessionToken(token);
+                row.setReason(reason);
+                row.setAppName(systemCondition.getApplicationName());
+                batch.add(row);
+                if (batch.size() >= INSERT_BATCH_SIZE) {
+                    sessionInvalidationMapper.insertBatch(batch);
+                    batch = new ArrayList<>(INSERT_BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                sessionInvalidationMapper.insertBatch(batch);
+            }
+        } catch (Exception e) {
+            log.warn("[UniOps] 会话失效记录写入失败，其他实例只能等待缓存过期: {}", e.getMessage());
+        }
+        pushToPeers(sessionTokens);
+    }
+
+    /**
+     * 接收其他实例的推送
+     */
+    public void receive(Collection<String> sessionTokens) {
+        if (sessionTokens != null) {
+            evict(sessionTokens);
+        }
+    }
+
+    /**
+     * 增量拉取失效记录
+     */
+    @Scheduled(fixedDelayString = "${uniops.session.invalidation-poll-interval-ms:1000}")
+    @NoManagedJob
+    public void poll() {
+        try {
+            if (lastId < 0) {
+                // 启动前的失效记录与本地空缓存无关，从当前位置开始
+                lastId = sessionInvalidationMapper.selectMaxId();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long overlapMs = Math.max(0, uniOpsProperties.getSession().getInvalidationOverlapMs());
+            List<SessionInvalidation> rows;
+            do {
+                rows = sessionInvalidationMapper.selectAfter(lastId, POLL_BATCH_SIZE);
+                for (SessionInvalidation row : rows) {
+                    handle(row, now);
+                    lastId = Math.max(lastId, row.getId());
+                }
+            } while (rows.size() >= POLL_BATCH_SIZE);
+            if (overlapMs > 0) {
+                long fromId = 0;
+                do {
+                    rows = sessionInvalidationMapper.selectRecent(fromId, lastId,
+                            (int) Math.min(Integer.MAX_VALUE, overlapMs), POLL_BATCH_SIZE);
+                    for (SessionInvalidation row : rows) {
+                        handle(row, now);
+                        fromId = row.getId();
+                    }
+                } while (rows.size() >= POLL_BATCH_SIZE);
+            }
+            // 超出重叠窗口的记录不会再被读到，两个窗口后忘掉
+            handledIds.values().removeIf(handledAt -> now - handledAt > overlapMs * 2);
+            if (pollFailing) {
+                pollFailing = false;
+                log.info("[UniOps] 会话失效记录拉取已恢复");
+            }
+        } catch (Exception e) {
+            if (!pollFailing) {
+                pollFailing = true;
+                log.warn("[UniOps] 会话失效记录拉取失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 清理一天前的失效记录，会话缓存时间远小于一天
+     */
+    @Scheduled(cron = "0 30 * * * *")
+    @NoManagedJob
+    public void purge() {
+        try {
+            sessionInvalidationMapper.deleteBefore(LocalDateTime.now().minusDays(1));
+        } catch (Exception e) {
+            log.warn("[UniOps] 会话失效记录清理失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pushClient.dispatcher().executorService().shutdown();
+        pushClient.connectionPool().evictAll();
+    }
+
+    /**
+     * 同一条记录只清除一次，避免重叠窗口内反复清除使刚查询的结果无法缓存
+     */
+    private void handle(SessionInvalidation row, long now) {
+        if (handledIds.putIfAbsent(row.getId(), now) == null) {
+            sessionCacheManager.removeCachedSession(row.getSessionToken());
+        }
+    }
+
+    private void evict(Collection<String> sessionTokens) {
+        for (String token : sessionTokens) {
+            sessionCacheManager.removeCachedSession(token);
+        }
+    }
+
+    private void pushToPeers(Collection<String> sessionTokens) {
+        List<SystemRegister> peers;
+        try {
+            peers = systemRegisterMapper.selectList(new QueryWrapper<SystemRegister>().eq("status", "1"));
+        } catch (Exception e) {
+            log.debug("[UniOps] 查询在线实例失败，跳过推送: {}", e.getMessage());
+            return;
+        }
+        JSONObject body = new JSONObject();
+        body.put("tokens", sessionTokens);
+        String json = body.toJSONString();
+        for (SystemRegister peer : peers) {
+            if (isSelf(peer) || StringUtils.isEmpty(peer.getIp()) || StringUtils.isEmpty(peer.getPort())) {
+                continue;
+            }
+            String url = "http://" + peer.getIp() + ":" + peer.getPort()
+                    + StringUtils.defaultString(peer.getServletPath()) + PUSH_PATH;
+            Request request;
+            try {
+                request = new Request.Builder().url(url).post(RequestBody.create(json, JSON)).build();
+            } catch (IllegalArgumentException e) {
+                log.debug("[UniOps] 实例地址无效，跳过推送: {}", url);
+                continue;
+            }
+            pushClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    log.debug("[UniOps] 会话失效推送失败 {}: {}", url, e.getMessage());
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                }
+            });
+        }
+    }
+
+    private boolean isSelf(SystemRegister peer) {
+        return StringUtils.equals(peer.getSystemId(), systemCondition.getApplicationName())
+                && StringUtils.equals(peer.getIp(), systemCondition.getIp())
+                && StringUtils.equals(peer.getPort(), systemCondition.getPort());
+    }
+}
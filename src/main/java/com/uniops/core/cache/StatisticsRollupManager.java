@@ -0,0 +1,275 @@
+package com.uniops.core.cache;
+
+import com.uniops.core.annotation.NoManagedJob;
+import com.uniops.core.condition.SystemCondition;
+import com.uniops.core.entity.HttpRequestLog;
+import com.uniops.core.entity.ScheduledLog;
+import com.uniops.core.entity.StatisticsHourly;
+import com.uniops.core.entity.SystemRegister;
+import com.uniops.core.entity.ThirdPartyHttpLog;
+import com.uniops.core.mapper.StatisticsHourlyMapper;
+import com.uniops.core.service.ISystemRegisterService;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 小时统计预聚合管理器
+ * 日志落库后在内存中按(类别, 小时)累加，定时把增量合并进uniops_statistics_hourly
+ *
+ * @author liyang
+ * @since 2026/2/14
+ */
+@Component
+@Slf4j
+public class StatisticsRollupManager {
+
+    @Resource
+    StatisticsHourlyMapper statisticsHourlyMapper;
+    @Resource
+    ISystemRegisterService systemRegisterService;
+    @Resource
+    SystemCondition systemCondition;
+
+    /**
+     * 尚未写入数据库的增量
+     */
+    private final ConcurrentHashMap<Key, Delta> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 响应缓存查找次数，按小时计数，flush时并入pending；命中路径只做LongAdder累加，不进入pending的compute
+     */
+    private final ConcurrentHashMap<LocalDateTime, CacheCounter> cacheCounters = new ConcurrentHashMap<>();
+
+    private record Key(String category, LocalDateTime hour) {
+    }
+
+    private record CacheCounter(LongAdder hits, LongAdder misses) {
+
+        CacheCounter() {
+            this(new LongAdder(), new LongAdder());
+        }
+    }
+
+    /**
+     * 单个小时的增量，只在ConcurrentHashMap.compute中修改
+     */
+    private static final class Delta {
+        long total;
+        long success;
+        long failed;
+        long durationSum;
+        long durationMax;
+        long cacheHits;
+        long cacheMisses;
+
+        void add(boolean ok, long duration) {
+            total++;
+            if (ok) {
+                success++;
+            } else {
+                failed++;
+            }
+            durationSum += duration;
+            durationMax = Math.max(durationMax, duration);
+        }
+
+        void merge(Delta other) {
+            total += other.total;
+            success += other.success;
+            failed += other.failed;
+            durationSum += other.durationSum;
+            durationMax = Math.max(durationMax, other.durationMax);
+            cacheHits += other.cacheHits;
+            cacheMisses += other.cacheMisses;
+        }
+    }
+
+    /**
+     * 单个小时的统计结果
+     */
+    public record HourStat(long total, long success, long failed, long cacheHits, long cacheMisses) {
+    }
+
+    public void recordHttpLogs(Collection<HttpRequestLog> logs) {
+        Map<Key, Delta> local = new HashMap<>();
+        for (HttpRequestLog log : logs) {
+            boolean ok = StringUtils.isEmpty(log.getExceptionStack())
+                    && (log.getStatusCode() == null || log.getStatusCode() < 400);
+            addTo(local, StatisticsHourly.CATEGORY_HTTP, log.getRequestTime(), ok, log.getDuration());
+        }
+        mergeAll(local);
+    }
+
+    public void recordThirdPartyLogs(Collection<ThirdPartyHttpLog> logs) {
+        Map<Key, Delta> local = new HashMap<>();
+        for (ThirdPartyHttpLog log : logs) {
+            boolean ok = StringUtils.isEmpty(log.getErrorMessage())
+                    && (log.getResponseStatus() == null || log.getResponseStatus() < 400);
+            addTo(local, StatisticsHourly.CATEGORY_THIRD_PARTY, log.getRequestTime(), ok, log.getDuration());
+        }
+        mergeAll(local);
+    }
+
+    public void recordScheduledLog(ScheduledLog log) {
+        Map<Key, Delta> local = new HashMap<>();
+        LocalDateTime time = log.getTriggerTime() == null ? null
+                : LocalDateTime.ofInstant(log.getTriggerTime().toInstant(), ZoneId.systemDefault());
+        Long duration = log.getDurationMs() == null ? null : log.getDurationMs().longValue();
+        addTo(local, StatisticsHourly.CATEGORY_SCHEDULED, time, "SUCCESS".equals(log.getStatus()), duration);
+        mergeAll(local);
+    }
+
+    /**
+     * 记录一次第三方GET响应缓存的查找结果，计入当前小时的THIRD_PARTY统计
+     *
+     * @param hit 命中缓存或合并到进行中的请求
+     */
+    public void recordResponseCache(boolean hit) {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        CacheCounter counter = cacheCounters.get(hour);
+        if (counter == null) {
+            counter = cacheCounters.computeIfAbsent(hour, h -> new CacheCounter());
+        }
+        (hit ? counter.hits() : counter.misses()).increment();
+    }
+
+    /**
+     * 本实例尚未落库的小时统计，查询时与数据库中的结果相加
+     */
+    public Map<LocalDateTime, HourStat> pendingStats(String category, LocalDateTime from, LocalDateTime to) {
+        Map<LocalDateTime, HourStat> result = new HashMap<>();
+        for (Key key : pending.keySet()) {
+            if (!key.category().equals(category) || key.hour().isBefore(from) || !key.hour().isBefore(to)) {
+                continue;
+            }
+            pending.computeIfPresent(key, (k, delta) -> {
+                result.put(k.hour(), new HourStat(delta.total, delta.success, delta.failed,
+                        delta.cacheHits, delta.cacheMisses));
+                return delta;
+            });
+        }
+        if (StatisticsHourly.CATEGORY_THIRD_PARTY.equals(category)) {
+            cacheCounters.forEach((hour, counter) -> {
+                if (hour.isBefore(from) || !hour.isBefore(to)) {
+                    return;
+                }
+                long hits = counter.hits().sum();
+                long misses = counter.misses().sum();
+                result.merge(hour, new HourStat(0, 0, 0, hits, misses), (a, b) -> new HourStat(a.total(),
+                        a.success(), a.failed(), a.cacheHits() + b.cacheHits(), a.cacheMisses() + b.cacheMisses()));
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 定时把增量合并进小时统计表
+     */
+    @Scheduled(fixedDelayString = "${uniops.statistics.rollup-flush-interval-ms:30000}")
+    @NoManagedJob
+    public void flush() {
+        drainCacheCounters();
+        if (pending.isEmpty()) {
+            return;
+        }
+        SystemRegister local = systemRegisterService.localSystem();
+        if (local == null) {
+            // 还没有注册成功，增量保留到下一次
+            return;
+        }
+        List<Key> keys = new ArrayList<>(pending.keySet());
+        for (Key key : keys) {
+            Delta delta = pending.remove(key);
+            if (delta == null) {
+                continue;
+            }
+            try {
+                StatisticsHourly row = new StatisticsHourly();
+                row.setAppId(local.getId());
+                row.setAppName(systemCondition.getApplicationName());
+                row.setCategory(key.category());
+                row.setStatHour(key.hour());
+                row.setTotalCount(delta.total);
+                row.setSuccessCount(delta.success);
+                row.setFailedCount(delta.failed);
+                row.setDurationSum(delta.durationSum);
+                row.setDurationMax(delta.durationMax);
+                row.setCacheHitCount(delta.cacheHits);
+                row.setCacheMissCount(delta.cacheMisses);
+                row.setUpdatedAt(LocalDateTime.now());
+                // 每个实例只写自己的行，不存在并发插入同一行
+                if (statisticsHourlyMapper.increment(row) == 0) {
+                    statisticsHourlyMapper.insert(row);
+                }
+            } catch (Exception e) {
+                // 写入失败时放回，下次重试
+                pending.merge(key, delta, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                });
+                log.warn("[UniOps] 小时统计写入失败，下次重试: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    /**
+     * 把缓存查找计数并入pending；sumThenReset逐个槽位取走并清零，并发的累加不会丢，只会留到下一次
+     * 已过去的小时在取走后删除，删除前后各取一次，接住删除前最后的累加
+     */
+    private void drainCacheCounters() {
+        LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        Map<Key, Delta> local = new HashMap<>();
+        cacheCounters.forEach((hour, counter) -> {
+            drainInto(local, hour, counter);
+            if (hour.isBefore(currentHour) && cacheCounters.remove(hour, counter)) {
+                drainInto(local, hour, counter);
+            }
+        });
+        mergeAll(local);
+    }
+
+    private void drainInto(Map<Key, Delta> local, LocalDateTime hour, CacheCounter counter) {
+        long hits = counter.hits().sumThenReset();
+        long misses = counter.misses().sumThenReset();
+        if (hits == 0 && misses == 0) {
+            return;
+        }
+        Delta delta = local.computeIfAbsent(new Key(StatisticsHourly.CATEGORY_THIRD_PARTY, hour), k -> new Delta());
+        delta.cacheHits += hits;
+        delta.cacheMisses += misses;
+    }
+
+    private void addTo(Map<Key, Delta> local, String category, LocalDateTime time, boolean ok, Long duration) {
+        LocalDateTime hour = (time != null ? time : LocalDateTime.now()).truncatedTo(ChronoUnit.HOURS);
+        local.computeIfAbsent(new Key(category, hour), k -> new Delta())
+                .add(ok, duration == null ? 0 : Math.max(0, duration));
+    }
+
+    private void mergeAll(Map<Key, Delta> local) {
+        local.forEach((key, delta) -> pending.merge(key, delta, (current, added) -> {
+            current.merge(added);
+            return current;
+        }));
+    }
+}
@@ -0,0 +1,458 @@
+package com.uniops.core.cache;
+
+import com.uniops.core.annotation.NoManagedJob;
+import com.uniops.core.util.LogEntryScanner;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * traceId日志索引管理器
+ * 为每个已滚动的日志文件生成旁路索引文件（.tidx），记录traceId -> 条目偏移和长度；
+ * 当前正在写入的日志文件在内存中增量索引。查询时直接定位条目，不再全量扫描日志
+ *
+ * @author liyang
+ * @since 2026/2/12
+ */
+@Component
+@Slf4j
+public class TraceLogIndexManager {
+
+    /**
+     * logback未取到spring.application.name时日志文件名为application.log
+     */
+    public static final String LOG_FILE_BASE = "application";
+    public static final String CURRENT_LOG_FILE = LOG_FILE_BASE + ".log";
+    public static final String INDEX_SUFFIX = ".tidx";
+
+    /**
+     * 滚动后的日志文件：application.2026-01-30.log 或 application.2026-01-30.0.log
+     */
+    private static final Pattern ROLLED_LOG_PATTERN = Pattern.compile(
+            Pattern.quote(LOG_FILE_BASE) + "\\.\\d{4}-\\d{2}-\\d{2}(\\.\\d+)?\\.log");
+
+    private static final int INDEX_MAGIC = 0x54494458; // "TIDX"
+    private static final int INDEX_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+    private static final int RECORD_SIZE = 8 + 8 + 4;
+
+    @Resource
+    UniOpsProperties uniOpsProperties;
+
+    /**
+     * 当前日志文件的内存索引
+     */
+    private final ActiveSegment activeSegment = new ActiveSegment();
+
+    /**
+     * 日志条目位置
+     */
+    public record EntryLocation(long offset, int length) {
+    }
+
+    /**
+     * 日志目录，和logback-spring.xml中的LOG_HOME保持一致
+     */
+    public File getLogDir() {
+        String configured = uniOpsProperties.getTraceIndex().getLogDir();
+        if (StringUtils.isNotEmpty(configured)) {
+            return new File(configured);
+        }
+        String logPath = System.getProperty("LOG_PATH", System.getenv("LOG_PATH"));
+        if (StringUtils.isNotEmpty(logPath)) {
+            return new File(logPath);
+        }
+        String[] paths = {
+                "logs/",
+                "target/logs/",
+                "src/main/resources/logs/",
+                System.getProperty("user.dir") + "/logs/"
+        };
+        for (String path : paths) {
+            File dir = new File(path);
+            if (dir.isDirectory()) {
+                return dir;
+            }
+        }
+        return new File(paths[0]);
+    }
+
+    public File getCurrentLogFile() {
+        return new File(getLogDir(), CURRENT_LOG_FILE);
+    }
+
+    /**
+     * 已滚动但未压缩的日志文件
+     */
+    public List<File> getRolledLogFiles() {
+        File[] files = getLogDir().listFiles((dir, name) -> ROLLED_LOG_PATTERN.matcher(name).matches());
+        return files == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(files));
+    }
+
+    /**
+     * 定时增量刷新索引
+     */
+    @Scheduled(fixedDelayString = "${uniops.trace-index.refresh-interval-ms:10000}")
+    @NoManagedJob
+    public void refresh() {
+        if (!uniOpsProperties.getTraceIndex().isEnabled()) {
+            return;
+        }
+        try {
+            refreshActiveSegment();
+            List<File> rolledFiles = getRolledLogFiles();
+            for (File logFile : rolledFiles) {
+                File indexFile = indexFileOf(logFile);
+                if (!isIndexValid(logFile, indexFile)) {
+                    buildIndexFile(logFile, indexFile);
+                }
+            }
+            removeOrphanIndexFiles();
+        } catch (Exception e) {
+            log.warn("[UniOps] 刷新traceId日志索引失败", e);
+        }
+    }
+
+    /**
+     * 查找traceId在日志文件中的所有条目
+     *
+     * @return 条目位置；文件没有可用索引时返回null，由调用方退回全量扫描
+     */
+    public List<EntryLocation> locate(File logFile, String traceId) throws IOException {
+        if (!uniOpsProperties.getTraceIndex().isEnabled() || StringUtils.isEmpty(traceId)) {
+            return null;
+        }
+        long hash = LogEntryScanner.hash(traceId);
+        if (CURRENT_LOG_FILE.equals(logFile.getName())) {
+            return activeSegment.locate(logFile, traceId, hash);
+        }
+        File indexFile = indexFileOf(logFile);
+        if (!isIndexValid(logFile, indexFile)) {
+            return null;
+        }
+        return searchIndexFile(indexFile, hash);
+    }
+
+    private File indexFileOf(File logFile) {
+        return new File(logFile.getPath() + INDEX_SUFFIX);
+    }
+
+    private void refreshActiveSegment() throws IOException {
+        File current = getCurrentLogFile();
+        if (current.isFile()) {
+            activeSegment.catchUp(current);
+        }
+    }
+
+    /**
+     * 索引文件头记录了源文件的长度和修改时间，两者一致才认为索引可用
+     */
+    private boolean isIndexValid(File logFile, File indexFile) {
+        if (!indexFile.isFile() || indexFile.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            return header.getInt() == INDEX_MAGIC
+                    && header.getInt() == INDEX_VERSION
+                    && header.getLong() == logFile.length()
+                    && header.getLong() == logFile.lastModified()
+                    && (indexFile.length() - HEADER_SIZE) % RECORD_SIZE == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 全量扫描一个已滚动的日志文件，按traceId哈希排序后写出索引文件
+     */
+    private void buildIndexFile(File logFile, File indexFile) throws IOException {
+        long start = System.currentTimeMillis();
+        long sourceLength = logFile.length();
+        long sourceModified = logFile.lastModified();
+        Postings postings = new Postings();
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            LogEntryScanner.scan(channel, 0, sourceLength, false, (offset, length, traceId) -> {
+                if (traceId != null) {
+                    postings.add(LogEntryScanner.hash(traceId), offset, length);
+                }
+            });
+        }
+        postings.sort();
+
+        File tmpFile = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceModified);
+            for (int i = 0; i < postings.size; i++) {
+                out.writeLong(postings.hashes[i]);
+                out.writeLong(postings.offsets[i]);
+                out.writeInt(postings.lengths[i]);
+            }
+        }
+        Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        log.info("[UniOps] 生成日志索引 {}，{}条，耗时{}ms", indexFile.getName(), postings.size,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 在索引文件上二分查找，只读取命中的记录
+     */
+    private List<EntryLocation> searchIndexFile(File indexFile, long hash) throws IOException {
+        List<EntryLocation> locations = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            long count = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            long low = 0;
+            long high = count;
+            while (low < high) {
+                long mid = (low + high) >>> 1;
+                if (readRecord(channel, record, mid).getLong(0) < hash) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (long i = low; i < count; i++) {
+                ByteBuffer r = readRecord(channel, record, i);
+                if (r.getLong(0) != hash) {
+                    break;
+                }
+                locations.add(new EntryLocation(r.getLong(8), r.getInt(16)));
+            }
+        }
+        return locations;
+    }
+
+    private ByteBuffer readRecord(FileChannel channel, ByteBuffer record, long index) throws IOException {
+        record.clear();
+        long position = HEADER_SIZE + index * RECORD_SIZE;
+        while (record.hasRemaining()) {
+            if (channel.read(record, position + record.position()) < 0) {
+                throw new IOException("索引文件已截断");
+            }
+        }
+        return record;
+    }
+
+    /**
+     * logback按maxHistory删除旧日志后，清理对应的索引文件
+     */
+    private void removeOrphanIndexFiles() {
+        File[] indexFiles = getLogDir().listFiles((dir, name) -> name.endsWith(INDEX_SUFFIX));
+        if (indexFiles == null) {
+            return;
+        }
+        for (File indexFile : indexFiles) {
+            String path = indexFile.getPath();
+            File logFile = new File(path.substring(0, path.length() - INDEX_SUFFIX.length()));
+            if (!logFile.exists() && !indexFile.delete()) {
+                log.debug("[UniOps] 删除过期日志索引失败: {}", indexFile.getName());
+            }
+        }
+    }
+
+    /**
+     * 当前日志文件的内存索引，按写入顺序追加
+     * 每个traceId记录最后一条的下标，条目之间用previous串成链，查询只访问命中的条目
+     */
+    private static class ActiveSegment {
+        private Object fileKey;
+        private long indexedPosition;
+        private Postings postings = new Postings();
+        private int[] previous = new int[1024];
+        private Map<Long, Integer> lastByHash = new HashMap<>();
+
+        /**
+         * 增量索引新写入的完整条目；文件被滚动（重建）后从头开始
+         */
+        void catchUp(File logFile) throws IOException {
+            Object key = fileKeyOf(logFile);
+            long from;
+            synchronized (this) {
+                if (!Objects.equals(key, fileKey) || logFile.length() < indexedPosition) {
+                    fileKey = key;
+                    indexedPosition = 0;
+                    postings = new Postings();
+                    previous = new int[1024];
+                    lastByHash = new HashMap<>();
+                }
+                from = indexedPosition;
+            }
+            Postings appended = new Postings();
+            long position;
+            try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+                position = LogEntryScanner.scan(channel, from, channel.size(), true, (offset, length, traceId) -> {
+                    if (traceId != null) {
+                        appended.add(LogEntryScanner.hash(traceId), offset, length);
+                    }
+                });
+            }
+            synchronized (this) {
+                if (Objects.equals(key, fileKey) && indexedPosition == from) {
+                    append(appended);
+                    indexedPosition = position;
+                }
+            }
+        }
+
+        /**
+         * 已索引部分查内存，尚未索引的尾部直接扫描
+         */
+        List<EntryLocation> locate(File logFile, String traceId, long hash) throws IOException {
+            Object key = fileKeyOf(logFile);
+            List<EntryLocation> locations = new ArrayList<>();
+            long tailFrom;
+            synchronized (this) {
+                if (!Objects.equals(key, fileKey) || logFile.length() < indexedPosition) {
+                    return null;
+                }
+                Integer last = lastByHash.get(hash);
+                for (int i = last == null ? -1 : last; i >= 0; i = previous[i]) {
+                    locations.add(new EntryLocation(postings.offsets[i], postings.lengths[i]));
+                }
+                // 链表从后往前，恢复文件顺序
+                Collections.reverse(locations);
+                tailFrom = indexedPosition;
+            }
+            try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+                LogEntryScanner.scan(channel, tailFrom, channel.size(), false, (offset, length, entryTraceId) -> {
+                    if (traceId.equals(entryTraceId)) {
+                        locations.add(new EntryLocation(offset, length));
+                    }
+                });
+            }
+            return locations;
+        }
+
+        /**
+         * 调用方持有锁
+         */
+        private void append(Postings appended) {
+            for (int j = 0; j < appended.size; j++) {
+                int index = postings.size;
+                long hash = appended.hashes[j];
+                postings.add(hash, appended.offsets[j], appended.lengths[j]);
+                if (index == previous.length) {
+                    previous = Arrays.copyOf(previous, index * 2);
+                }
+                Integer last = lastByHash.put(hash, index);
+                previous[index] = last == null ? -1 : last;
+            }
+        }
+
+        private static Object fileKeyOf(File file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            // Windows下没有fileKey，用创建时间区分滚动前后的文件
+            return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+        }
+    }
+
+    /**
+     * 索引记录的列式存储，避免每条记录一个对象
+     */
+    private static class Postings {
+        long[] hashes = new long[1024];
+        long[] offsets = new long[1024];
+        int[] lengths = new int[1024];
+        int size;
+
+        void add(long hash, long offset, int length) {
+            if (size == hashes.length) {
+                int capacity = size * 2;
+                hashes = Arrays.copyOf(hashes, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            hashes[size] = hash;
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+        }
+
+        /**
+         * 按(hash, offset)排序，同一traceId的条目保持文件顺序
+         */
+        void sort() {
+            quickSort(0, size - 1);
+        }
+
+        private void quickSort(int low, int high) {
+            while (high - low > 16) {
+                int mid = (low + high) >>> 1;
+                long pivotHash = hashes[mid];
+                long pivotOffset = offsets[mid];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (compare(i, pivotHash, pivotOffset) < 0) {
+                        i++;
+                    }
+                    while (compare(j, pivotHash, pivotOffset) > 0) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                // 先递归较小的一边，控制栈深度
+                if (j - low < high - i) {
+                    quickSort(low, j);
+                    low = i;
+                } else {
+                    quickSort(i, high);
+                    high = j;
+                }
+            }
+            for (int i = low + 1; i <= high; i++) {
+                for (int j = i; j > low && compare(j - 1, hashes[j], offsets[j]) > 0; j--) {
+                    swap(j - 1, j);
+                }
+            }
+        }
+
+        private int compare(int index, long hash, long offset) {
+            int c = Long.compare(hashes[index], hash);
+            return c != 0 ? c : Long.compare(offsets[index], offset);
+        }
+
+        private void swap(int a, int b) {
+            long h = hashes[a];
+            hashes[a] = hashes[b];
+            hashes[b] = h;
+            long o = offsets[a];
+            offsets[a] = offsets[b];
+            offsets[b] = o;
+            int l = lengths[a];
+            lengths[a] = lengths[b];
+            lengths[b] = l;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 // src/main/java/com/uniops/core/config/AuthConfig.java
 package com.uniops.core.config;
 
+import com.uniops.core.cache.SessionAccessTracker;
 import com.uniops.core.cache.SessionCacheManager;
 import com.uniops.core.service.IUserSessionService;
 import com.uniops.core.util.AuthConstants;
@@ -20,10 +21,14 @@ public class AuthConfig {
     @Autowired
     private SessionCacheManager sessionCacheManager;
 
+    @Autowired
+    private SessionAccessTracker sessionAccessTracker;
+
     @PostConstruct
     public void initAuthConstants() {
         // 初始化认证常量类的服务引用
         AuthConstants.setUserSessionService(userSessionService);
         AuthConstants.setSessionCacheManager(sessionCacheManager);
+        AuthConstants.setSessionAccessTracker(sessionAccessTracker);
     }
 }
@@ -22,6 +22,7 @@ import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 通用实体管理Controller
@@ -79,10 +80,15 @@ public class GenericEntityController {
         int pageSize = condition.getSize();
         Map<String, Object> conditions = condition.getConditions();
 
-        // 构建查询条件
+        // 构建查询条件，压缩存储的列无法模糊匹配，表头中标记为不可查询，这里忽略
+        Set<String> compressedColumns = genericEntityService.getCompressedColumns(entityName);
         QueryWrapper<Object> queryWrapper = new QueryWrapper<>();
         for (Map.Entry<String, Object> entry : conditions.entrySet()) {
             if (entry.getValue() != null && !entry.getValue().toString().isEmpty()) {
+                if (compressedColumns.contains(entry.getKey())) {
+                    log.debug("[UniOps] {}.{}为压缩存储的列，忽略查询条件", entityName, entry.getKey());
+                    continue;
+                }
                 queryWrapper.like(entry.getKey(), entry.getValue());
             }
         }
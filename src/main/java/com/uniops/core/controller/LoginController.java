@@ -1,21 +1,26 @@
 // src/main/java/com/uniops/core/controller/LoginController.java
 package com.uniops.core.controller;
 
+import com.uniops.core.cache.SessionInvalidationBroadcaster;
 import com.uniops.core.condition.AuthCondition;
 import com.uniops.core.response.ResponseResult;
 import com.uniops.core.util.AuthConstants;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/auth")
 @Tag(name = "认证管理", description = "用户认证和会话管理")
 public class LoginController {
+    @Resource
+    SessionInvalidationBroadcaster sessionInvalidationBroadcaster;
 
     @PostMapping("/login")
     @Operation(summary = "用户登录", description = "用户登录并获取会话令牌")
@@ -54,4 +59,11 @@ public class LoginController {
         AuthConstants.logoutSession(sessionToken);
         return ResponseResult.success("注销成功");
     }
+
+    @PostMapping("/session-invalidated")
+    @Operation(summary = "接收会话失效通知", description = "其他实例注销或挤掉会话时推送，只清除本地会话缓存")
+    public ResponseResult<String> sessionInvalidated(@RequestBody Map<String, List<String>> request) {
+        sessionInvalidationBroadcaster.receive(request.get("tokens"));
+        return ResponseResult.success("ok");
+    }
 }
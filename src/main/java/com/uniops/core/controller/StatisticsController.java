@@ -5,6 +5,12 @@ import com.uniops.core.entity.StatisticsHour;
 import com.uniops.core.entity.StatisticsMes;
 import com.uniops.core.response.ResponseResult;
 import com.uniops.core.service.IStatisticsService;
+import com.uniops.core.vo.CircuitBreakerStatsVO;
+import com.uniops.core.vo.LicenseCacheStatsVO;
+import com.uniops.core.vo.LogRetentionStatsVO;
+import com.uniops.core.vo.LatencyPercentileVO;
+import com.uniops.core.vo.LiveMetricVO;
+import com.uniops.core.vo.SessionCacheStatsVO;
 import com.uniops.core.vo.StatisticsVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -57,4 +63,55 @@ public class StatisticsController {
     public ResponseResult<List<StatisticsHour>> getTodayHourlyThirdPartyCallStats() {
         return ResponseResult.success(statisticsService.getTodayHourlyThirdPartyCallStats());
     }
+
+    @GetMapping("/live/today")
+    @Operation(summary = "获取今日实时指标", description = "按接口路径/任务/第三方名称统计今日调用次数、平均/最大耗时和p50/p95/p99，category取HTTP/SCHEDULED/THIRD_PARTY")
+    public ResponseResult<List<LiveMetricVO>> getLiveTodayMetrics(@RequestParam(defaultValue = "HTTP") String category) {
+        return ResponseResult.success(statisticsService.getLiveTodayMetrics(category));
+    }
+
+    @GetMapping("/live/recent")
+    @Operation(summary = "获取最近N分钟实时指标", description = "按接口路径/任务/第三方名称统计最近N分钟（最多60）调用次数和耗时")
+    public ResponseResult<List<LiveMetricVO>> getLiveRecentMetrics(@RequestParam(defaultValue = "HTTP") String category,
+                                                                   @RequestParam(defaultValue = "5") int minutes) {
+        return ResponseResult.success(statisticsService.getLiveRecentMetrics(category, minutes));
+    }
+
+    @GetMapping("/latency/recent")
+    @Operation(summary = "获取最近N分钟耗时百分位", description = "按接口路径/第三方名称统计p50/p95/p99，category取HTTP/THIRD_PARTY，按p95倒序")
+    public ResponseResult<List<LatencyPercentileVO>> getRecentLatencyPercentiles(@RequestParam(defaultValue = "HTTP") String category,
+                                                                                 @RequestParam(defaultValue = "5") int minutes) {
+        return ResponseResult.success(statisticsService.getRecentLatencyPercentiles(category, minutes));
+    }
+
+    @GetMapping("/latency/hourly")
+    @Operation(summary = "获取最近N小时耗时百分位", description = "合并本应用所有实例的小时直方图后计算p50/p95/p99，按p95倒序")
+    public ResponseResult<List<LatencyPercentileVO>> getHourlyLatencyPercentiles(@RequestParam(defaultValue = "HTTP") String category,
+                                                                                 @RequestParam(defaultValue = "24") int hours) {
+        return ResponseResult.success(statisticsService.getHourlyLatencyPercentiles(category, hours));
+    }
+
+    @GetMapping("/session-cache")
+    @Operation(summary = "获取会话缓存统计", description = "本实例会话缓存的条数、命中率和淘汰次数")
+    public ResponseResult<SessionCacheStatsVO> getSessionCacheStats() {
+        return ResponseResult.success(statisticsService.getSessionCacheStats());
+    }
+
+    @GetMapping("/license-cache")
+    @Operation(summary = "获取授权缓存统计", description = "本实例授权缓存的条数、命中和过期次数")
+    public ResponseResult<LicenseCacheStatsVO> getLicenseCacheStats() {
+        return ResponseResult.success(statisticsService.getLicenseCacheStats());
+    }
+
+    @GetMapping("/circuit-breakers")
+    @Operation(summary = "获取第三方调用熔断状态", description = "本实例各第三方的熔断状态、窗口失败率、并发数和拒绝次数")
+    public ResponseResult<List<CircuitBreakerStatsVO>> getCircuitBreakerStats() {
+        return ResponseResult.success(statisticsService.getCircuitBreakerStats());
+    }
+
+    @GetMapping("/log-retention")
+    @Operation(summary = "获取日志保留清理情况", description = "各日志表的保留天数、上次清理时间、删除行数和是否有未完成的清理")
+    public ResponseResult<List<LogRetentionStatsVO>> getLogRetentionStats() {
+        return ResponseResult.success(statisticsService.getLogRetentionStats());
+    }
 }
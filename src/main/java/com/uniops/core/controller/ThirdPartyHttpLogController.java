@@ -7,6 +7,7 @@ import com.uniops.core.condition.ThirdPartyLogCondition;
 import com.uniops.core.entity.ThirdPartyHttpLog;
 import com.uniops.core.response.ResponseResult;
 import com.uniops.core.service.ThirdPartyHttpLogService;
+import com.uniops.core.vo.ResponseCacheStatsVO;
 import com.uniops.core.vo.ThirdPartyHttpLogVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -15,6 +16,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @RestController
 @RequestMapping("/business/third-party-http-log")
@@ -57,6 +59,12 @@ public class ThirdPartyHttpLogController {
         return ResponseResult.success(result);
     }
 
+    @GetMapping("/cache-stats")
+    @Operation(summary = "获取响应缓存统计", description = "本实例各第三方GET响应缓存的命中、未命中和合并请求次数")
+    public ResponseResult<List<ResponseCacheStatsVO>> getResponseCacheStats() {
+        return ResponseResult.success(thirdPartyHttpLogService.getResponseCacheStats());
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "获取单条日志详情", description = "根据ID获取第三方HTTP调用日志详情")
     public ResponseResult<ThirdPartyHttpLog> getLogDetail(@PathVariable Long id) {
@@ -6,12 +6,13 @@ import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.uniops.core.annotation.ManageEntity;
+import com.uniops.core.util.CompressedTextTypeHandler;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 
 @Data
-@TableName("uniops_http_request_log")
+@TableName(value = "uniops_http_request_log", autoResultMap = true)
 @ManageEntity(value = "uniops_http_request_log", tableName = "uniops_http_request_log", primaryKey = "id")
 public class HttpRequestLog {
 
@@ -23,13 +24,13 @@ public class HttpRequestLog {
     @TableField("app_id")//外键，绑定uniops_system_register的id，这样才能获取到属于本机的日志
     private Long appId;
 
-    @TableField("request_params")
+    @TableField(value = "request_params", typeHandler = CompressedTextTypeHandler.class)
     private String requestParams;     // 请求参数
 
     @TableField("request_time")
     private LocalDateTime requestTime; // 请求时间
 
-    @TableField("response_message")
+    @TableField(value = "response_message", typeHandler = CompressedTextTypeHandler.class)
     private String responseMessage;   // 响应消息
 
     @TableField("response_time")
@@ -38,7 +39,7 @@ public class HttpRequestLog {
     @TableField("duration")
     private Long duration;            // 耗时（毫秒）
 
-    @TableField("exception_stack")
+    @TableField(value = "exception_stack", typeHandler = CompressedTextTypeHandler.class)
     private String exceptionStack;    // 异常栈
 
     @TableField("http_method")
@@ -54,4 +55,8 @@ public class HttpRequestLog {
     private Integer statusCode;       // 响应状态码
     @TableField("log_trace_id")
     private String logTraceId;       // 日志追踪ID
+    @TableField("span_id")
+    private String spanId;           // 本次请求的spanId
+    @TableField("parent_span_id")
+    private String parentSpanId;     // 上游调用方的spanId，由traceparent请求头传入
 }
@@ -0,0 +1,60 @@
+package com.uniops.core.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 按小时保存的耗时直方图
+ * 每个实例、每个接口路径/第三方、每小时一行，直方图以稀疏编码保存，多行可以直接合并后再求百分位
+ *
+ * @author liyang
+ * @since 2026/2/15
+ */
+@Data
+@TableName("uniops_latency_hourly")
+public class LatencyHourly {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    @TableField("app_id")
+    private Long appId;                 // uniops_system_register的id
+
+    @TableField("app_name")
+    private String appName;             // spring.application.name
+
+    @TableField("category")
+    private String category;            // HTTP/THIRD_PARTY
+
+    @TableField("name")
+    private String name;                // 接口路径或第三方名称
+
+    @TableField("stat_hour")
+    private LocalDateTime statHour;     // 整点时间
+
+    @TableField("total_count")
+    private Long totalCount;
+
+    @TableField("max_value")
+    private Long maxValue;              // 最大耗时（毫秒）
+
+    @TableField("p50")
+    private Long p50;
+
+    @TableField("p95")
+    private Long p95;
+
+    @TableField("p99")
+    private Long p99;
+
+    @TableField("histogram")
+    private String histogram;           // LatencyHistogram.Snapshot编码
+
+    @TableField("created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,40 @@
+package com.uniops.core.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 会话失效记录
+ * 注销、重新登录、过期清理时写入，各实例按id增量拉取并清除本地会话缓存
+ *
+ * @author liyang
+ * @since 2026/2/16
+ */
+@Data
+@TableName("uniops_session_invalidation")
+public class SessionInvalidation {
+
+    public static final String REASON_LOGOUT = "LOGOUT";
+    public static final String REASON_RELOGIN = "RELOGIN";
+    public static final String REASON_EXPIRED = "EXPIRED";
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    @TableField("session_token")
+    private String sessionToken;
+
+    @TableField("reason")
+    private String reason;              // LOGOUT/RELOGIN/EXPIRED
+
+    @TableField("app_name")
+    private String appName;             // 发起失效的应用
+
+    @TableField("created_at")
+    private LocalDateTime createdAt;
+}
@@ -15,4 +15,6 @@ public class StatisticsHour {
     private long successCount;
     private long failedCount;
     private long total;
+    private long cacheHitCount;     // 第三方调用：响应缓存命中次数
+    private long cacheMissCount;    // 第三方调用：响应缓存未命中次数
 }
@@ -0,0 +1,64 @@
+package com.uniops.core.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 按小时预聚合的统计数据
+ * 每个应用实例、每类日志、每小时一行，仪表盘直接读取，不再对日志表做分组统计
+ *
+ * @author liyang
+ * @since 2026/2/14
+ */
+@Data
+@TableName("uniops_statistics_hourly")
+public class StatisticsHourly {
+
+    public static final String CATEGORY_HTTP = "HTTP";
+    public static final String CATEGORY_SCHEDULED = "SCHEDULED";
+    public static final String CATEGORY_THIRD_PARTY = "THIRD_PARTY";
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    @TableField("app_id")
+    private Long appId;                 // uniops_system_register的id
+
+    @TableField("app_name")
+    private String appName;             // spring.application.name
+
+    @TableField("category")
+    private String category;            // HTTP/SCHEDULED/THIRD_PARTY
+
+    @TableField("stat_hour")
+    private LocalDateTime statHour;     // 整点时间
+
+    @TableField("total_count")
+    private Long totalCount;
+
+    @TableField("success_count")
+    private Long successCount;
+
+    @TableField("failed_count")
+    private Long failedCount;
+
+    @TableField("duration_sum")
+    private Long durationSum;           // 耗时合计（毫秒）
+
+    @TableField("duration_max")
+    private Long durationMax;           // 最大耗时（毫秒）
+
+    @TableField("cache_hit_count")
+    private Long cacheHitCount;         // THIRD_PARTY：响应缓存命中（含合并）次数，命中的调用不写调用日志
+
+    @TableField("cache_miss_count")
+    private Long cacheMissCount;        // THIRD_PARTY：响应缓存未命中次数
+
+    @TableField("updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -86,6 +86,11 @@ public class SystemRegister {
      */
     @TableField("other_web_path")
     private String otherWebPath;
+    /**
+     * 租用的traceId节点ID（0-1023），在线实例之间唯一，正常下线时释放，心跳超时后可被其他实例收回
+     */
+    @TableField("node_id")
+    private Integer nodeId;
 
 
     @TableField(exist = false)
@@ -6,12 +6,13 @@ import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.uniops.core.annotation.ManageEntity;
+import com.uniops.core.util.CompressedTextTypeHandler;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 
 @Data
-@TableName("uniops_third_party_http_log")
+@TableName(value = "uniops_third_party_http_log", autoResultMap = true)
 @ManageEntity(value = "uniops_third_party_http_log", tableName = "uniops_third_party_http_log", primaryKey = "id")
 public class ThirdPartyHttpLog {
 
@@ -29,10 +30,10 @@ public class ThirdPartyHttpLog {
     @TableField("request_headers")
     private String requestHeaders;                // 请求头
 
-    @TableField("request_params")
+    @TableField(value = "request_params", typeHandler = CompressedTextTypeHandler.class)
     private String requestParams;                 // 请求参数
 
-    @TableField("request_body")
+    @TableField(value = "request_body", typeHandler = CompressedTextTypeHandler.class)
     private String requestBody;                   // 请求体
 
     @TableField("response_status")
@@ -41,7 +42,7 @@ public class ThirdPartyHttpLog {
     @TableField("response_headers")
     private String responseHeaders;               // 响应头
 
-    @TableField("response_body")
+    @TableField(value = "response_body", typeHandler = CompressedTextTypeHandler.class)
     private String responseBody;                  // 响应体
 
     @TableField("request_time")
@@ -66,4 +67,8 @@ public class ThirdPartyHttpLog {
     private LocalDateTime updatedAt;             // 更新时间
     @TableField("log_trace_id")
     private String logTraceId;                  // 日志追踪ID
+    @TableField("span_id")
+    private String spanId;                      // 本次调用的spanId，随traceparent传给下游
+    @TableField("parent_span_id")
+    private String parentSpanId;                // 发起调用的请求/任务的spanId
 }
@@ -14,4 +14,5 @@ public class UniEntity {
     private String columnType;
     private Boolean primaryKey;
     private String primaryType;
+    private Boolean searchable;     // 是否支持按该列模糊查询，压缩存储的列不支持
 }
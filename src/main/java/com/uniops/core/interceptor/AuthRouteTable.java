@@ -0,0 +1,147 @@
+package com.uniops.core.interceptor;
+
+import com.uniops.core.annotation.RequiresAuth;
+import com.uniops.core.util.PathPrefixTrie;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 接口认证决策表
+ * 启动后从RequestMappingHandlerMapping读取全部控制器方法，预先算好每个方法是否需要登录，
+ * 路径前缀编译成字典树，请求时只做查表
+ *
+ * @author liyang
+ * @since 2026/2/17
+ */
+@Component
+@Slf4j
+public class AuthRouteTable implements ApplicationListener<ContextRefreshedEvent> {
+
+    /**
+     * 不需要拦截的路径前缀（已去掉servlet路径）
+     */
+    private static final List<String> PUBLIC_PREFIXES = List.of(
+            "/auth", "/api-docs", "/webjars", "/swagger", "/system", "/index.html");
+
+    /**
+     * 路径中包含这些内容的视为静态资源，".htm"同时覆盖".html"
+     */
+    private static final String[] STATIC_MARKERS = {".htm", ".css", ".js"};
+
+    /**
+     * 始终需要登录的路径前缀
+     */
+    private static final String UNIOPS_PREFIX = "/uniops";
+
+    @Resource
+    UniOpsProperties uniOpsProperties;
+
+    /**
+     * 控制器方法 -> 认证决策
+     */
+    private final Map<Method, Decision> decisions = new ConcurrentHashMap<>();
+
+    private final PathPrefixTrie publicPrefixes = PathPrefixTrie.of(PUBLIC_PREFIXES);
+
+    private volatile PathPrefixTrie authPrefixes = PathPrefixTrie.of(List.of(UNIOPS_PREFIX));
+
+    /**
+     * @param beanType 同一个方法可能被多个子类控制器继承，决策和类型一起保存
+     */
+    private record Decision(Class<?> beanType, boolean requiresAuth) {
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        List<String> prefixes = new ArrayList<>();
+        prefixes.add(UNIOPS_PREFIX);
+        if (uniOpsProperties.getIncludeAuthPathPrefixes() != null) {
+            prefixes.addAll(uniOpsProperties.getIncludeAuthPathPrefixes());
+        }
+        authPrefixes = PathPrefixTrie.of(prefixes);
+
+        int count = 0;
+        for (RequestMappingHandlerMapping mapping :
+                event.getApplicationContext().getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : mapping.getHandlerMethods().entrySet()) {
+                HandlerMethod handlerMethod = entry.getValue();
+                decisions.put(handlerMethod.getMethod(),
+                        new Decision(handlerMethod.getBeanType(), decide(handlerMethod.getBeanType(), handlerMethod.getMethod())));
+                count++;
+            }
+        }
+        log.info("[UniOps] 接口认证决策表已构建，共{}个接口", count);
+    }
+
+    /**
+     * 是否为不需要拦截的公共路径或静态资源
+     *
+     * @param from 去掉servlet路径后的起始位置
+     */
+    public boolean isPublic(String uri, int from) {
+        if (publicPrefixes.matches(uri, from)) {
+            return true;
+        }
+        for (String marker : STATIC_MARKERS) {
+            if (uri.indexOf(marker, from) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否需要登录
+     *
+     * @param from 去掉servlet路径后的起始位置
+     */
+    public boolean requiresAuth(Object handler, String uri, int from) {
+        if (handler instanceof HandlerMethod handlerMethod && requiresAuth(handlerMethod)) {
+            return true;
+        }
+        return authPrefixes.matches(uri, from);
+    }
+
+    private boolean requiresAuth(HandlerMethod handlerMethod) {
+        Class<?> beanType = handlerMethod.getBeanType();
+        Decision decision = decisions.get(handlerMethod.getMethod());
+        if (decision != null && decision.beanType() == beanType) {
+            return decision.requiresAuth();
+        }
+        // 启动后动态注册的接口，或继承同一方法的另一个控制器
+        boolean requiresAuth = decide(beanType, handlerMethod.getMethod());
+        if (decision == null) {
+            decisions.put(handlerMethod.getMethod(), new Decision(beanType, requiresAuth));
+        }
+        return requiresAuth;
+    }
+
+    /**
+     * 方法或类上有@RequiresAuth，或者是本项目的控制器
+     */
+    private static boolean decide(Class<?> beanType, Method method) {
+        RequiresAuth methodAnnotation = AnnotatedElementUtils.findMergedAnnotation(method, RequiresAuth.class);
+        if (methodAnnotation != null && methodAnnotation.required()) {
+            return true;
+        }
+        RequiresAuth classAnnotation = beanType.getAnnotation(RequiresAuth.class);
+        if (classAnnotation != null && classAnnotation.required()) {
+            return true;
+        }
+        return beanType.getPackage() != null && beanType.getPackage().getName().startsWith("com.uniops");
+    }
+}
@@ -4,7 +4,42 @@ package com.uniops.core.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.uniops.core.entity.HttpRequestLog;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 @Mapper
 public interface HttpRequestLogMapper extends BaseMapper<HttpRequestLog> {
+
+    @Select("SELECT ISNULL(MAX(id), 0) FROM uniops_http_request_log")
+    long selectMaxId();
+
+    /**
+     * 按id顺序取还有未压缩大字段的行，返回原始内容（不经过压缩处理器）
+     *
+     * @param minBytes 字段字节数达到该值才需要压缩
+     */
+    @Select("SELECT TOP (#{limit}) id, request_params, response_message, exception_stack FROM uniops_http_request_log " +
+            "WHERE id > #{afterId} AND id <= #{maxId} AND (" +
+            "(DATALENGTH(request_params) >= #{minBytes} AND request_params NOT LIKE '~z1:%') OR " +
+            "(DATALENGTH(response_message) >= #{minBytes} AND response_message NOT LIKE '~z1:%') OR " +
+            "(DATALENGTH(exception_stack) >= #{minBytes} AND exception_stack NOT LIKE '~z1:%')) ORDER BY id")
+    List<HttpRequestLog> selectUncompressed(@Param("afterId") long afterId, @Param("maxId") long maxId,
+                                            @Param("minBytes") int minBytes, @Param("limit") int limit);
+
+    /**
+     * 写回已压缩的字段，只更新不为null的字段
+     */
+    @Update({"<script>",
+            "UPDATE uniops_http_request_log",
+            "<set>",
+            "<if test='requestParams != null'>request_params = #{requestParams},</if>",
+            "<if test='responseMessage != null'>response_message = #{responseMessage},</if>",
+            "<if test='exceptionStack != null'>exception_stack = #{exceptionStack},</if>",
+            "</set>",
+            "WHERE id = #{id}",
+            "</script>"})
+    int updateCompressed(HttpRequestLog row);
 }
@@ -0,0 +1,9 @@
+package com.uniops.core.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.uniops.core.entity.LatencyHourly;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface LatencyHourlyMapper extends BaseMapper<LatencyHourly> {
+}
@@ -0,0 +1,74 @@
+package com.uniops.core.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 日志保留清理，按id分批删除
+ * 表名和列名只来自LogRetentionManager中的常量，不接收外部输入
+ */
+@Mapper
+public interface LogRetentionMapper {
+
+    /**
+     * 过期条件：id在(cursor, maxId]内、时间早于cutoff，再按应用过滤
+     * byRegister为true时应用列是app_id，按uniops_system_register.system_id换算；否则应用列直接存应用名。
+     * appId只用于byRegister的表，限定为某一个实例的日志
+     */
+    String EXPIRED_CONDITION =
+            "WHERE id &gt; #{cursor} AND id &lt;= #{maxId} AND ${timeColumn} &lt;= #{cutoff}" +
+            "<if test='byRegister and appId != null'> AND ${appColumn} = #{appId}</if>" +
+            "<if test='includeApps != null and includeApps.size() > 0'>" +
+            "<choose><when test='byRegister'>" +
+            " AND ${appColumn} IN (SELECT id FROM uniops_system_register WHERE system_id IN " +
+            "<foreach collection='includeApps' item='app' open='(' separator=',' close=')'>#{app}</foreach>)" +
+            "</when><otherwise>" +
+            " AND ${appColumn} IN <foreach collection='includeApps' item='app' open='(' separator=',' close=')'>#{app}</foreach>" +
+            "</otherwise></choose></if>" +
+            "<if test='excludeApps != null and excludeApps.size() > 0'>" +
+            "<choose><when test='byRegister'>" +
+            " AND (${appColumn} IS NULL OR ${appColumn} NOT IN (SELECT id FROM uniops_system_register WHERE system_id IN " +
+            "<foreach collection='excludeApps' item='app' open='(' separator=',' close=')'>#{app}</foreach>))" +
+            "</when><otherwise>" +
+            " AND (${appColumn} IS NULL OR ${appColumn} NOT IN " +
+            "<foreach collection='excludeApps' item='app' open='(' separator=',' close=')'>#{app}</foreach>)" +
+            "</otherwise></choose></if>";
+
+    @Select("SELECT ISNULL(MAX(id), 0) FROM ${table}")
+    long selectMaxId(@Param("table") String table);
+
+    /**
+     * 时间晚于cutoff的第一行的id，走时间列上的索引只读一行；没有这样的行时返回null
+     */
+    @Select("SELECT TOP 1 id FROM ${table} WHERE ${timeColumn} > #{cutoff} ORDER BY ${timeColumn}, id")
+    Long selectFirstRetainedId(@Param("table") String table, @Param("timeColumn") String timeColumn,
+                               @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * 本批要删除的最后一个id：按id顺序取前limit条过期行中最大的id，没有过期行时返回null
+     */
+    @Select("<script>SELECT MAX(id) FROM (SELECT TOP (#{limit}) id FROM ${table} " + EXPIRED_CONDITION +
+            " ORDER BY id) batch</script>")
+    Long selectBatchEndId(@Param("table") String table, @Param("timeColumn") String timeColumn,
+                          @Param("appColumn") String appColumn, @Param("byRegister") boolean byRegister,
+                          @Param("cursor") long cursor, @Param("maxId") long maxId,
+                          @Param("cutoff") LocalDateTime cutoff,
+                          @Param("appId") Long appId,
+                          @Param("includeApps") List<String> includeApps, @Param("excludeApps") List<String> excludeApps,
+                          @Param("limit") int limit);
+
+    /**
+     * 删除(cursor, maxId]内的过期行，maxId传本批的最后一个id
+     */
+    @Delete("<script>DELETE FROM ${table} " + EXPIRED_CONDITION + "</script>")
+    int deleteExpired(@Param("table") String table, @Param("timeColumn") String timeColumn,
+                      @Param("appColumn") String appColumn, @Param("byRegister") boolean byRegister,
+                      @Param("cursor") long cursor, @Param("maxId") long maxId,
+                      @Param("cutoff") LocalDateTime cutoff, @Param("appId") Long appId,
+                      @Param("includeApps") List<String> includeApps, @Param("excludeApps") List<String> excludeApps);
+}
@@ -0,0 +1,49 @@
+package com.uniops.core.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.uniops.core.entity.SessionInvalidation;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface SessionInvalidationMapper extends BaseMapper<SessionInvalidation> {
+
+    /**
+     * 多行插入，每条3个参数，调用方需控制每批条数
+     * created_at取数据库时间，和selectRecent的时间窗口使用同一个时钟
+     */
+    @Insert({"<script>",
+            "INSERT INTO uniops_session_invalidation (session_token, reason, app_name, created_at) VALUES",
+            "<foreach collection='list' item='item' separator=','>",
+            "(#{item.sessionToken}, #{item.reason}, #{item.appName}, SYSDATETIME())",
+            "</foreach>",
+            "</script>"})
+    int insertBatch(@Param("list") List<SessionInvalidation> list);
+
+    @Select("SELECT ISNULL(MAX(id), 0) FROM uniops_session_invalidation")
+    long selectMaxId();
+
+    /**
+     * 按id增量拉取
+     */
+    @Select("SELECT TOP (#{limit}) id, session_token FROM uniops_session_invalidation WHERE id > #{lastId} ORDER BY id")
+    List<SessionInvalidation> selectAfter(@Param("lastId") long lastId, @Param("limit") int limit);
+
+    /**
+     * 重新读取最近overlapMs内写入、id在(fromId, lastId]内的记录，补上晚于更大id提交的记录
+     */
+    @Select("SELECT TOP (#{limit}) id, session_token FROM uniops_session_invalidation " +
+            "WHERE id > #{fromId} AND id <= #{lastId} AND created_at >= DATEADD(millisecond, -#{overlapMs}, SYSDATETIME()) " +
+            "ORDER BY id")
+    List<SessionInvalidation> selectRecent(@Param("fromId") long fromId, @Param("lastId") long lastId,
+                                           @Param("overlapMs") int overlapMs, @Param("limit") int limit);
+
+    @Delete("DELETE FROM uniops_session_invalidation WHERE created_at < #{before}")
+    int deleteBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,27 @@
+package com.uniops.core.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.uniops.core.entity.StatisticsHourly;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Update;
+
+@Mapper
+public interface StatisticsHourlyMapper extends BaseMapper<StatisticsHourly> {
+
+    /**
+     * 在已有的小时数据上累加增量
+     *
+     * @return 受影响行数，为0说明该小时还没有数据，需要插入
+     */
+    @Update({"UPDATE uniops_statistics_hourly SET",
+            "total_count = total_count + #{totalCount},",
+            "success_count = success_count + #{successCount},",
+            "failed_count = failed_count + #{failedCount},",
+            "duration_sum = duration_sum + #{durationSum},",
+            "duration_max = CASE WHEN duration_max < #{durationMax} THEN #{durationMax} ELSE duration_max END,",
+            "cache_hit_count = cache_hit_count + #{cacheHitCount},",
+            "cache_miss_count = cache_miss_count + #{cacheMissCount},",
+            "updated_at = #{updatedAt}",
+            "WHERE app_id = #{appId} AND category = #{category} AND stat_hour = #{statHour}"})
+    int increment(StatisticsHourly delta);
+}
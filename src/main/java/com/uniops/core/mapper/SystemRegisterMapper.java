@@ -1,8 +1,39 @@
 package com.uniops.core.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
-import com.uniops.core.entity.ScheduledConfig;
 import com.uniops.core.entity.SystemRegister;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Date;
+import java.util.List;
 
 public interface SystemRegisterMapper extends BaseMapper<SystemRegister> {
+
+    /**
+     * 收回心跳超时实例占用的traceId节点ID
+     */
+    @Update("UPDATE uniops_system_register SET node_id = NULL WHERE node_id IS NOT NULL AND id <> #{id} " +
+            "AND (last_online_time IS NULL OR last_online_time < #{staleBefore})")
+    int releaseStaleNodeIds(@Param("id") long id, @Param("staleBefore") Date staleBefore);
+
+    @Select("SELECT node_id FROM uniops_system_register WHERE node_id IS NOT NULL AND id <> #{id}")
+    List<Integer> selectLeasedNodeIds(@Param("id") long id);
+
+    @Select("SELECT node_id FROM uniops_system_register WHERE id = #{id}")
+    Integer selectNodeId(@Param("id") long id);
+
+    /**
+     * 占用一个节点ID，同时刷新心跳时间；已被其他行占用时不更新
+     * UPDLOCK+HOLDLOCK锁住该节点ID的范围，两个实例同时占用同一个ID时只有一个成功，
+     * node_id上的唯一索引（WHERE node_id IS NOT NULL）再兜底
+     */
+    @Update("UPDATE uniops_system_register SET node_id = #{nodeId}, last_online_time = #{now} WHERE id = #{id} " +
+            "AND NOT EXISTS (SELECT 1 FROM uniops_system_register WITH (UPDLOCK, HOLDLOCK) " +
+            "WHERE node_id = #{nodeId} AND id <> #{id})")
+    int claimNodeId(@Param("id") long id, @Param("nodeId") int nodeId, @Param("now") Date now);
+
+    @Update("UPDATE uniops_system_register SET node_id = NULL WHERE id = #{id}")
+    int releaseNodeId(@Param("id") long id);
 }
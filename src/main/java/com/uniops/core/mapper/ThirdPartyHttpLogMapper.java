@@ -3,8 +3,64 @@ package com.uniops.core.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.uniops.core.entity.ThirdPartyHttpLog;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 @Mapper
 public interface ThirdPartyHttpLogMapper extends BaseMapper<ThirdPartyHttpLog> {
+
+    /**
+     * 多行插入，一条INSERT写入整批日志
+     * SQL Server单条语句最多2100个参数，调用方需控制每批条数；大字段和实体上一样走压缩处理器
+     */
+    @Insert({"<script>",
+            "INSERT INTO uniops_third_party_http_log (app_id, url, method, request_headers, request_params, request_body,",
+            "response_status, response_headers, response_body, request_time, response_time, duration, error_message,",
+            "third_party_name, created_at, updated_at, log_trace_id, span_id, parent_span_id) VALUES",
+            "<foreach collection='list' item='item' separator=','>",
+            "(#{item.appId}, #{item.url}, #{item.method}, #{item.requestHeaders},",
+            "#{item.requestParams, typeHandler=com.uniops.core.util.CompressedTextTypeHandler},",
+            "#{item.requestBody, typeHandler=com.uniops.core.util.CompressedTextTypeHandler},",
+            "#{item.responseStatus}, #{item.responseHeaders},",
+            "#{item.responseBody, typeHandler=com.uniops.core.util.CompressedTextTypeHandler},",
+            "#{item.requestTime}, #{item.responseTime}, #{item.duration}, #{item.errorMessage}, #{item.thirdPartyName},",
+            "#{item.createdAt}, #{item.updatedAt}, #{item.logTraceId}, #{item.spanId}, #{item.parentSpanId})",
+            "</foreach>",
+            "</script>"})
+    int insertBatch(@Param("list") List<ThirdPartyHttpLog> list);
+
+    @Select("SELECT ISNULL(MAX(id), 0) FROM uniops_third_party_http_log")
+    long selectMaxId();
+
+    /**
+     * 按id顺序取还有未压缩大字段的行，返回原始内容（不经过压缩处理器）
+     *
+     * @param minBytes 字段字节数达到该值才需要压缩
+     */
+    @Select("SELECT TOP (#{limit}) id, request_params, request_body, response_body FROM uniops_third_party_http_log " +
+            "WHERE id > #{afterId} AND id <= #{maxId} AND (" +
+            "(DATALENGTH(request_params) >= #{minBytes} AND request_params NOT LIKE '~z1:%') OR " +
+            "(DATALENGTH(request_body) >= #{minBytes} AND request_body NOT LIKE '~z1:%') OR " +
+            "(DATALENGTH(response_body) >= #{minBytes} AND response_body NOT LIKE '~z1:%')) ORDER BY id")
+    List<ThirdPartyHttpLog> selectUncompressed(@Param("afterId") long afterId, @Param("maxId") long maxId,
+                                               @Param("minBytes") int minBytes, @Param("limit") int limit);
+
+    /**
+     * 写回已压缩的字段，只更新不为null的字段
+     */
+    @Update({"<script>",
+            "UPDATE uniops_third_party_http_log",
+            "<set>",
+            "<if test='requestParams != null'>request_params = #{requestParams},</if>",
+            "<if test='requestBody != null'>request_body = #{requestBody},</if>",
+            "<if test='responseBody != null'>response_body = #{responseBody},</if>",
+            "</set>",
+            "WHERE id = #{id}",
+            "</script>"})
+    int updateCompressed(ThirdPartyHttpLog row);
 }
@@ -4,7 +4,28 @@ package com.uniops.core.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.uniops.core.entity.UserSession;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 @Mapper
 public interface UserSessionMapper extends BaseMapper<UserSession> {
+
+    /**
+     * 一条UPDATE批量刷新多个会话的访问时间和过期时间
+     * 每个会话占5个参数，SQL Server单条语句最多2100个参数，调用方需控制每批条数
+     */
+    @Update({"<script>",
+            "UPDATE uniops_user_session SET",
+            "last_access_time = CASE session_token",
+            "<foreach collection='list' item='item'> WHEN #{item.sessionToken} THEN #{item.lastAccessTime}</foreach>",
+            "END,",
+            "expires_time = CASE session_token",
+            "<foreach collection='list' item='item'> WHEN #{item.sessionToken} THEN #{item.expiresTime}</foreach>",
+            "END",
+            "WHERE status = 'ACTIVE' AND session_token IN",
+            "<foreach collection='list' item='item' open='(' separator=',' close=')'>#{item.sessionToken}</foreach>",
+            "</script>"})
+    int updateAccessBatch(@Param("list") List<UserSession> list);
 }
@@ -7,6 +7,7 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.uniops.core.cache.EntityCacheManager;
 import com.uniops.core.entity.UniEntity;
+import com.uniops.core.util.CompressedTextTypeHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -332,12 +333,41 @@ public class GenericEntityService {
                 header.setColumnName(field.getName());
             }
             header.setColumnType(getFieldType(field));
+            header.setSearchable(!isCompressed(field));
             headers.add(header);
         }
 
         return headers;
     }
 
+    /**
+     * 压缩存储的列，库里存的是压缩后的内容，不能用LIKE查询
+     *
+     * @return 字段名和列名
+     */
+    public Set<String> getCompressedColumns(String entityName) {
+        Class<?> entityClass = entityCacheManager.getEntityClass(entityName);
+        if (entityClass == null) {
+            throw new RuntimeException("未找到实体 " + entityName);
+        }
+        Set<String> columns = new HashSet<>();
+        for (Field field : entityClass.getDeclaredFields()) {
+            if (isCompressed(field)) {
+                columns.add(field.getName());
+                String column = field.getAnnotation(TableField.class).value();
+                if (StringUtils.isNotEmpty(column)) {
+                    columns.add(column);
+                }
+            }
+        }
+        return columns;
+    }
+
+    private boolean isCompressed(Field field) {
+        TableField tableField = field.getAnnotation(TableField.class);
+        return tableField != null && tableField.typeHandler() == CompressedTextTypeHandler.class;
+    }
+
     /**
      * 获取实体的所有数据（用于缓存预热）
      */
@@ -19,6 +19,11 @@ public interface HttpRequestLogService extends IService<HttpRequestLog> {
      */
     boolean saveLog(HttpRequestLog log);
 
+    /**
+     * 异步批量保存请求日志，不阻塞调用线程
+     */
+    boolean saveLogAsync(HttpRequestLog log);
+
 
     IPage<HttpRequestLog> getLogsByCondition(HttpLogRequestCondition condition);
 
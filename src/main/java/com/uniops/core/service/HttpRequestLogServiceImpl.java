@@ -6,19 +6,24 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.metadata.OrderItem;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.uniops.core.annotation.NoManagedJob;
+import com.uniops.core.cache.LogRetentionManager;
+import com.uniops.core.cache.StatisticsRollupManager;
 import com.uniops.core.condition.HttpLogRequestCondition;
 import com.uniops.core.condition.SystemCondition;
 import com.uniops.core.entity.HttpRequestLog;
 import com.uniops.core.mapper.HttpRequestLogMapper;
 import com.uniops.core.service.HttpRequestLogService;
 import com.uniops.core.service.ISystemRegisterService;
+import com.uniops.core.util.BatchLogWriter;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 @Slf4j
@@ -29,10 +34,54 @@ public class HttpRequestLogServiceImpl extends ServiceImpl<HttpRequestLogMapper,
     SystemCondition systemCondition;
     @Resource
     ISystemRegisterService systemRegisterService;
+    @Resource
+    UniOpsProperties uniOpsProperties;
+    @Resource
+    StatisticsRollupManager statisticsRollupManager;
+    @Resource
+    LogRetentionManager logRetentionManager;
+
+    private BatchLogWriter<HttpRequestLog> logWriter;
+
+    @PostConstruct
+    public void initWriter() {
+        UniOpsProperties.LogWriter config = uniOpsProperties.getHttpLogWriter();
+        if (config.isEnabled()) {
+            logWriter = new BatchLogWriter<>("http-request-log", config, this::flushLogs);
+            logWriter.start();
+        }
+    }
+
+    @PreDestroy
+    public void destroyWriter() {
+        if (logWriter != null) {
+            logWriter.stop();
+        }
+    }
 
     @Override
     public boolean saveLog(HttpRequestLog log) {
-        return save(log);
+        boolean saved = save(log);
+        if (saved) {
+            statisticsRollupManager.recordHttpLogs(List.of(log));
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean saveLogAsync(HttpRequestLog log) {
+        if (logWriter == null) {
+            return saveLog(log);
+        }
+        return logWriter.offer(log);
+    }
+
+    /**
+     * 批量落库，成功后计入小时统计
+     */
+    private void flushLogs(List<HttpRequestLog> batch) {
+        saveBatch(batch, batch.size());
+        statisticsRollupManager.recordHttpLogs(batch);
     }
 
 
@@ -76,23 +125,7 @@ public class HttpRequestLogServiceImpl extends ServiceImpl<HttpRequestLogMapper,
 
     @Override
     public boolean cleanExpiredLogs(LocalDateTime expireTime) {
-        QueryWrapper<HttpRequestLog> wrapper = new QueryWrapper<>();
-        wrapper.le("request_time", expireTime);
-        wrapper.eq("app_id", systemRegisterService.localSystem().getId());
-        return remove(wrapper);
-    }
-
-    @Scheduled(cron = "0 0 1 * * *")
-    @NoManagedJob
-    public void clearLogs() {
-        //清理表里面的日志数据，根据createat保留7天
-        //等待一个一小时内的随机时间，然后再执行，避免多个服务之间相互锁表
-        long randomTime = (long) (Math.random() * 3600 * 1000);
-        try {
-            Thread.sleep(randomTime);
-        } catch (InterruptedException e) {
-            log.warn("[UniOps] clearLogs sleep error,", e);
-        }
-        cleanExpiredLogs(LocalDateTime.now().minusDays(7));
+        return logRetentionManager.purgeBefore(LogRetentionManager.TABLE_HTTP_REQUEST_LOG, expireTime,
+                systemRegisterService.localSystem().getId()) > 0;
     }
 }
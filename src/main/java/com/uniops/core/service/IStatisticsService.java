@@ -3,6 +3,12 @@ package com.uniops.core.service;
 
 import com.uniops.core.entity.StatisticsHour;
 import com.uniops.core.entity.StatisticsMes;
+import com.uniops.core.vo.CircuitBreakerStatsVO;
+import com.uniops.core.vo.LicenseCacheStatsVO;
+import com.uniops.core.vo.LogRetentionStatsVO;
+import com.uniops.core.vo.LatencyPercentileVO;
+import com.uniops.core.vo.SessionCacheStatsVO;
+import com.uniops.core.vo.LiveMetricVO;
 import com.uniops.core.vo.StatisticsVO;
 
 import java.util.List;
@@ -39,4 +45,55 @@ public interface IStatisticsService {
      * 获取完整的统计信息
      */
     StatisticsVO getFullStatistics();
+
+    /**
+     * 获取今日实时指标（内存统计，不查询数据库）
+     *
+     * @param category HTTP/SCHEDULED/THIRD_PARTY
+     */
+    List<LiveMetricVO> getLiveTodayMetrics(String category);
+
+    /**
+     * 获取最近N分钟实时指标（内存统计，不查询数据库）
+     *
+     * @param category HTTP/SCHEDULED/THIRD_PARTY
+     * @param minutes  1-60
+     */
+    List<LiveMetricVO> getLiveRecentMetrics(String category, int minutes);
+
+    /**
+     * 获取最近N分钟耗时百分位（内存统计）
+     *
+     * @param category HTTP/THIRD_PARTY
+     * @param minutes  1-60
+     */
+    List<LatencyPercentileVO> getRecentLatencyPercentiles(String category, int minutes);
+
+    /**
+     * 获取最近N小时耗时百分位（小时直方图合并本应用所有实例）
+     *
+     * @param category HTTP/THIRD_PARTY
+     * @param hours    1-744
+     */
+    List<LatencyPercentileVO> getHourlyLatencyPercentiles(String category, int hours);
+
+    /**
+     * 获取会话缓存命中/淘汰统计（本实例）
+     */
+    SessionCacheStatsVO getSessionCacheStats();
+
+    /**
+     * 获取授权缓存统计（本实例）
+     */
+    LicenseCacheStatsVO getLicenseCacheStats();
+
+    /**
+     * 获取第三方调用熔断状态和拒绝次数（本实例）
+     */
+    List<CircuitBreakerStatsVO> getCircuitBreakerStats();
+
+    /**
+     * 获取各日志表的保留天数和清理情况（本实例）
+     */
+    List<LogRetentionStatsVO> getLogRetentionStats();
 }
@@ -4,6 +4,9 @@ package com.uniops.core.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.uniops.core.entity.UserSession;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+
 public interface IUserSessionService extends IService<UserSession> {
     /**
      * 创建用户会话
@@ -20,6 +23,14 @@ public interface IUserSessionService extends IService<UserSession> {
      */
     boolean updateSessionAccess(String sessionToken);
 
+    /**
+     * 批量更新会话访问时间，过期时间按各自的访问时间顺延
+     *
+     * @param accessTimes sessionToken -> 最后访问时间
+     * @return 更新的会话数
+     */
+    int updateSessionAccessBatch(Map<String, LocalDateTime> accessTimes);
+
     /**
      * 注销会话
      */
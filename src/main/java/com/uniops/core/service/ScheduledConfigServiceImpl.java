@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.OrderItem;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.uniops.core.cache.ScheduledConfigCache;
 import com.uniops.core.condition.ScheduledRequestCondition;
 import com.uniops.core.condition.SystemCondition;
 import com.uniops.core.entity.ScheduledConfig;
@@ -32,6 +33,8 @@ public class ScheduledConfigServiceImpl extends ServiceImpl<ScheduledConfigMappe
     SystemCondition systemCondition;
     @Resource
     DynamicScheduledTaskManager dynamicScheduledTaskManager;
+    @Resource
+    ScheduledConfigCache scheduledConfigCache;
 
     @Override
     public ScheduledConfig getByBeanAndMethod(String beanName, String methodName) {
@@ -56,6 +59,24 @@ public class ScheduledConfigServiceImpl extends ServiceImpl<ScheduledConfigMappe
     @Override
     public void updateData(ScheduledConfig config) {
         this.updateById(config);
+        scheduledConfigCache.invalidate();
+    }
+
+    /**
+     * 控制器切换监控状态时直接调用updateById，这里统一让配置快照失效
+     */
+    @Override
+    public boolean updateById(ScheduledConfig entity) {
+        boolean updated = super.updateById(entity);
+        scheduledConfigCache.invalidate();
+        return updated;
+    }
+
+    @Override
+    public boolean save(ScheduledConfig entity) {
+        boolean saved = super.save(entity);
+        scheduledConfigCache.invalidate();
+        return saved;
     }
 
 
@@ -108,6 +129,7 @@ public class ScheduledConfigServiceImpl extends ServiceImpl<ScheduledConfigMappe
 
     @Override
     public void restartTask(ScheduledConfig config) {
+        scheduledConfigCache.invalidate();
         if (config.getEnabled() != null && !config.getEnabled()) {
             //关闭
             disableTask(config.getId());
@@ -131,6 +153,7 @@ public class ScheduledConfigServiceImpl extends ServiceImpl<ScheduledConfigMappe
     public void enableTask(Long id) {
         ScheduledConfig newConfig = getDataById(id);
         updateEnabled(newConfig.getBeanName(), newConfig.getMethodName(), true);
+        scheduledConfigCache.invalidate();
         dynamicScheduledTaskManager.enableTask(newConfig);
     }
 
@@ -139,6 +162,7 @@ public class ScheduledConfigServiceImpl extends ServiceImpl<ScheduledConfigMappe
         ScheduledConfig config = getDataById(id);
         // 更新数据库状态
         updateEnabled(config.getBeanName(), config.getMethodName(), false);
+        scheduledConfigCache.invalidate();
         dynamicScheduledTaskManager.disableTask(config);
     }
 
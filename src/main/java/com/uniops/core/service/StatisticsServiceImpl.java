@@ -4,10 +4,23 @@ package com.uniops.core.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.uniops.core.annotation.ManageEntity;
 import com.uniops.core.cache.EntityCacheManager;
+import com.uniops.core.cache.LatencyStatsManager;
+import com.uniops.core.cache.LiveMetricsRegistry;
+import com.uniops.core.cache.CircuitBreakerManager;
+import com.uniops.core.cache.LogRetentionManager;
+import com.uniops.core.cache.SessionCacheManager;
+import com.uniops.core.cache.StatisticsRollupManager;
 import com.uniops.core.entity.*;
 import com.uniops.core.mapper.*;
 import com.uniops.core.service.IStatisticsService;
 import com.uniops.core.service.ISystemRegisterService;
+import com.uniops.core.util.LicenseCache;
+import com.uniops.core.vo.CircuitBreakerStatsVO;
+import com.uniops.core.vo.LicenseCacheStatsVO;
+import com.uniops.core.vo.LogRetentionStatsVO;
+import com.uniops.core.vo.LatencyPercentileVO;
+import com.uniops.core.vo.LiveMetricVO;
+import com.uniops.core.vo.SessionCacheStatsVO;
 import com.uniops.core.vo.StatisticsVO;
 import jakarta.annotation.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +29,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 public class StatisticsServiceImpl implements IStatisticsService {
@@ -35,6 +49,27 @@ public class StatisticsServiceImpl implements IStatisticsService {
     @Resource
     private SystemRegisterMapper systemRegisterMapper;
 
+    @Resource
+    private StatisticsHourlyMapper statisticsHourlyMapper;
+
+    @Resource
+    private StatisticsRollupManager statisticsRollupManager;
+
+    @Resource
+    private LiveMetricsRegistry liveMetricsRegistry;
+
+    @Resource
+    private LatencyStatsManager latencyStatsManager;
+
+    @Resource
+    private SessionCacheManager sessionCacheManager;
+
+    @Resource
+    private CircuitBreakerManager circuitBreakerManager;
+
+    @Resource
+    private LogRetentionManager logRetentionManager;
+
     @Autowired
     private EntityCacheManager entityCacheManager;
 
@@ -43,38 +78,17 @@ public class StatisticsServiceImpl implements IStatisticsService {
 
     @Override
     public List<StatisticsHour> getTodayHourlyHttpRequestStats() {
-        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
-        LocalDateTime endOfDay = LocalDate.now().atTime(23, 59, 59);
-
-        QueryWrapper<HttpRequestLog> wrapper = new QueryWrapper<>();
-        wrapper.between("request_time", startOfDay, endOfDay);
-        wrapper.eq("app_id", systemRegisterService.localSystem().getId());
-        wrapper.select("FORMAT(request_time, '%H') as hour, count(*) as count")
-                .groupBy("FORMAT(request_time, '%H')")
-                .orderByAsc("hour");
-
-        List<Map<String, Object>> result = httpRequestLogMapper.selectMaps(wrapper);
-
-        // 初始化每小时数据为0
-        Map<Integer, Long> hourCountMap = new HashMap<>();
-        for (int i = 0; i < 24; i++) {
-            hourCountMap.put(i, 0L);
-        }
-
-        // 填充实际数据
-        for (Map<String, Object> item : result) {
-            String hourStr = String.valueOf(item.get("hour"));
-            Integer hour = Integer.parseInt(hourStr);
-            Long count = Long.parseLong(String.valueOf(item.get("count")));
-            hourCountMap.put(hour, count);
-        }
+        Map<Integer, StatisticsRollupManager.HourStat> hourStats = getTodayRollup(StatisticsHourly.CATEGORY_HTTP,
+                wrapper -> wrapper.eq("app_id", systemRegisterService.localSystem().getId()));
 
         // 构建返回数据
         List<StatisticsHour> stats = new ArrayList<>();
         for (int i = 0; i < 24; i++) {
             StatisticsHour stat = new StatisticsHour();
             stat.setHour(String.format("%02d:00", i));
-            stat.setCount(hourCountMap.get(i));
+            stat.setCount(hourStats.get(i).total());
+            stat.setCacheHitCount(hourStats.get(i).cacheHits());
+            stat.setCacheMissCount(hourStats.get(i).cacheMisses());
             stats.add(stat);
         }
 
@@ -83,51 +97,75 @@ public class StatisticsServiceImpl implements IStatisticsService {
 
     @Override
     public List<StatisticsHour> getTodayHourlyScheduledStats() {
-        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
-        LocalDateTime endOfDay = LocalDate.now().atTime(23, 59, 59);
-
-        QueryWrapper<ScheduledLog> wrapper = new QueryWrapper<>();
-        wrapper.between("trigger_time", startOfDay, endOfDay);
-        wrapper.eq("app_name", systemRegisterService.localSystem().getSystemId())
-                .select("FORMAT(trigger_time, '%H') as hour, status, count(*) as count")
-                .groupBy("FORMAT(trigger_time, '%H'), status")
-                .orderByAsc("hour");
-
-        List<Map<String, Object>> result = scheduledLogMapper.selectMaps(wrapper);
-
-        // 初始化每小时数据为0
-        Map<Integer, Map<String, Long>> hourStatusMap = new HashMap<>();
-        for (int i = 0; i < 24; i++) {
-            Map<String, Long> statusCount = new HashMap<>();
-            statusCount.put("SUCCESS", 0L);
-            statusCount.put("FAILED", 0L);
-            hourStatusMap.put(i, statusCount);
-        }
-
-        // 填充实际数据
-        for (Map<String, Object> item : result) {
-            String hourStr = String.valueOf(item.get("hour"));
-            Integer hour = Integer.parseInt(hourStr);
-            String status = String.valueOf(item.get("status"));
-            Long count = Long.parseLong(String.valueOf(item.get("count")));
-
-            hourStatusMap.get(hour).put(status, count);
-        }
+        Map<Integer, StatisticsRollupManager.HourStat> hourStats = getTodayRollup(StatisticsHourly.CATEGORY_SCHEDULED,
+                wrapper -> wrapper.eq("app_name", systemRegisterService.localSystem().getSystemId()));
 
         // 构建返回数据
         List<StatisticsHour> stats = new ArrayList<>();
         for (int i = 0; i < 24; i++) {
+            StatisticsRollupManager.HourStat hourStat = hourStats.get(i);
             StatisticsHour stat = new StatisticsHour();
             stat.setHour(String.format("%02d:00", i));
-            stat.setSuccessCount(hourStatusMap.get(i).get("SUCCESS"));
-            stat.setFailedCount(hourStatusMap.get(i).get("FAILED"));
-            stat.setTotal(hourStatusMap.get(i).get("SUCCESS") + hourStatusMap.get(i).get("FAILED"));
+            stat.setSuccessCount(hourStat.success());
+            stat.setFailedCount(hourStat.failed());
+            stat.setTotal(hourStat.success() + hourStat.failed());
             stats.add(stat);
         }
 
         return stats;
     }
 
+    /**
+     * 从小时统计表读取今日数据，并加上本实例尚未落库的增量
+     *
+     * @return 0-23点的统计，没有数据的小时为0
+     */
+    private Map<Integer, StatisticsRollupManager.HourStat> getTodayRollup(String category,
+                                                                         Consumer<QueryWrapper<StatisticsHourly>> appFilter) {
+        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
+        LocalDateTime startOfTomorrow = startOfDay.plusDays(1);
+
+        // 范围条件直接走(category, stat_hour)索引
+        QueryWrapper<StatisticsHourly> wrapper = new QueryWrapper<>();
+        wrapper.select("stat_hour", "SUM(total_count) AS total_count",
+                        "SUM(success_count) AS success_count", "SUM(failed_count) AS failed_count",
+                        "SUM(cache_hit_count) AS cache_hit_count", "SUM(cache_miss_count) AS cache_miss_count")
+                .eq("category", category)
+                .ge("stat_hour", startOfDay)
+                .lt("stat_hour", startOfTomorrow);
+        appFilter.accept(wrapper);
+        wrapper.groupBy("stat_hour");
+
+        long[][] counts = new long[24][5];
+        for (StatisticsHourly row : statisticsHourlyMapper.selectList(wrapper)) {
+            int hour = row.getStatHour().getHour();
+            counts[hour][0] += nullToZero(row.getTotalCount());
+            counts[hour][1] += nullToZero(row.getSuccessCount());
+            counts[hour][2] += nullToZero(row.getFailedCount());
+            counts[hour][3] += nullToZero(row.getCacheHitCount());
+            counts[hour][4] += nullToZero(row.getCacheMissCount());
+        }
+        statisticsRollupManager.pendingStats(category, startOfDay, startOfTomorrow).forEach((time, pending) -> {
+            int hour = time.getHour();
+            counts[hour][0] += pending.total();
+            counts[hour][1] += pending.success();
+            counts[hour][2] += pending.failed();
+            counts[hour][3] += pending.cacheHits();
+            counts[hour][4] += pending.cacheMisses();
+        });
+
+        Map<Integer, StatisticsRollupManager.HourStat> hourStats = new HashMap<>();
+        for (int i = 0; i < 24; i++) {
+            hourStats.put(i, new StatisticsRollupManager.HourStat(counts[i][0], counts[i][1], counts[i][2],
+                    counts[i][3], counts[i][4]));
+        }
+        return hourStats;
+    }
+
+    private long nullToZero(Long value) {
+        return value == null ? 0 : value;
+    }
+
     @Override
     public Map<String, Long> getScheduledExecutionSummary() {
         QueryWrapper<ScheduledLog> totalWrapper = new QueryWrapper<>();
@@ -234,38 +272,17 @@ public class StatisticsServiceImpl implements IStatisticsService {
 
     @Override
     public List<StatisticsHour> getTodayHourlyThirdPartyCallStats() {
-        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
-        LocalDateTime endOfDay = LocalDate.now().atTime(23, 59, 59);
-
-        QueryWrapper<ThirdPartyHttpLog> wrapper = new QueryWrapper<>();
-        wrapper.between("request_time", startOfDay, endOfDay);
-        wrapper.eq("app_id", systemRegisterService.localSystem().getId());
-        wrapper.select("FORMAT(request_time, '%H') as hour, count(*) as count")
-                .groupBy("FORMAT(request_time, '%H')")
-                .orderByAsc("hour");
-
-        List<Map<String, Object>> result = thirdPartyHttpLogMapper.selectMaps(wrapper);
-
-        // 初始化每小时数据为0
-        Map<Integer, Long> hourCountMap = new HashMap<>();
-        for (int i = 0; i < 24; i++) {
-            hourCountMap.put(i, 0L);
-        }
-
-        // 填充实际数据
-        for (Map<String, Object> item : result) {
-            String hourStr = String.valueOf(item.get("hour"));
-            Integer hour = Integer.parseInt(hourStr);
-            Long count = Long.parseLong(String.valueOf(item.get("count")));
-            hourCountMap.put(hour, count);
-        }
+        Map<Integer, StatisticsRollupManager.HourStat> hourStats = getTodayRollup(StatisticsHourly.CATEGORY_THIRD_PARTY,
+                wrapper -> wrapper.eq("app_id", systemRegisterService.localSystem().getId()));
 
         // 构建返回数据
         List<StatisticsHour> stats = new ArrayList<>();
         for (int i = 0; i < 24; i++) {
             StatisticsHour stat = new StatisticsHour();
             stat.setHour(String.format("%02d:00", i));
-            stat.setCount(hourCountMap.get(i));
+            stat.setCount(hourStats.get(i).total());
+            stat.setCacheHitCount(hourStats.get(i).cacheHits());
+            stat.setCacheMissCount(hourStats.get(i).cacheMisses());
             stats.add(stat);
         }
 
@@ -287,4 +304,49 @@ public class StatisticsServiceImpl implements IStatisticsService {
 
         return vo;
     }
+
+    @Override
+    public List<LiveMetricVO> getLiveTodayMetrics(String category) {
+        return liveMetricsRegistry.today(category);
+    }
+
+    @Override
+    public List<LiveMetricVO> getLiveRecentMetrics(String category, int minutes) {
+        return liveMetricsRegistry.recent(category, minutes);
+    }
+
+    @Override
+    public List<LatencyPercentileVO> getRecentLatencyPercentiles(String category, int minutes) {
+        return latencyStatsManager.recent(category, minutes);
+    }
+
+    @Override
+    public List<LatencyPercentileVO> getHourlyLatencyPercentiles(String category, int hours) {
+        return latencyStatsManager.hourly(category, hours);
+    }
+
+    @Override
+    public SessionCacheStatsVO getSessionCacheStats() {
+        return sessionCacheManager.stats();
+    }
+
+    @Override
+    public LicenseCacheStatsVO getLicenseCacheStats() {
+        LicenseCacheStatsVO vo = new LicenseCacheStatsVO();
+        vo.setSize(LicenseCache.entryCount());
+        vo.setHits(LicenseCache.hitCount());
+        vo.setMisses(LicenseCache.missCount());
+        vo.setExpirations(LicenseCache.expirationCount());
+        return vo;
+    }
+
+    @Override
+    public List<CircuitBreakerStatsVO> getCircuitBreakerStats() {
+        return circuitBreakerManager.stats();
+    }
+
+    @Override
+    public List<LogRetentionStatsVO> getLogRetentionStats() {
+        return logRetentionManager.stats();
+    }
 }
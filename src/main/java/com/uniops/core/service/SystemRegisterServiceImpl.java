@@ -2,23 +2,29 @@ package com.uniops.core.service;
 
 import com.alibaba.fastjson2.util.DateUtils;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.uniops.core.annotation.NoManagedJob;
 import com.uniops.core.condition.SystemCondition;
 import com.uniops.core.condition.SystemRequestCondition;
 import com.uniops.core.entity.SystemRegister;
 import com.uniops.core.mapper.SystemRegisterMapper;
 import com.uniops.core.util.LicenseCache;
 import com.uniops.core.util.LicenseManager;
+import com.uniops.core.util.MDCUtil;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
@@ -27,16 +33,110 @@ public class SystemRegisterServiceImpl extends ServiceImpl<SystemRegisterMapper,
     @Resource
     SystemCondition systemCondition;
 
+    /**
+     * 本系统授权校验结果，null表示需要重新计算；授权只按天变化，请求时直接读取
+     */
+    private volatile Boolean localValidity;
+
+    /**
+     * 心跳超过这个时间未更新的实例，其节点ID可以被收回；心跳每分钟一次
+     */
+    private static final long NODE_LEASE_TIMEOUT_MS = 3 * 60_000;
+
+    /**
+     * 当前租用的traceId节点ID，未租到时为null
+     */
+    private volatile Integer leasedNodeId;
+
     @PostConstruct
     public void init() {
         register();
+        // 在注册表中租用一个在线实例间唯一的节点ID，避免各节点推算的ID冲突
+        leaseNodeId();
     }
 
     @PreDestroy
     public void destroy() {
+        releaseNodeId();
         offline();
     }
 
+    /**
+     * 租用traceId节点ID：先收回心跳超时实例的ID，本行已有ID时继续使用，否则从行id对应的位置开始找空闲的ID。
+     * 全部被占用或数据库不可用时保留按MAC地址推算的ID
+     */
+    private void leaseNodeId() {
+        try {
+            SystemRegister local = localSystem();
+            if (local == null || local.getId() == null) {
+                return;
+            }
+            long id = local.getId();
+            Date now = new Date();
+            baseMapper.releaseStaleNodeIds(id, new Date(now.getTime() - NODE_LEASE_TIMEOUT_MS));
+            Integer current = baseMapper.selectNodeId(id);
+            if (current != null && baseMapper.claimNodeId(id, current, now) > 0) {
+                useNodeId(current);
+                return;
+            }
+            Set<Integer> leased = new HashSet<>(baseMapper.selectLeasedNodeIds(id));
+            int start = (int) Math.floorMod(id, (long) MDCUtil.NODE_ID_COUNT);
+            for (int i = 0; i < MDCUtil.NODE_ID_COUNT; i++) {
+                int candidate = (start + i) % MDCUtil.NODE_ID_COUNT;
+                if (!leased.contains(candidate) && tryClaimNodeId(id, candidate, now)) {
+                    useNodeId(candidate);
+                    return;
+                }
+            }
+            leasedNodeId = null;
+            log.warn("[UniOps] 没有空闲的traceId节点ID，使用推算的节点ID: {}", MDCUtil.getNodeId());
+        } catch (Exception e) {
+            leasedNodeId = null;
+            log.warn("[UniOps] 租用traceId节点ID失败，使用推算的节点ID {}: {}", MDCUtil.getNodeId(), e.getMessage());
+        }
+    }
+
+    private boolean tryClaimNodeId(long id, int nodeId, Date now) {
+        try {
+            return baseMapper.claimNodeId(id, nodeId, now) > 0;
+        } catch (DataIntegrityViolationException e) {
+            // 唯一索引冲突，被其他实例抢先占用
+            return false;
+        }
+    }
+
+    private void useNodeId(int nodeId) {
+        leasedNodeId = nodeId;
+        MDCUtil.useNodeId(nodeId);
+        log.info("[UniOps] traceId节点ID: {}", nodeId);
+    }
+
+    /**
+     * 心跳时确认租用的节点ID仍属于本实例（暂停超过租约时间后可能已被收回），不属于时重新租用
+     */
+    private void renewNodeId() {
+        SystemRegister local = localSystem();
+        if (local == null || local.getId() == null) {
+            return;
+        }
+        Integer owned = baseMapper.selectNodeId(local.getId());
+        if (owned == null || !owned.equals(leasedNodeId)) {
+            log.warn("[UniOps] traceId节点ID {}已失效，重新租用", leasedNodeId);
+            leaseNodeId();
+        }
+    }
+
+    private void releaseNodeId() {
+        try {
+            SystemRegister local = localSystem();
+            if (local != null && local.getId() != null && leasedNodeId != null) {
+                baseMapper.releaseNodeId(local.getId());
+            }
+        } catch (Exception e) {
+            log.warn("[UniOps] 释放traceId节点ID失败，心跳超时后由其他实例收回: {}", e.getMessage());
+        }
+    }
+
     @Override
     public void register() {
         boolean exist = this.exists(new QueryWrapper<SystemRegister>()
@@ -79,8 +179,10 @@ public class SystemRegisterServiceImpl extends ServiceImpl<SystemRegisterMapper,
 
     @Override
     public SystemRegister localSystem() {
-        if (LicenseCache.containsKey(getKey())) {
-            return (SystemRegister) LicenseCache.get(getKey());
+        // 只查一次缓存，避免containsKey和get之间条目过期
+        SystemRegister cached = LicenseCache.get(getKey(), SystemRegister.class);
+        if (cached != null) {
+            return cached;
         } else {
             SystemRegister systemRegister = this.getOne(new QueryWrapper<SystemRegister>()
                     .eq("system_id", systemCondition.getApplicationName())
@@ -93,13 +195,55 @@ public class SystemRegisterServiceImpl extends ServiceImpl<SystemRegisterMapper,
 
     @Override
     public boolean checkLocalValidity() {
+        Boolean verdict = localValidity;
+        if (verdict != null) {
+            return verdict;
+        }
+        return refreshLocalValidity();
+    }
+
+    /**
+     * 定时重新计算授权结果，默认每5分钟，整点0分执行时正好覆盖日期切换
+     */
+    @Scheduled(cron = "${uniops.license.verdict-refresh-cron:0 */5 * * * *}")
+    @NoManagedJob
+    public void refreshLocalValidityJob() {
+        try {
+            refreshLocalValidity();
+        } catch (Exception e) {
+            log.warn("[UniOps] 授权校验结果刷新失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 清理授权缓存中的过期条目
+     */
+    @Scheduled(fixedDelayString = "${uniops.license.cache-sweep-interval-ms:60000}")
+    @NoManagedJob
+    public void cleanupLicenseCache() {
+        LicenseCache.cleanupExpired();
+    }
+
+    /**
+     * 重新计算并缓存授权结果，计算抛出异常时清空缓存，下次请求重新计算并抛出同样的异常
+     */
+    private boolean refreshLocalValidity() {
+        try {
+            boolean verdict = computeLocalValidity();
+            localValidity = verdict;
+            return verdict;
+        } catch (RuntimeException e) {
+            localValidity = null;
+            throw e;
+        }
+    }
+
+    private boolean computeLocalValidity() {
         //先到本地缓存获取判断是否有，如果有就用缓存，如果没有就去数据库查
         String key = getKey();
-        SystemRegister systemRegister;
-        if (LicenseCache.containsKey(key)) {
-            //本地有缓存，那就不走数据库
-            systemRegister = (SystemRegister) LicenseCache.get(key);
-        } else {
+        //本地有缓存，那就不走数据库
+        SystemRegister systemRegister = LicenseCache.get(key, SystemRegister.class);
+        if (systemRegister == null) {
             systemRegister = this.getOne(new QueryWrapper<SystemRegister>()
                     .eq("system_id", systemCondition.getApplicationName())
                     .eq("ip", systemCondition.getIp())
@@ -191,10 +335,15 @@ public class SystemRegisterServiceImpl extends ServiceImpl<SystemRegisterMapper,
         if (checkAuthorization.isValid()) {
             systemRegister.setAuthorizationMes(authorization);
             systemRegister.setValidityPeriod(checkAuthorization.getAuthTime());
-            updated(systemRegister);
+            // 只写授权列，整行写回会用读出时的nodeId覆盖期间被收回重租的节点ID
+            this.update(new UpdateWrapper<SystemRegister>()
+                    .set("authorization_mes", authorization)
+                    .set("validity_period", checkAuthorization.getAuthTime())
+                    .eq("id", systemRegister.getId()));
             log.info("系统授权成功");
             online();
             LicenseCache.put(getKey(), systemRegister);
+            refreshLocalValidityJob();
         } else {
             log.info("系统授权失败");
             expired();
@@ -214,6 +363,7 @@ public class SystemRegisterServiceImpl extends ServiceImpl<SystemRegisterMapper,
         updated(systemRegister);
         log.info("系统已过期");
         LicenseCache.remove(getKey());
+        refreshLocalValidityJob();
     }
 
     private String getKey() {
@@ -231,6 +381,11 @@ public class SystemRegisterServiceImpl extends ServiceImpl<SystemRegisterMapper,
     @Scheduled(cron = "0 * * * * *")
     public void heartbeat() {
         online();
+        try {
+            renewNodeId();
+        } catch (Exception e) {
+            log.warn("[UniOps] traceId节点ID续租检查失败: {}", e.getMessage());
+        }
     }
 
     @Scheduled(cron = "0 */5 * * * *")
@@ -240,9 +395,12 @@ public class SystemRegisterServiceImpl extends ServiceImpl<SystemRegisterMapper,
         for (SystemRegister systemRegister : systemRegisters) {
             if (getIntervalMinutes(systemRegister.getLastOnlineTime(), new Date()) > 2) {
                 log.info("系统{}已离线", systemRegister.getSystemName());
-                //更新为3异常，2是正常离线
-                systemRegister.setStatus("3");
-                updated(systemRegister);
+                //更新为3异常，2是正常离线；只写状态列，并且期间有新心跳时不改
+                this.update(new UpdateWrapper<SystemRegister>()
+                        .set("status", "3")
+                        .eq("id", systemRegister.getId())
+                        .eq("status", 1)
+                        .le("last_online_time", new Date(System.currentTimeMillis() - 2 * 60 * 1000L)));
             }
         }
     }
@@ -6,14 +6,17 @@ import com.uniops.core.condition.ThirdPartyLogCondition;
 import com.uniops.core.entity.ThirdPartyHttpLog;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.uniops.core.vo.ResponseCacheStatsVO;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 public interface ThirdPartyHttpLogService extends IService<ThirdPartyHttpLog> {
 
     /**
      * 记录第三方HTTP调用日志
+     * 默认进入异步队列批量写入，返回值表示是否已受理
      */
     boolean recordHttpCall(String thirdPartyName, String url, String method,
                           Map<String, String> headers, String params, String body,
@@ -44,4 +47,9 @@ public interface ThirdPartyHttpLogService extends IService<ThirdPartyHttpLog> {
      * 清理过期日志
      */
     boolean cleanExpiredLogs(LocalDateTime expireTime);
+
+    /**
+     * 第三方GET响应缓存的命中/未命中统计（本实例）
+     */
+    List<ResponseCacheStatsVO> getResponseCacheStats();
 }
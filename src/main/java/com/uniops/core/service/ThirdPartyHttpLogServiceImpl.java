@@ -5,20 +5,32 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uniops.core.cache.LiveMetricsRegistry;
+import com.uniops.core.cache.LogRetentionManager;
+import com.uniops.core.cache.ResponseCacheManager;
+import com.uniops.core.cache.StatisticsRollupManager;
 import com.uniops.core.condition.ThirdPartyLogCondition;
 import com.uniops.core.entity.ThirdPartyHttpLog;
 import com.uniops.core.mapper.ThirdPartyHttpLogMapper;
 import com.uniops.core.service.ISystemRegisterService;
 import com.uniops.core.service.ThirdPartyHttpLogService;
+import com.uniops.core.util.BatchLogWriter;
+import com.uniops.core.util.CapturePolicy;
 import com.uniops.core.util.MDCUtil;
+import com.uniops.core.vo.ResponseCacheStatsVO;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -29,22 +41,69 @@ public class ThirdPartyHttpLogServiceImpl extends ServiceImpl<ThirdPartyHttpLogM
     private ObjectMapper objectMapper;
     @Resource
     ISystemRegisterService systemRegisterService;
+    @Resource
+    UniOpsProperties uniOpsProperties;
+    @Resource
+    StatisticsRollupManager statisticsRollupManager;
+    @Resource
+    LiveMetricsRegistry liveMetricsRegistry;
+    @Resource
+    ResponseCacheManager responseCacheManager;
+    @Resource
+    LogRetentionManager logRetentionManager;
+    @Resource
+    CapturePolicy capturePolicy;
+
+    /**
+     * SQL Server单条语句参数上限2100，每行19个参数，单条INSERT最多写100行
+     */
+    private static final int MAX_ROWS_PER_INSERT = 100;
+
+    private BatchLogWriter<PendingCall> logWriter;
+
+    /**
+     * 待写入的调用记录，请求头/响应头在写入线程中再序列化
+     */
+    private record PendingCall(ThirdPartyHttpLog log, Map<String, String> headers, Map<String, String> responseHeaders,
+                               CapturePolicy.Rule rule) {
+    }
+
+    @PostConstruct
+    public void initWriter() {
+        UniOpsProperties.LogWriter config = uniOpsProperties.getThirdPartyLogWriter();
+        if (config.isEnabled()) {
+            logWriter = new BatchLogWriter<>("third-party-log", config, this::flushCalls);
+            logWriter.start();
+        }
+    }
+
+    @PreDestroy
+    public void destroyWriter() {
+        if (logWriter != null) {
+            logWriter.stop();
+        }
+    }
 
     @Override
     public boolean recordHttpCall(String thirdPartyName, String url, String method,
                                   Map<String, String> headers, String params, String body,
                                   Integer responseStatus, Map<String, String> responseHeaders,
                                   String responseBody, String errorMessage, Long duration) {
+        boolean success = (errorMessage == null || errorMessage.isEmpty())
+                && (responseStatus == null || responseStatus < 400);
+        liveMetricsRegistry.record(LiveMetricsRegistry.CATEGORY_THIRD_PARTY, thirdPartyName,
+                duration == null ? 0 : duration, success);
+        // 未采样的调用照常写一行，只是不保存报文
+        CapturePolicy.Rule rule = capturePolicy.forThirdParty(thirdPartyName);
+        boolean sampled = capturePolicy.sample(rule, success);
         ThirdPartyHttpLog thirdLog = new ThirdPartyHttpLog();
         thirdLog.setThirdPartyName(thirdPartyName);
         thirdLog.setUrl(url);
         thirdLog.setMethod(method);
-        thirdLog.setRequestHeaders(mapToString(headers));
-        thirdLog.setRequestParams(params);
-        thirdLog.setRequestBody(body);
+        thirdLog.setRequestParams(sampled ? capturePolicy.truncate(params, rule) : null);
+        thirdLog.setRequestBody(sampled ? capturePolicy.truncate(body, rule) : notSampled(body));
         thirdLog.setResponseStatus(responseStatus);
-        thirdLog.setResponseHeaders(mapToString(responseHeaders));
-        thirdLog.setResponseBody(responseBody);
+        thirdLog.setResponseBody(sampled ? capturePolicy.truncate(responseBody, rule) : notSampled(responseBody));
         thirdLog.setErrorMessage(errorMessage);
         thirdLog.setDuration(duration);
         thirdLog.setRequestTime(LocalDateTime.now());
@@ -52,8 +111,49 @@ public class ThirdPartyHttpLogServiceImpl extends ServiceImpl<ThirdPartyHttpLogM
         thirdLog.setCreatedAt(LocalDateTime.now());
         thirdLog.setUpdatedAt(LocalDateTime.now());
         thirdLog.setAppId(systemRegisterService.localSystem().getId());
-        thirdLog.setLogTraceId(MDC.get(MDCUtil.TRACE_ID));
-        return save(thirdLog);
+        // traceId必须在调用线程上取，写入线程没有MDC上下文
+        // 本次调用的spanId取自实际发出的traceparent请求头，没有链路上下文的调用以请求头中新建的traceId为准
+        MDCUtil.Traceparent sent = headers == null ? null : MDCUtil.parseTraceparent(MDCUtil.headerValue(headers, MDCUtil.TRACEPARENT_HEADER));
+        String traceId = MDC.get(MDCUtil.TRACE_ID);
+        thirdLog.setLogTraceId(traceId != null ? traceId : sent != null ? sent.traceId() : null);
+        thirdLog.setSpanId(sent != null ? sent.parentSpanId() : null);
+        thirdLog.setParentSpanId(MDC.get(MDCUtil.SPAN_ID));
+        if (!sampled) {
+            headers = null;
+            responseHeaders = null;
+        }
+        if (logWriter == null) {
+            thirdLog.setRequestHeaders(mapToString(headers, rule));
+            thirdLog.setResponseHeaders(mapToString(responseHeaders, rule));
+            boolean saved = save(thirdLog);
+            if (saved) {
+                statisticsRollupManager.recordThirdPartyLogs(List.of(thirdLog));
+            }
+            return saved;
+        }
+        return logWriter.offer(new PendingCall(thirdLog, copyOf(headers), copyOf(responseHeaders), rule));
+    }
+
+    /**
+     * 批量落库，按单条INSERT的参数上限切分
+     */
+    private void flushCalls(List<PendingCall> calls) {
+        List<ThirdPartyHttpLog> rows = new ArrayList<>(calls.size());
+        for (PendingCall call : calls) {
+            ThirdPartyHttpLog row = call.log();
+            row.setRequestHeaders(mapToString(call.headers(), call.rule()));
+            row.setResponseHeaders(mapToString(call.responseHeaders(), call.rule()));
+            rows.add(row);
+        }
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_INSERT) {
+            List<ThirdPartyHttpLog> chunk = rows.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, rows.size()));
+            baseMapper.insertBatch(chunk);
+            statisticsRollupManager.recordThirdPartyLogs(chunk);
+        }
+    }
+
+    private Map<String, String> copyOf(Map<String, String> map) {
+        return map == null || map.isEmpty() ? null : new HashMap<>(map);
     }
 
     @Override
@@ -104,19 +204,22 @@ public class ThirdPartyHttpLogServiceImpl extends ServiceImpl<ThirdPartyHttpLogM
 
     @Override
     public boolean cleanExpiredLogs(LocalDateTime expireTime) {
-        QueryWrapper<ThirdPartyHttpLog> wrapper = new QueryWrapper<>();
-        wrapper.le("request_time", expireTime);
-        return remove(wrapper);
+        return logRetentionManager.purgeBefore(LogRetentionManager.TABLE_THIRD_PARTY_HTTP_LOG, expireTime, null) > 0;
+    }
+
+    @Override
+    public List<ResponseCacheStatsVO> getResponseCacheStats() {
+        return responseCacheManager.stats();
     }
 
-    private String mapToString(Map<String, String> map) {
+    private String mapToString(Map<String, String> map, CapturePolicy.Rule rule) {
         if (map == null || map.isEmpty()) {
             return null;
         }
-        try {
-            return objectMapper.writeValueAsString(map);
-        } catch (JsonProcessingException e) {
-            return map.toString();
-        }
+        return capturePolicy.serialize(map, rule, map.toString());
+    }
+
+    private String notSampled(String text) {
+        return text == null || text.isEmpty() ? text : CapturePolicy.NOT_SAMPLED;
     }
 }
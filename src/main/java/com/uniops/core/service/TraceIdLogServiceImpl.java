@@ -1,20 +1,36 @@
 package com.uniops.core.service;
 
+import com.uniops.core.cache.TraceLogIndexManager;
 import com.uniops.core.condition.TraceIdLogCondition;
 import com.uniops.core.entity.LogInfo;
 import com.uniops.core.entity.HttpRequestLog;
 import com.uniops.core.entity.ScheduledLog;
 import com.uniops.core.mapper.HttpRequestLogMapper;
 import com.uniops.core.mapper.ScheduledLogMapper;
+import com.uniops.core.util.LogEntryReader;
+import com.uniops.core.util.LogEntryScanner;
+import com.uniops.core.util.MappedLogMatcher;
 import com.uniops.core.vo.LogInfoVO;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -40,36 +56,75 @@ public class TraceIdLogServiceImpl implements TraceIdLogService {
     @Autowired
     private ScheduledLogMapper scheduledLogMapper;
 
-    // 日志目录路径
-    private static final String LOG_DIR_PATH = "logs/";
-    private static final String LOG_FILE_PATTERN = "application.log";
+    @Autowired
+    private TraceLogIndexManager traceLogIndexManager;
+
+    @Autowired
+    private UniOpsProperties uniOpsProperties;
+
+    private static final String LOG_FILE_PATTERN = TraceLogIndexManager.CURRENT_LOG_FILE;
+
+    private static final boolean IS_WINDOWS = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+    /**
+     * 文件检索线程，实际并发数由searchPermits限制
+     */
+    private final ExecutorService searchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private Semaphore searchPermits;
 
-    // 定义日志条目的起始模式（时间戳开头）
-    private static final Pattern LOG_START_PATTERN = Pattern.compile(
-        "^\\d{4}-\\d{2}-\\d{2}\\s\\d{2}:\\d{2}:\\d{2}\\.\\d{3}");
+    private static final Pattern LEVEL_PATTERN = Pattern.compile("\\.(INFO|DEBUG|WARN|ERROR|TRACE)\\s");
+    private static final Pattern ALT_LEVEL_PATTERN = Pattern.compile("(INFO|DEBUG|WARN|ERROR|TRACE)");
 
-    // 定义traceId的模式，仅匹配日志框架输出的traceId部分
-    private static final Pattern TRACE_ID_PATTERN = Pattern.compile(
-            "\\[traceId=([\\w-]+)\\]|traceId=([\\w-]+)(?=\\s|$)|\"traceId\":\"([^\"]+)\"");
+    // 常见的日志时间格式
+    private static final Pattern[] TIME_PATTERNS = {
+        Pattern.compile("^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3})"),
+        Pattern.compile("^(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3})"),
+        Pattern.compile("^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})")
+    };
 
 
+    @PostConstruct
+    public void initSearchPermits() {
+        searchPermits = new Semaphore(Math.max(1, uniOpsProperties.getTraceIndex().getSearchParallelism()));
+    }
+
+    @PreDestroy
+    public void shutdownSearchExecutor() {
+        searchExecutor.shutdownNow();
+    }
+
     @Override
     public LogInfoVO getLogLinesByTraceId(TraceIdLogCondition condition) {
-        List<LogInfo> allLogs = getAllLogsByTraceId(condition);
-
-        // 进行分页处理
         int page = condition.getPage() != 0 ? condition.getPage() : 1;
         int size = condition.getSize() != 0 ? condition.getSize() : 10;
+        // 没有traceId时不匹配任何条目，和原来按equals比较的结果一致
+        if (StringUtils.isBlank(condition.getTraceId())) {
+            return new LogInfoVO(page, size, 0, new ArrayList<>());
+        }
 
+        // 每个文件只需要保留前 page*size 条，合并后即可得到目标页
+        int limit = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (long) page * size));
+        List<FileMatches> results = searchAllFiles(condition, limit);
+
+        int total = 0;
+        List<LogInfo> candidates = new ArrayList<>();
+        for (FileMatches result : results) {
+            total += result.total;
+            candidates.addAll(result.logs);
+        }
+        // 按时间排序
+        candidates.sort(Comparator.comparing(LogInfo::getLogTime));
+
+        // 进行分页处理
         int startIndex = (page - 1) * size;
-        if (startIndex >= allLogs.size()) {
-            return new LogInfoVO(page, size, allLogs.size(), new ArrayList<>());
+        if (startIndex >= candidates.size()) {
+            return new LogInfoVO(page, size, total, new ArrayList<>());
         }
 
-        int endIndex = Math.min(startIndex + size, allLogs.size());
-        List<LogInfo> pagedLogs = allLogs.subList(startIndex, endIndex);
+        int endIndex = Math.min(startIndex + size, candidates.size());
+        List<LogInfo> pagedLogs = new ArrayList<>(candidates.subList(startIndex, endIndex));
 
-        return new LogInfoVO(page, size, allLogs.size(), pagedLogs);
+        return new LogInfoVO(page, size, total, pagedLogs);
     }
 
     @Override
@@ -95,70 +150,60 @@ public class TraceIdLogServiceImpl implements TraceIdLogService {
     }
 
     /**
-     * 获取所有符合条件的日志（不进行分页）
+     * 并发检索当前日志文件和所有归档文件
      */
-    private List<LogInfo> getAllLogsByTraceId(TraceIdLogCondition condition) {
-        List<LogInfo> matchingLogs = new ArrayList<>();
-
+    private List<FileMatches> searchAllFiles(TraceIdLogCondition condition, int limit) {
+        List<File> files = new ArrayList<>();
         // 首先查找当前日志文件
         File currentLogFile = findCurrentLogFile();
-        if (currentLogFile != null && currentLogFile.exists()) {
-            matchingLogs.addAll(searchInFile(currentLogFile, condition));
+        if (currentLogFile != null) {
+            files.add(currentLogFile);
         }
-
-        // 然后查找压缩的日志文件
-        List<File> archivedLogFiles = findArchivedLogFiles(condition);
-        for (File archivedFile : archivedLogFiles) {
-            matchingLogs.addAll(searchInArchivedFile(archivedFile, condition));
+        // 然后查找归档的日志文件
+        files.addAll(findArchivedLogFiles(condition));
+
+        List<Future<FileMatches>> futures = new ArrayList<>(files.size());
+        for (File file : files) {
+            futures.add(searchExecutor.submit(() -> {
+                searchPermits.acquire();
+                try {
+                    FileMatches matches = new FileMatches(limit);
+                    if (file == currentLogFile) {
+                        searchInFile(file, condition, matches);
+                    } else {
+                        searchInArchivedFile(file, condition, matches);
+                    }
+                    return matches;
+                } finally {
+                    searchPermits.release();
+                }
+            }));
         }
 
-        // 按时间排序
-        matchingLogs.sort(Comparator.comparing(LogInfo::getLogTime));
-
-        return matchingLogs;
+        List<FileMatches> results = new ArrayList<>(files.size());
+        try {
+            for (Future<FileMatches> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("日志检索被中断", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new RuntimeException("读取日志文件失败: " + cause.getMessage(), cause);
+        }
+        return results;
     }
 
     /**
      * 查找当前活动的日志文件
      */
     private File findCurrentLogFile() {
-        File logDir = new File(LOG_DIR_PATH);
-        if (!logDir.exists() || !logDir.isDirectory()) {
-            // 尝试其他常见日志路径
-            String[] paths = {
-                "target/logs/",
-                "src/main/resources/logs/",
-                System.getProperty("user.dir") + "/logs/"
-            };
-
-            for (String path : paths) {
-                logDir = new File(path);
-                if (logDir.exists() && logDir.isDirectory()) {
-                    break;
-                }
-            }
-        }
-
-        if (!logDir.exists() || !logDir.isDirectory()) {
-            return null;
-        }
-
-        // 查找最新的日志文件
-        File[] files = logDir.listFiles((dir, name) ->
-            name.startsWith(LOG_FILE_PATTERN) && !name.endsWith(".gz") && !name.endsWith(".zip"));
-
-        if (files != null && files.length > 0) {
-            // 返回最新的日志文件
-            File latestFile = files[0];
-            for (File file : files) {
-                if (file.lastModified() > latestFile.lastModified()) {
-                    latestFile = file;
-                }
-            }
-            return latestFile;
-        }
-
-        return null;
+        File currentLogFile = traceLogIndexManager.getCurrentLogFile();
+        return currentLogFile.isFile() ? currentLogFile : null;
     }
 
     /**
@@ -167,36 +212,25 @@ public class TraceIdLogServiceImpl implements TraceIdLogService {
     private List<File> findArchivedLogFiles(TraceIdLogCondition condition) {
         List<File> archivedFiles = new ArrayList<>();
 
-        File logDir = new File(LOG_DIR_PATH);
-        if (!logDir.exists() || !logDir.isDirectory()) {
-            String[] paths = {
-                "target/logs/",
-                "src/main/resources/logs/",
-                System.getProperty("user.dir") + "/logs/"
-            };
-
-            for (String path : paths) {
-                logDir = new File(path);
-                if (logDir.exists() && logDir.isDirectory()) {
-                    break;
-                }
-            }
-        }
-
+        File logDir = traceLogIndexManager.getLogDir();
         if (!logDir.exists() || !logDir.isDirectory()) {
             return archivedFiles;
         }
 
-        File[] allFiles = logDir.listFiles((dir, name) ->
+        File[] compressedFiles = logDir.listFiles((dir, name) ->
             (name.endsWith(".gz") || name.endsWith(".zip")) &&
-            (name.contains(LOG_FILE_PATTERN) || name.startsWith("application")));
+            (name.contains(LOG_FILE_PATTERN) || name.startsWith(TraceLogIndexManager.LOG_FILE_BASE)));
 
-        if (allFiles != null) {
-            for (File file : allFiles) {
-                // 检查归档文件的时间戳是否在查询范围内
-                if (isArchiveFileInTimeRange(file, condition.getStartTime(), condition.getEndTime())) {
-                    archivedFiles.add(file);
-                }
+        // 按天滚动但未压缩的日志文件
+        List<File> allFiles = traceLogIndexManager.getRolledLogFiles();
+        if (compressedFiles != null) {
+            allFiles.addAll(Arrays.asList(compressedFiles));
+        }
+
+        for (File file : allFiles) {
+            // 检查归档文件的时间戳是否在查询范围内
+            if (isArchiveFileInTimeRange(file, condition.getStartTime(), condition.getEndTime())) {
+                archivedFiles.add(file);
             }
         }
 
@@ -214,17 +248,20 @@ public class TraceIdLogServiceImpl implements TraceIdLogService {
         // 从文件名中提取日期信息
         String fileName = archiveFile.getName();
         LocalDateTime fileTime = extractDateTimeFromFileName(fileName);
+        // 按天滚动的文件覆盖当天整天，结束时间取次日零点
+        LocalDateTime fileEndTime = fileTime != null ? fileTime.plusDays(1) : null;
 
         if (fileTime == null) {
             // 如果无法从文件名中提取时间，使用文件修改时间
             fileTime = new Date(archiveFile.lastModified()).toInstant()
                 .atZone(java.time.ZoneId.systemDefault()).toLocalDateTime();
+            fileEndTime = fileTime;
         }
 
         if (startTime != null) {
             LocalDateTime startLocal = startTime.toInstant()
                 .atZone(java.time.ZoneId.systemDefault()).toLocalDateTime();
-            if (fileTime.isBefore(startLocal)) {
+            if (fileEndTime.isBefore(startLocal)) {
                 return false;
             }
         }
@@ -264,175 +301,147 @@ public class TraceIdLogServiceImpl implements TraceIdLogService {
     /**
      * 在普通日志文件中搜索
      */
-    private List<LogInfo> searchInFile(File logFile, TraceIdLogCondition condition) {
-        List<LogInfo> matchingLogs = new ArrayList<>();
+    private void searchInFile(File logFile, TraceIdLogCondition condition, FileMatches matches) {
+        if (searchInFileByIndex(logFile, condition, matches)) {
+            return;
+        }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(logFile))) {
-            // 读取整个日志文件并按日志条目解析
-            List<String> logEntries = readLogEntries(reader);
-
-            for (String logEntry : logEntries) {
-                // 查找条目中是否包含指定的traceId（仅在日志框架输出部分匹配）
-                String extractedTraceId = extractTraceId(logEntry);
-                if (extractedTraceId != null && extractedTraceId.equals(condition.getTraceId())) {
-                    // 解析日志条目并创建LogInfo对象
-                    LogInfo logInfo = parseLogEntry(logEntry, condition.getTraceId());
-                    if (logInfo != null && isLogInTimeRange(logInfo, condition.getStartTime(), condition.getEndTime())) {
-                        matchingLogs.add(logInfo);
-                    }
-                }
+        if (canMap(logFile)) {
+            try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+                MappedLogMatcher.find(channel, condition.getTraceId(),
+                        logEntry -> addIfInTimeRange(logEntry, condition, matches));
+            } catch (IOException e) {
+                throw new RuntimeException("读取日志文件失败: " + e.getMessage(), e);
             }
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(logFile))) {
+            collectMatchingEntries(reader, condition, matches);
         } catch (IOException e) {
             throw new RuntimeException("读取日志文件失败: " + e.getMessage(), e);
         }
+    }
 
-        return matchingLogs;
+    /**
+     * Windows下映射未释放前文件无法被重命名，正在写入的日志文件不做映射，以免影响logback滚动
+     */
+    private boolean canMap(File logFile) {
+        return !IS_WINDOWS || !LOG_FILE_PATTERN.equals(logFile.getName());
     }
 
     /**
-     * 提取日志条目中的traceId（只匹配日志框架输出的traceId部分）
+     * 通过traceId索引定位条目，只读取命中的部分
+     *
+     * @return 文件没有可用索引时返回false
      */
-    private String extractTraceId(String logEntry) {
-        // 获取日志条目的第一行，通常包含日志级别和traceId信息
-        String[] lines = logEntry.split("\n");
-        String firstLine = lines[0];
-
-        // 在第一行中查找traceId
-        Matcher traceMatcher = TRACE_ID_PATTERN.matcher(firstLine);
-        if (traceMatcher.find()) {
-            // 返回匹配到的traceId值
-            String traceId = traceMatcher.group(1);
-            if (traceId == null) {
-                traceId = traceMatcher.group(2);
-            }
-            if (traceId == null) {
-                traceId = traceMatcher.group(3);
+    private boolean searchInFileByIndex(File logFile, TraceIdLogCondition condition, FileMatches matches) {
+        List<TraceLogIndexManager.EntryLocation> locations;
+        try {
+            locations = traceLogIndexManager.locate(logFile, condition.getTraceId());
+        } catch (IOException e) {
+            // 索引读取失败时退回全量扫描
+            return false;
+        }
+        if (locations == null) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            for (TraceLogIndexManager.EntryLocation location : locations) {
+                ByteBuffer buffer = ByteBuffer.allocate(location.length());
+                while (buffer.hasRemaining() && channel.read(buffer, location.offset() + buffer.position()) > 0) {
+                    // 读满为止
+                }
+                String logEntry = new String(buffer.array(), 0, buffer.position(), LogEntryScanner.LOG_CHARSET).trim();
+                // 索引按哈希存储，需要再确认一次traceId
+                if (condition.getTraceId().equals(extractTraceId(logEntry))) {
+                    addIfInTimeRange(logEntry, condition, matches);
+                }
             }
-            return traceId;
+        } catch (IOException e) {
+            throw new RuntimeException("读取日志文件失败: " + e.getMessage(), e);
         }
+        return true;
+    }
 
-        return null;
+    /**
+     * 提取日志条目中的traceId（只匹配日志框架输出的traceId部分）
+     */
+    private String extractTraceId(String logEntry) {
+        // 只在第一行查找，第一行包含日志级别和traceId信息
+        return LogEntryScanner.extractTraceId(firstLine(logEntry));
     }
 
     /**
-     * 读取日志条目（处理多行日志条目）
+     * 流式读取日志条目，只解析traceId匹配的条目
      */
-    private List<String> readLogEntries(BufferedReader reader) throws IOException {
-        List<String> logEntries = new ArrayList<>();
-        StringBuilder currentEntry = new StringBuilder();
-        String line;
-
-        while ((line = reader.readLine()) != null) {
-            // 检查这一行是否是新日志条目的开始
-            if (LOG_START_PATTERN.matcher(line).find()) {
-                // 如果当前条目不为空，将其添加到列表中
-                if (currentEntry.length() > 0) {
-                    logEntries.add(currentEntry.toString().trim());
-                    currentEntry.setLength(0); // 清空StringBuilder
-                }
-                // 开始新的日志条目
-                currentEntry.append(line);
-            } else {
-                // 这是多行日志的一部分，追加到当前条目
-                if (currentEntry.length() > 0) {
-                    currentEntry.append("\n").append(line);
-                } else {
-                    // 如果这是文件的第一行但不是日志开头，跳过
-                    continue;
-                }
-            }
+    private void collectMatchingEntries(BufferedReader reader, TraceIdLogCondition condition,
+                                        FileMatches matches) throws IOException {
+        LogEntryReader entryReader = new LogEntryReader(reader);
+        String logEntry;
+        while ((logEntry = entryReader.nextEntry(condition.getTraceId())) != null) {
+            addIfInTimeRange(logEntry, condition, matches);
         }
+    }
 
-        // 添加最后一个日志条目
-        if (currentEntry.length() > 0) {
-            logEntries.add(currentEntry.toString().trim());
+    private void addIfInTimeRange(String logEntry, TraceIdLogCondition condition, FileMatches matches) {
+        // 解析日志条目并创建LogInfo对象
+        LogInfo logInfo = parseLogEntry(logEntry, condition.getTraceId());
+        if (logInfo != null && isLogInTimeRange(logInfo, condition.getStartTime(), condition.getEndTime())) {
+            matches.add(logInfo);
         }
+    }
 
-        return logEntries;
+    private String firstLine(String logEntry) {
+        int newline = logEntry.indexOf('\n');
+        return newline < 0 ? logEntry : logEntry.substring(0, newline);
     }
 
     /**
      * 在归档文件中搜索
      */
-    private List<LogInfo> searchInArchivedFile(File archiveFile, TraceIdLogCondition condition) {
-        List<LogInfo> matchingLogs = new ArrayList<>();
-
+    private void searchInArchivedFile(File archiveFile, TraceIdLogCondition condition, FileMatches matches) {
         try {
-            if (archiveFile.getName().endsWith(".gz")) {
-                matchingLogs.addAll(searchInGzipFile(archiveFile, condition));
+            if (archiveFile.getName().endsWith(".log")) {
+                searchInFile(archiveFile, condition, matches);
+            } else if (archiveFile.getName().endsWith(".gz")) {
+                searchInGzipFile(archiveFile, condition, matches);
             } else if (archiveFile.getName().endsWith(".zip")) {
-                matchingLogs.addAll(searchInZipFile(archiveFile, condition));
+                searchInZipFile(archiveFile, condition, matches);
             }
         } catch (Exception e) {
             throw new RuntimeException("读取归档日志文件失败: " + e.getMessage(), e);
         }
-
-        return matchingLogs;
     }
 
     /**
      * 在GZIP文件中搜索
      */
-    private List<LogInfo> searchInGzipFile(File gzipFile, TraceIdLogCondition condition) throws IOException {
-        List<LogInfo> matchingLogs = new ArrayList<>();
-
+    private void searchInGzipFile(File gzipFile, TraceIdLogCondition condition, FileMatches matches) throws IOException {
         try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(gzipFile));
              GZIPInputStream gzis = new GZIPInputStream(bis);
              BufferedReader reader = new BufferedReader(new InputStreamReader(gzis))) {
-
-            // 读取整个日志文件并按日志条目解析
-            List<String> logEntries = readLogEntries(reader);
-
-            for (String logEntry : logEntries) {
-                // 查找条目中是否包含指定的traceId（仅在日志框架输出部分匹配）
-                String extractedTraceId = extractTraceId(logEntry);
-                if (extractedTraceId != null && extractedTraceId.equals(condition.getTraceId())) {
-                    // 解析日志条目并创建LogInfo对象
-                    LogInfo logInfo = parseLogEntry(logEntry, condition.getTraceId());
-                    if (logInfo != null && isLogInTimeRange(logInfo, condition.getStartTime(), condition.getEndTime())) {
-                        matchingLogs.add(logInfo);
-                    }
-                }
-            }
+            collectMatchingEntries(reader, condition, matches);
         }
-
-        return matchingLogs;
     }
 
     /**
      * 在ZIP文件中搜索
      */
-    private List<LogInfo> searchInZipFile(File zipFile, TraceIdLogCondition condition) throws IOException {
-        List<LogInfo> matchingLogs = new ArrayList<>();
-
+    private void searchInZipFile(File zipFile, TraceIdLogCondition condition, FileMatches matches) throws IOException {
         try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile))) {
             ZipEntry entry;
             while ((entry = zis.getNextEntry()) != null) {
                 if (!entry.isDirectory() && entry.getName().endsWith(".log")) {
                     // 处理ZIP中的日志文件
+                    // 不能关闭reader，否则会关闭整个zip流
                     BufferedReader reader = new BufferedReader(new InputStreamReader(zis));
-
-                    // 读取整个日志文件并按日志条目解析
-                    List<String> logEntries = readLogEntries(reader);
-
-                    for (String logEntry : logEntries) {
-                        // 查找条目中是否包含指定的traceId（仅在日志框架输出部分匹配）
-                        String extractedTraceId = extractTraceId(logEntry);
-                        if (extractedTraceId != null && extractedTraceId.equals(condition.getTraceId())) {
-                            // 解析日志条目并创建LogInfo对象
-                            LogInfo logInfo = parseLogEntry(logEntry, condition.getTraceId());
-                            if (logInfo != null && isLogInTimeRange(logInfo, condition.getStartTime(), condition.getEndTime())) {
-                                matchingLogs.add(logInfo);
-                            }
-                        }
-                    }
+                    collectMatchingEntries(reader, condition, matches);
 
                     zis.closeEntry();
                 }
             }
         }
-
-        return matchingLogs;
     }
 
     /**
@@ -455,16 +464,15 @@ public class TraceIdLogServiceImpl implements TraceIdLogService {
      * 从日志条目中解析日志等级
      */
     private String parseLogLevel(String logEntry) {
-        Pattern levelPattern = Pattern.compile("\\.(INFO|DEBUG|WARN|ERROR|TRACE)\\s");
-        Matcher levelMatcher = levelPattern.matcher(logEntry.split("\n")[0]); // 只在第一行查找日志级别
+        String firstLine = firstLine(logEntry); // 只在第一行查找日志级别
+        Matcher levelMatcher = LEVEL_PATTERN.matcher(firstLine);
 
         if (levelMatcher.find()) {
             return levelMatcher.group(1);
         }
 
         // 尝试其他常见的日志等级模式
-        Pattern altLevelPattern = Pattern.compile("(INFO|DEBUG|WARN|ERROR|TRACE)");
-        Matcher altLevelMatcher = altLevelPattern.matcher(logEntry.split("\n")[0]);
+        Matcher altLevelMatcher = ALT_LEVEL_PATTERN.matcher(firstLine);
 
         if (altLevelMatcher.find()) {
             return altLevelMatcher.group(1);
@@ -478,16 +486,10 @@ public class TraceIdLogServiceImpl implements TraceIdLogService {
      */
     private LocalDateTime parseLogTimeFromEntry(String logEntry) {
         // 获取日志条目的第一行来提取时间
-        String firstLine = logEntry.split("\n")[0];
+        String firstLine = firstLine(logEntry);
 
         // 匹配常见的日志时间格式
-        Pattern timePatterns[] = {
-            Pattern.compile("^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3})"),
-            Pattern.compile("^(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3})"),
-            Pattern.compile("^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})")
-        };
-
-        for (Pattern pattern : timePatterns) {
+        for (Pattern pattern : TIME_PATTERNS) {
             Matcher timeMatcher = pattern.matcher(firstLine);
             if (timeMatcher.find()) {
                 String timeStr = timeMatcher.group(1);
@@ -554,4 +556,47 @@ public class TraceIdLogServiceImpl implements TraceIdLogService {
             return LocalDateTime.now();
         }
     }
+
+    /**
+     * 单个文件的检索结果：只保留时间最早的limit条，total为全部命中数
+     */
+    private static final class FileMatches {
+        private final int limit;
+        private final List<LogInfo> logs = new ArrayList<>();
+        private int total;
+        /**
+         * 已保留条目中时间最晚的下标，保留满之后才维护
+         */
+        private int latest = -1;
+
+        FileMatches(int limit) {
+            this.limit = limit;
+        }
+
+        void add(LogInfo logInfo) {
+            total++;
+            if (logs.size() < limit) {
+                logs.add(logInfo);
+                return;
+            }
+            if (latest < 0) {
+                latest = findLatest();
+            }
+            // 同一文件内基本按时间追加，只有并发写入造成的乱序才需要替换
+            if (logInfo.getLogTime().isBefore(logs.get(latest).getLogTime())) {
+                logs.set(latest, logInfo);
+                latest = findLatest();
+            }
+        }
+
+        private int findLatest() {
+            int index = 0;
+            for (int i = 1; i < logs.size(); i++) {
+                if (logs.get(i).getLogTime().isAfter(logs.get(index).getLogTime())) {
+                    index = i;
+                }
+            }
+            return index;
+        }
+    }
 }
@@ -2,19 +2,34 @@ package com.uniops.core.service;// src/main/java/com/uniops/core/service/impl/Us
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.uniops.core.cache.SessionInvalidationBroadcaster;
+import com.uniops.core.entity.SessionInvalidation;
 import com.uniops.core.entity.UserSession;
 import com.uniops.core.mapper.UserSessionMapper;
 import com.uniops.core.service.IUserSessionService;
+import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class UserSessionServiceImpl extends ServiceImpl<UserSessionMapper, UserSession> implements IUserSessionService {
 
     private static final long SESSION_TIMEOUT_MINUTES = 120; // 2小时过期
 
+    /**
+     * 批量更新每批会话数，每个会话5个参数，不超过SQL Server的2100个参数限制
+     */
+    private static final int ACCESS_BATCH_SIZE = 200;
+
+    @Resource
+    SessionInvalidationBroadcaster sessionInvalidationBroadcaster;
+
     @Override
     public String createSession(String username, String ipAddress, String userAgent) {
         // 先删除该用户之前的会话
@@ -42,13 +57,8 @@ public class UserSessionServiceImpl extends ServiceImpl<UserSessionMapper, UserS
         wrapper.eq("status", "ACTIVE");
         wrapper.gt("expires_time", LocalDateTime.now());
 
-        UserSession session = getOne(wrapper);
-        if (session != null) {
-            // 更新最后访问时间
-            updateSessionAccess(sessionToken);
-            return true;
-        }
-        return false;
+        // 访问时间由SessionAccessTracker在内存中记录并定时批量写入
+        return getOne(wrapper) != null;
     }
 
     @Override
@@ -64,6 +74,27 @@ public class UserSessionServiceImpl extends ServiceImpl<UserSessionMapper, UserS
         return update(session, wrapper);
     }
 
+    @Override
+    public int updateSessionAccessBatch(Map<String, LocalDateTime> accessTimes) {
+        List<UserSession> batch = new ArrayList<>(Math.min(accessTimes.size(), ACCESS_BATCH_SIZE));
+        int updated = 0;
+        for (Map.Entry<String, LocalDateTime> entry : accessTimes.entrySet()) {
+            UserSession session = new UserSession();
+            session.setSessionToken(entry.getKey());
+            session.setLastAccessTime(entry.getValue());
+            session.setExpiresTime(entry.getValue().plusMinutes(SESSION_TIMEOUT_MINUTES));
+            batch.add(session);
+            if (batch.size() >= ACCESS_BATCH_SIZE) {
+                updated += baseMapper.updateAccessBatch(batch);
+                batch = new ArrayList<>(ACCESS_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            updated += baseMapper.updateAccessBatch(batch);
+        }
+        return updated;
+    }
+
     @Override
     public boolean invalidateSession(String sessionToken) {
         QueryWrapper<UserSession> wrapper = new QueryWrapper<>();
@@ -72,28 +103,44 @@ public class UserSessionServiceImpl extends ServiceImpl<UserSessionMapper, UserS
         UserSession session = new UserSession();
         session.setStatus("INACTIVE");
 
-        return update(session, wrapper);
+        boolean updated = update(session, wrapper);
+        sessionInvalidationBroadcaster.publish(List.of(sessionToken), SessionInvalidation.REASON_LOGOUT);
+        return updated;
     }
 
     @Override
     public void cleanupExpiredSessions() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> tokens = activeTokens(new QueryWrapper<UserSession>()
+                .eq("status", "ACTIVE")
+                .le("expires_time", now));
         QueryWrapper<UserSession> wrapper = new QueryWrapper<>();
-        wrapper.le("expires_time", LocalDateTime.now());
+        wrapper.le("expires_time", now);
 
         UserSession session = new UserSession();
         session.setStatus("INACTIVE");
 
         update(session, wrapper);
+        sessionInvalidationBroadcaster.publish(tokens, SessionInvalidation.REASON_EXPIRED);
     }
 
     private void invalidateUserSession(String username) {
         QueryWrapper<UserSession> wrapper = new QueryWrapper<>();
         wrapper.eq("username", username);
         wrapper.eq("status", "ACTIVE");
+        List<String> tokens = activeTokens(wrapper);
 
         UserSession session = new UserSession();
         session.setStatus("INACTIVE");
 
         update(session, wrapper);
+        // 重新登录会挤掉旧会话，其他实例缓存的旧令牌也要失效
+        sessionInvalidationBroadcaster.publish(tokens, SessionInvalidation.REASON_RELOGIN);
+    }
+
+    private List<String> activeTokens(QueryWrapper<UserSession> wrapper) {
+        return list(wrapper.clone().select("session_token")).stream()
+                .map(UserSession::getSessionToken)
+                .collect(Collectors.toList());
     }
 }
@@ -1,6 +1,7 @@
 // src/main/java/com/uniops/core/util/AuthConstants.java
 package com.uniops.core.util;
 
+import com.uniops.core.cache.SessionAccessTracker;
 import com.uniops.core.cache.SessionCacheManager;
 import com.uniops.core.service.IUserSessionService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +24,8 @@ public class AuthConstants {
     @Autowired
     private static SessionCacheManager sessionCacheManager;
 
+    private static SessionAccessTracker sessionAccessTracker;
+
     /**
      * 设置服务实例（通过setter注入，避免循环依赖）
      */
@@ -37,6 +40,13 @@ public class AuthConstants {
         sessionCacheManager = manager;
     }
 
+    /**
+     * 设置会话访问时间记录实例
+     */
+    public static void setSessionAccessTracker(SessionAccessTracker tracker) {
+        sessionAccessTracker = tracker;
+    }
+
     /**
      * 获取当前密码（基础密码+年月）
      * @return 加密后的密码
@@ -72,17 +82,21 @@ public class AuthConstants {
         Boolean cachedResult = sessionCacheManager.getCachedSessionValidity(sessionToken);
         if (cachedResult != null) {
             if (cachedResult) {
-                // 如果缓存有效，更新访问时间
-                userSessionService.updateSessionAccess(sessionToken);
+                // 如果缓存有效，只在内存中记录访问时间，定时批量写回
+                sessionAccessTracker.touch(sessionToken);
             }
             return cachedResult;
         }
 
-        // 缓存未命中，查询数据库
+        // 缓存未命中，查询数据库；查询期间令牌被失效时不缓存查询结果
+        long loadVersion = sessionCacheManager.invalidationVersion();
         boolean isValid = userSessionService.validateSession(sessionToken);
 
         // 将结果缓存
-        sessionCacheManager.cacheSessionValidity(sessionToken, isValid);
+        sessionCacheManager.cacheSessionValidity(sessionToken, isValid, loadVersion);
+        if (isValid) {
+            sessionAccessTracker.touch(sessionToken);
+        }
 
         return isValid;
     }
@@ -92,8 +106,10 @@ public class AuthConstants {
      * @param sessionToken 会话令牌
      */
     public static void logoutSession(String sessionToken) {
+        // 失效会广播给其他实例
         userSessionService.invalidateSession(sessionToken);
         sessionCacheManager.removeCachedSession(sessionToken);
+        sessionAccessTracker.discard(sessionToken);
     }
 
     /**
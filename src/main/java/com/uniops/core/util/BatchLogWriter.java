@@ -0,0 +1,221 @@
+package com.uniops.core.util;
+
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * BatchLogWriter 异步批量写入器
+ * 日志记录先进入有界队列，由后台线程按数量或时间攒批后统一落库，调用线程不再等待数据库
+ *
+ * @author liyang
+ * @since 2026/2/10
+ */
+@Slf4j
+public class BatchLogWriter<T> {
+
+    /**
+     * 队列满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 直接丢弃
+         */
+        DROP,
+        /**
+         * 超过高水位后按比例采样写入
+         */
+        SAMPLE,
+        /**
+         * 阻塞调用线程，最多等待blockTimeoutMs
+         */
+        BLOCK
+    }
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final Consumer<List<T>> flusher;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final double sampleRate;
+    private final int highWatermark;
+    private final long blockTimeoutMs;
+    private final long shutdownTimeoutMs;
+    private final Thread worker;
+
+    private volatile boolean running;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * @param name    写入器名称，用于线程名和日志
+     * @param config  队列与攒批配置
+     * @param flusher 批量落库逻辑，在后台线程中调用
+     */
+    public BatchLogWriter(String name, UniOpsProperties.LogWriter config, Consumer<List<T>> flusher) {
+        this.name = name;
+        this.flusher = flusher;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity()));
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getFlushIntervalMs()));
+        this.overflowPolicy = config.getOverflowPolicy() != null ? config.getOverflowPolicy() : OverflowPolicy.DROP;
+        this.sampleRate = config.getSampleRate();
+        this.highWatermark = (int) (config.getQueueCapacity() * 0.8);
+        this.blockTimeoutMs = config.getBlockTimeoutMs();
+        this.shutdownTimeoutMs = config.getShutdownTimeoutMs();
+        this.worker = new Thread(this::runLoop, "uniops-" + name + "-writer");
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        worker.start();
+        log.info("[UniOps] {} 异步写入器已启动, 策略:{}", name, overflowPolicy);
+    }
+
+    /**
+     * 提交一条记录
+     *
+     * @return 是否进入队列，未进入说明被溢出策略丢弃或写入器已停止
+     */
+    public boolean offer(T item) {
+        if (!running) {
+            return false;
+        }
+        boolean ok;
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    ok = queue.offer(item, blockTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    ok = false;
+                }
+                break;
+            case SAMPLE:
+                if (queue.size() >= highWatermark && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                    ok = false;
+                } else {
+                    ok = queue.offer(item);
+                }
+                break;
+            default:
+                ok = queue.offer(item);
+                break;
+        }
+        if (ok) {
+            accepted.increment();
+        } else {
+            onDropped();
+        }
+        return ok;
+    }
+
+    /**
+     * 停止写入器，等待队列中剩余数据落库
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            worker.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            worker.interrupt();
+            log.warn("[UniOps] {} 异步写入器停止超时，剩余{}条未落库", name, queue.size());
+        }
+        log.info("[UniOps] {} 异步写入器已停止, 写入:{}, 丢弃:{}, 失败:{}", name, written.sum(), dropped.sum(), failed.sum());
+    }
+
+    private void runLoop() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // 停止超时被中断，把手上已取出的数据写完再退出
+                queue.drainTo(batch, batchSize - batch.size());
+                flush(batch);
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            flusher.accept(batch);
+            written.add(batch.size());
+        } catch (Exception e) {
+            failed.add(batch.size());
+            log.error("[UniOps] {} 批量写入失败，丢失{}条", name, batch.size(), e);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void onDropped() {
+        dropped.increment();
+        long total = dropped.sum();
+        // 避免在高压时刷屏，只在第一次和之后每1000次打印
+        if (total == 1 || total % 1000 == 0) {
+            log.warn("[UniOps] {} 写入队列已满，累计丢弃{}条", name, total);
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+}
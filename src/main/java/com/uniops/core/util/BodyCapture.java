@@ -0,0 +1,93 @@
+package com.uniops.core.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * BodyCapture 响应体的定长截取
+ * 流式读取时旁路复制前N个字节用于记录日志，超出部分只计数不保存，内存占用和响应大小无关
+ *
+ * @author liyang
+ * @since 2026/2/22
+ */
+public class BodyCapture {
+
+    private final byte[] buffer;
+    private int size;
+    private long totalBytes;
+
+    public BodyCapture(int maxBytes) {
+        this.buffer = new byte[Math.max(0, maxBytes)];
+    }
+
+    /**
+     * 包装输入流，调用方读到的每个字节都会经过截取
+     */
+    public InputStream tee(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    append(b);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    append(b, off, n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                // 跳过的内容也要计入总长度，按读取处理
+                byte[] skipped = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+                int read = read(skipped, 0, skipped.length);
+                return Math.max(read, 0);
+            }
+        };
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public boolean isTruncated() {
+        return totalBytes > size;
+    }
+
+    /**
+     * 截取到的内容，被截断时在末尾注明总长度
+     */
+    public String toText(Charset charset) {
+        if (totalBytes == 0) {
+            return null;
+        }
+        String text = new String(buffer, 0, size, charset);
+        return isTruncated() ? text + "...[已截断，共" + totalBytes + "字节]" : text;
+    }
+
+
+    private void append(int b) {
+        totalBytes++;
+        if (size < buffer.length) {
+            buffer[size++] = (byte) b;
+        }
+    }
+
+    private void append(byte[] b, int off, int len) {
+        totalBytes += len;
+        int n = Math.min(len, buffer.length - size);
+        if (n > 0) {
+            System.arraycopy(b, off, buffer, size, n);
+            size += n;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.uniops.core.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * BoundedTextWriter 定长的序列化输出
+ * HEAD模式只保留前N个字符，写满后抛出LimitReachedException中止序列化，后面的内容不再生成；
+ * HEAD_TAIL模式保留前一半和最后一半，中间部分只计数，需要序列化完整个对象但内存占用固定
+ *
+ * @author liyang
+ * @since 2026/2/23
+ */
+public class BoundedTextWriter extends Writer {
+
+    /**
+     * 写满后中止序列化的信号，不是真正的错误
+     */
+    public static class LimitReachedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public LimitReachedException() {
+            super("序列化内容超出上限", null);
+        }
+    }
+
+    private final StringBuilder head;
+    private final int headLimit;
+    private final char[] tail;
+    private final boolean stopAtLimit;
+    private long total;
+    private long tailWritten;
+    private boolean limitReached;
+
+    /**
+     * @param maxChars 保留的最大字符数
+     * @param keepTail 是否保留末尾，为false时写满即中止
+     */
+    public BoundedTextWriter(int maxChars, boolean keepTail) {
+        int max = Math.max(0, maxChars);
+        this.headLimit = keepTail ? max - max / 2 : max;
+        this.head = new StringBuilder(Math.min(headLimit, 1024));
+        this.tail = new char[keepTail ? max / 2 : 0];
+        this.stopAtLimit = !keepTail;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (limitReached && stopAtLimit) {
+            throw new LimitReachedException();
+        }
+        total += len;
+        int toHead = Math.min(len, headLimit - head.length());
+        if (toHead > 0) {
+            head.append(cbuf, off, toHead);
+        }
+        if (toHead == len) {
+            return;
+        }
+        limitReached = true;
+        if (stopAtLimit) {
+            throw new LimitReachedException();
+        }
+        appendTail(cbuf, off + toHead, len - toHead);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    /**
+     * 保留的内容，截断时注明：HEAD模式总长度未知，HEAD_TAIL模式注明总长度并接上末尾
+     */
+    @Override
+    public String toString() {
+        if (!limitReached) {
+            return head.toString();
+        }
+        if (stopAtLimit) {
+            return head + "...[已截断]";
+        }
+        StringBuilder result = new StringBuilder(head.length() + tail.length + 32);
+        result.append(head);
+        // 总长度刚好不超过上限时开头和末尾之间没有丢内容，不加截断说明
+        if (total > headLimit + tail.length) {
+            result.append("...[已截断，共").append(total).append("字符]...");
+        }
+        int tailSize = (int) Math.min(tailWritten, tail.length);
+        int start = (int) ((tailWritten - tailSize) % Math.max(1, tail.length));
+        for (int i = 0; i < tailSize; i++) {
+            result.append(tail[(start + i) % tail.length]);
+        }
+        return result.toString();
+    }
+
+    /**
+     * 末尾用环形数组保存，只保留最后写入的tail.length个字符
+     */
+    private void appendTail(char[] cbuf, int off, int len) {
+        if (tail.length == 0) {
+            return;
+        }
+        int skip = Math.max(0, len - tail.length);
+        tailWritten += skip;
+        for (int i = off + skip; i < off + len; i++) {
+            tail[(int) (tailWritten % tail.length)] = cbuf[i];
+            tailWritten++;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.uniops.core.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * CapturePolicy 日志报文的采集策略
+ * 决定接口日志的入参/返参和第三方调用的请求/响应报文保存多少：按接口路径前缀或第三方名称取规则，
+ * 超出长度的按HEAD或HEAD_TAIL截断，成功和失败的调用分别按比例采样。未采样的调用照常写日志行，只是不保存报文，
+ * 统计和链路查询不受影响
+ *
+ * @author liyang
+ * @since 2026/2/23
+ */
+@Component
+public class CapturePolicy {
+
+    /**
+     * 未采样时报文字段写入的内容
+     */
+    public static final String NOT_SAMPLED = "[未采样]";
+
+    /**
+     * 截断方式
+     */
+    public enum TruncateMode {
+        /**
+         * 只保留开头，超出后不再序列化
+         */
+        HEAD,
+        /**
+         * 保留开头和结尾各一半
+         */
+        HEAD_TAIL
+    }
+
+    /**
+     * 生效的规则
+     *
+     * @param maxChars 最多保存的字符数
+     */
+    public record Rule(int maxChars, TruncateMode truncateMode, double successSampleRate, double errorSampleRate) {
+    }
+
+    /**
+     * 调用开始前抽取的采样结果，结束后按调用是否成功取对应的结果
+     *
+     * @param success 调用成功时是否保存报文
+     * @param error   调用失败时是否保存报文
+     */
+    public record Sampling(boolean success, boolean error) {
+
+        public boolean sampled(boolean ok) {
+            return ok ? success : error;
+        }
+
+        /**
+         * 无论成功失败都不保存报文，入参可以不序列化
+         */
+        public boolean none() {
+            return !success && !error;
+        }
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Resource
+    UniOpsProperties uniOpsProperties;
+
+    /**
+     * 接口日志的规则，按请求URI最长前缀匹配uniops.capture.paths
+     */
+    public Rule forHttpPath(String path) {
+        UniOpsProperties.Capture config = uniOpsProperties.getCapture();
+        UniOpsProperties.CaptureRule override = null;
+        int longest = -1;
+        if (path != null) {
+            for (Map.Entry<String, UniOpsProperties.CaptureRule> entry : config.getPaths().entrySet()) {
+                String prefix = entry.getKey();
+                if (prefix.length() > longest && path.startsWith(prefix)) {
+                    override = entry.getValue();
+                    longest = prefix.length();
+                }
+            }
+        }
+        return merge(config, override);
+    }
+
+    /**
+     * 第三方调用日志的规则，按名称匹配uniops.capture.third-parties
+     */
+    public Rule forThirdParty(String thirdPartyName) {
+        UniOpsProperties.Capture config = uniOpsProperties.getCapture();
+        return merge(config, thirdPartyName == null ? null : config.getThirdParties().get(thirdPartyName));
+    }
+
+    /**
+     * 本次调用是否保存报文
+     */
+    public boolean sample(Rule rule, boolean success) {
+        return hit(success ? rule.successSampleRate() : rule.errorSampleRate(), ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * 调用结果未知时先抽样，成功和失败共用一次随机数，各自的采样比例不变
+     */
+    public Sampling sample(Rule rule) {
+        double draw = ThreadLocalRandom.current().nextDouble();
+        return new Sampling(hit(rule.successSampleRate(), draw), hit(rule.errorSampleRate(), draw));
+    }
+
+    private static boolean hit(double rate, double draw) {
+        return rate >= 1 || (rate > 0 && draw < rate);
+    }
+
+    /**
+     * 序列化为JSON，只生成规则允许保存的部分
+     *
+     * @return 序列化失败时返回fallback
+     */
+    public String serialize(Object value, Rule rule, String fallback) {
+        if (value == null) {
+            return null;
+        }
+        BoundedTextWriter writer = new BoundedTextWriter(rule.maxChars(), rule.truncateMode() == TruncateMode.HEAD_TAIL);
+        try {
+            objectMapper.writeValue(writer, value);
+        } catch (Exception e) {
+            // HEAD模式写满后由writer主动中止，已保留的部分就是结果
+            if (!writer.isLimitReached()) {
+                return fallback;
+            }
+        }
+        return writer.toString();
+    }
+
+    /**
+     * 已经是字符串的报文按规则截断
+     */
+    public String truncate(String text, Rule rule) {
+        if (text == null || text.length() <= rule.maxChars()) {
+            return text;
+        }
+        int max = Math.max(0, rule.maxChars());
+        if (rule.truncateMode() == TruncateMode.HEAD_TAIL) {
+            int headSize = max - max / 2;
+            return text.substring(0, headSize) + "...[已截断，共" + text.length() + "字符]..."
+                    + text.substring(text.length() - max / 2);
+        }
+        return text.substring(0, max) + "...[已截断，共" + text.length() + "字符]";
+    }
+
+    private static Rule merge(UniOpsProperties.Capture config, UniOpsProperties.CaptureRule override) {
+        if (override == null) {
+            return new Rule(config.getMaxChars(), config.getTruncateMode(),
+                    config.getSuccessSampleRate(), config.getErrorSampleRate());
+        }
+        return new Rule(
+                override.getMaxChars() != null ? override.getMaxChars() : config.getMaxChars(),
+                override.getTruncateMode() != null ? override.getTruncateMode() : config.getTruncateMode(),
+                override.getSuccessSampleRate() != null ? override.getSuccessSampleRate() : config.getSuccessSampleRate(),
+                override.getErrorSampleRate() != null ? override.getErrorSampleRate() : config.getErrorSampleRate());
+    }
+}
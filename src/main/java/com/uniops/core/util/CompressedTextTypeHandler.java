@@ -0,0 +1,122 @@
+package com.uniops.core.util;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * CompressedTextTypeHandler 日志大字段压缩存储
+ * 写入时超过阈值的文本用deflate压缩后转Base64，加前缀标记；读取时有标记的解压，没有标记的原样返回，
+ * 压缩前写入的旧数据不需要迁移也能正常读取。只在实体字段上通过@TableField(typeHandler)指定，不注册为String的默认处理器
+ *
+ * @author liyang
+ * @since 2026/2/24
+ */
+public class CompressedTextTypeHandler extends BaseTypeHandler<String> {
+
+    /**
+     * 压缩内容的前缀，1为格式版本
+     */
+    public static final String MARKER = "~z1:";
+
+    /**
+     * 由MyBatis实例化，配置通过静态方法在启动时设置
+     */
+    private static volatile boolean enabled = true;
+    private static volatile int thresholdChars = 1024;
+
+    public static void configure(boolean enabled, int thresholdChars) {
+        CompressedTextTypeHandler.enabled = enabled;
+        CompressedTextTypeHandler.thresholdChars = thresholdChars;
+    }
+
+    public static int getThresholdChars() {
+        return thresholdChars;
+    }
+
+    /**
+     * 压缩文本，未开启、未达到阈值或压缩后没有变短时返回原文
+     */
+    public static String compress(String text) {
+        if (!enabled || text == null || text.length() < thresholdChars || text.startsWith(MARKER)) {
+            return text;
+        }
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            String compressed = MARKER + Base64.getEncoder().encodeToString(out.toByteArray());
+            return compressed.length() < text.length() ? compressed : text;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 解压文本，没有标记的原样返回，解压失败时也返回原值，不影响日志查询
+     */
+    public static String decompress(String value) {
+        if (value == null || !value.startsWith(MARKER)) {
+            return value;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(Base64.getDecoder().decode(value.substring(MARKER.length())));
+            ByteArrayOutputStream out = new ByteArrayOutputStream(value.length() * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, n);
+            }
+            // 数据被截断时解不完整，同样按解压失败处理
+            return inflater.finished() ? out.toString(StandardCharsets.UTF_8) : value;
+        } catch (DataFormatException | IllegalArgumentException e) {
+            return value;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public static boolean isCompressed(String value) {
+        return value != null && value.startsWith(MARKER);
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) throws SQLException {
+        ps.setString(i, compress(parameter));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return decompress(rs.getString(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return decompress(rs.getString(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return decompress(cs.getString(columnIndex));
+    }
+}
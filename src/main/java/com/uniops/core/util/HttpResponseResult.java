@@ -0,0 +1,44 @@
+package com.uniops.core.util;
+
+import java.util.Map;
+
+/**
+ * 响应结果封装类
+ */
+public class HttpResponseResult {
+    private boolean success;
+    private Integer statusCode;
+    private String responseBody;
+    private Map<String, String> responseHeaders;
+    private String errorMessage;
+
+    public HttpResponseResult(boolean success, Integer statusCode, String responseBody,
+                              Map<String, String> responseHeaders, String errorMessage) {
+        this.success = success;
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+        this.responseHeaders = responseHeaders;
+        this.errorMessage = errorMessage;
+    }
+
+    // Getter方法
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public Map<String, String> getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
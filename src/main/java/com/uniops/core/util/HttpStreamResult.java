@@ -0,0 +1,49 @@
+package com.uniops.core.util;
+
+import java.util.Map;
+
+/**
+ * 流式调用结果封装类，响应体由调用方的处理函数消费，这里只保存处理结果
+ *
+ * @author liyang
+ * @since 2026/2/22
+ */
+public class HttpStreamResult<T> {
+    private final boolean success;
+    private final Integer statusCode;
+    private final T value;
+    private final Map<String, String> responseHeaders;
+    private final String errorMessage;
+
+    public HttpStreamResult(boolean success, Integer statusCode, T value,
+                            Map<String, String> responseHeaders, String errorMessage) {
+        this.success = success;
+        this.statusCode = statusCode;
+        this.value = value;
+        this.responseHeaders = responseHeaders;
+        this.errorMessage = errorMessage;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * 处理函数的返回值
+     */
+    public T getValue() {
+        return value;
+    }
+
+    public Map<String, String> getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -0,0 +1,228 @@
+package com.uniops.core.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram 耗时直方图
+ * 对数-线性分桶（与HdrHistogram相同的思路）：每个2的幂区间再等分16个桶，相对误差约6%，
+ * 记录无锁，同样分桶的直方图可以直接相加合并
+ *
+ * @author liyang
+ * @since 2026/2/15
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 可记录的最大值为2^36毫秒，超出按最大值记录
+     */
+    private static final int MAX_MAGNITUDE = 36;
+    public static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+
+    public static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_MAGNITUDE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        long v = Math.min(Math.max(0, value), MAX_VALUE);
+        counts.incrementAndGet(indexOf(v));
+        totalCount.increment();
+        totalSum.add(v);
+        maxValue.accumulate(v);
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getSum() {
+        return totalSum.sum();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * 当前各桶计数的拷贝
+     */
+    public long[] snapshot() {
+        long[] result = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            result[i] = counts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * 把当前计数累加到target上
+     */
+    public void addTo(long[] target) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                target[i] += c;
+            }
+        }
+    }
+
+    /**
+     * 计算百分位值
+     *
+     * @param buckets    各桶计数
+     * @param percentile 0-100
+     * @return 所在桶的上界，没有数据时返回0
+     */
+    public static long valueAtPercentile(long[] buckets, double percentile) {
+        long total = 0;
+        for (long c : buckets) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(buckets.length - 1);
+    }
+
+    /**
+     * 值所在的桶
+     */
+    public static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + sub;
+    }
+
+    /**
+     * 桶能表示的最大值
+     */
+    public static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        long sub = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * 稀疏快照，只保存非零的桶，用于按分钟/小时保留和持久化
+     *
+     * @param indexes 非零桶下标，升序
+     * @param counts  对应的计数
+     * @param max     记录到的最大值
+     */
+    public record Snapshot(int[] indexes, long[] counts, long max) {
+
+        public static final Snapshot EMPTY = new Snapshot(new int[0], new long[0], 0);
+
+        public static Snapshot of(long[] buckets, long max) {
+            int n = 0;
+            for (long c : buckets) {
+                if (c != 0) {
+                    n++;
+                }
+            }
+            int[] indexes = new int[n];
+            long[] counts = new long[n];
+            int j = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                if (buckets[i] != 0) {
+                    indexes[j] = i;
+                    counts[j] = buckets[i];
+                    j++;
+                }
+            }
+            return new Snapshot(indexes, counts, max);
+        }
+
+        public long totalCount() {
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            return total;
+        }
+
+        public void addTo(long[] target) {
+            for (int i = 0; i < indexes.length; i++) {
+                target[indexes[i]] += counts[i];
+            }
+        }
+
+        /**
+         * 编码为base64文本：桶数量，之后每个桶为(下标增量, 计数)，均为变长整数
+         */
+        public String encode() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(indexes.length * 3 + 2);
+            writeVarLong(out, indexes.length);
+            int previous = 0;
+            for (int i = 0; i < indexes.length; i++) {
+                writeVarLong(out, indexes[i] - previous);
+                writeVarLong(out, counts[i]);
+                previous = indexes[i];
+            }
+            return Base64.getEncoder().encodeToString(out.toByteArray());
+        }
+
+        public static Snapshot decode(String text, long max) {
+            if (text == null || text.isEmpty()) {
+                return EMPTY;
+            }
+            byte[] data = Base64.getDecoder().decode(text);
+            int[] pos = {0};
+            int n = (int) readVarLong(data, pos);
+            int[] indexes = new int[n];
+            long[] counts = new long[n];
+            int previous = 0;
+            for (int i = 0; i < n; i++) {
+                previous += (int) readVarLong(data, pos);
+                indexes[i] = previous;
+                counts[i] = readVarLong(data, pos);
+            }
+            return new Snapshot(indexes, counts, max);
+        }
+
+        private static void writeVarLong(ByteArrayOutputStream out, long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        private static long readVarLong(byte[] data, int[] pos) {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                byte b = data[pos[0]++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+    }
+}
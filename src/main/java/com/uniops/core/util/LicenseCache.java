@@ -2,51 +2,56 @@ package com.uniops.core.util;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * LicenseCache 类的简要描述
+ * LicenseCache 授权信息本地缓存
+ * 每个条目自带过期时间，读写都不加锁，过期条目读取时按条件删除，另由SystemRegisterServiceImpl定时清理
  *
  * @author liyang
  * @since 2026/1/21
  */
 public class LicenseCache {
-    private static final Map<String, Object> cache = new ConcurrentHashMap<>();
-    private static final Map<String, Long> expirationMap = new ConcurrentHashMap<>();
-    private static final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private static final long NEVER_EXPIRE = Long.MAX_VALUE;
+
+    private static final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder expirations = new LongAdder();
+
+    /**
+     * 缓存条目，值和过期时间一起替换，不会出现值和过期时间不一致的中间状态
+     *
+     * @param deadline 过期时间点（毫秒），不过期为Long.MAX_VALUE
+     */
+    private record Entry(Object value, long deadline) {
+
+        boolean isExpired(long now) {
+            return now > deadline;
+        }
+    }
 
     /**
      * 将键值对放入缓存，默认不过期
      *
      * @param key   缓存键
-     * @param value 缓存值
+     * @param value 缓存值，为null时删除该键
      */
     public static void put(String key, Object value) {
-        lock.writeLock().lock();
-        try {
-            cache.put(key, value);
-            expirationMap.remove(key); // 清除过期时间
-        } finally {
-            lock.writeLock().unlock();
-        }
+        putEntry(key, value, NEVER_EXPIRE);
     }
 
     /**
      * 将键值对放入缓存，指定过期时间（毫秒）
      *
      * @param key         缓存键
-     * @param value       缓存值
+     * @param value       缓存值，为null时删除该键
      * @param expireTime 过期时间（毫秒）
      */
     public static void put(String key, Object value, long expireTime) {
-        lock.writeLock().lock();
-        try {
-            cache.put(key, value);
-            expirationMap.put(key, System.currentTimeMillis() + expireTime);
-        } finally {
-            lock.writeLock().unlock();
-        }
+        putEntry(key, value, System.currentTimeMillis() + expireTime);
     }
 
     /**
@@ -56,20 +61,13 @@ public class LicenseCache {
      * @return 缓存值，如果不存在或已过期则返回null
      */
     public static Object get(String key) {
-        lock.readLock().lock();
-        try {
-            // 检查是否已过期
-            Long expireTime = expirationMap.get(key);
-            if (expireTime != null && System.currentTimeMillis() > expireTime) {
-                // 已过期，删除缓存项
-                remove(key);
-                return null;
-            }
-
-            return cache.get(key);
-        } finally {
-            lock.readLock().unlock();
+        Entry entry = liveEntry(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
         }
+        hits.increment();
+        return entry.value();
     }
 
     /**
@@ -96,24 +94,7 @@ public class LicenseCache {
      * @return 如果存在且未过期返回true，否则返回false
      */
     public static boolean containsKey(String key) {
-        lock.readLock().lock();
-        try {
-            if (!cache.containsKey(key)) {
-                return false;
-            }
-
-            // 检查是否已过期
-            Long expireTime = expirationMap.get(key);
-            if (expireTime != null && System.currentTimeMillis() > expireTime) {
-                // 已过期，删除缓存项
-                remove(key);
-                return false;
-            }
-
-            return true;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return liveEntry(key) != null;
     }
 
     /**
@@ -123,60 +104,42 @@ public class LicenseCache {
      * @return 被删除的值，如果不存在返回null
      */
     public static Object remove(String key) {
-        lock.writeLock().lock();
-        try {
-            Object value = cache.remove(key);
-            expirationMap.remove(key);
-            return value;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        Entry entry = cache.remove(key);
+        return entry == null ? null : entry.value();
     }
 
     /**
      * 清空所有缓存项
      */
     public static void clear() {
-        lock.writeLock().lock();
-        try {
-            cache.clear();
-            expirationMap.clear();
-        } finally {
-            lock.writeLock().unlock();
-        }
+        cache.clear();
     }
 
     /**
      * 获取缓存大小
      *
-     * @return 缓存项数量
+     * @return 未过期的缓存项数量
      */
     public static int size() {
-        lock.readLock().lock();
-        try {
-            // 清理过期的项
-            cleanupExpired();
-            return cache.size();
-        } finally {
-            lock.readLock().unlock();
+        long now = System.currentTimeMillis();
+        int size = 0;
+        for (Entry entry : cache.values()) {
+            if (!entry.isExpired(now)) {
+                size++;
+            }
         }
+        return size;
     }
 
     /**
      * 清理过期的缓存项
      */
     public static void cleanupExpired() {
-        lock.writeLock().lock();
-        try {
-            expirationMap.entrySet().removeIf(entry -> {
-                if (System.currentTimeMillis() > entry.getValue()) {
-                    cache.remove(entry.getKey());
-                    return true;
-                }
-                return false;
-            });
-        } finally {
-            lock.writeLock().unlock();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Entry> e : cache.entrySet()) {
+            if (e.getValue().isExpired(now) && cache.remove(e.getKey(), e.getValue())) {
+                expirations.increment();
+            }
         }
     }
 
@@ -188,4 +151,66 @@ public class LicenseCache {
     public static boolean isEmpty() {
         return size() == 0;
     }
+
+    /**
+     * 获取缓存条数，不遍历判断过期
+     *
+     * @return 当前条数（含尚未清理的过期条目）
+     */
+    public static int entryCount() {
+        return cache.size();
+    }
+
+    /**
+     * 获取命中次数
+     *
+     * @return 启动以来get命中未过期条目的次数
+     */
+    public static long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 获取未命中次数
+     *
+     * @return 启动以来get未命中的次数（含已过期）
+     */
+    public static long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 获取过期删除的条目数
+     *
+     * @return 启动以来读取或定时清理时删除的过期条目数
+     */
+    public static long expirationCount() {
+        return expirations.sum();
+    }
+
+    private static void putEntry(String key, Object value, long deadline) {
+        if (value == null) {
+            // 空值不缓存，下次读取时重新查询
+            cache.remove(key);
+            return;
+        }
+        cache.put(key, new Entry(value, deadline));
+    }
+
+    /**
+     * 取未过期的条目，已过期的只在未被替换时删除，不会误删并发写入的新值
+     */
+    private static Entry liveEntry(String key) {
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            if (cache.remove(key, entry)) {
+                expirations.increment();
+            }
+            return null;
+        }
+        return entry;
+    }
 }
@@ -0,0 +1,100 @@
+package com.uniops.core.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * LogEntryReader 流式日志条目读取
+ * 逐行读取，只在起始行上判断traceId，命中的条目才拼接后续的多行内容，内存占用与文件大小无关
+ *
+ * @author liyang
+ * @since 2026/2/13
+ */
+public class LogEntryReader {
+
+    private final BufferedReader reader;
+
+    /**
+     * 已读出但尚未处理的下一条起始行
+     */
+    private String pendingHeader;
+
+    private boolean eof;
+
+    /**
+     * @param reader 由调用方负责关闭（zip条目流不能在这里关闭）
+     */
+    public LogEntryReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 读取下一个traceId匹配的完整条目
+     *
+     * @return 条目内容（已去除首尾空白），读到末尾返回null
+     */
+    public String nextEntry(String traceId) throws IOException {
+        if (traceId == null || traceId.isEmpty()) {
+            return null;
+        }
+        while (true) {
+            String header = nextHeader();
+            if (header == null) {
+                return null;
+            }
+            // 先做子串判断，绝大多数不相关的行不需要走正则
+            if (header.contains(traceId) && traceId.equals(LogEntryScanner.extractTraceId(header))) {
+                StringBuilder entry = new StringBuilder(header);
+                String line;
+                while ((line = readLine()) != null) {
+                    if (LogEntryScanner.isHeader(line)) {
+                        pendingHeader = line;
+                        break;
+                    }
+                    entry.append('\n').append(line);
+                }
+                return entry.toString().trim();
+            }
+            skipContinuation();
+        }
+    }
+
+    /**
+     * 定位到下一条起始行，文件开头不属于任何条目的行直接跳过
+     */
+    private String nextHeader() throws IOException {
+        if (pendingHeader != null) {
+            String header = pendingHeader;
+            pendingHeader = null;
+            return header;
+        }
+        String line;
+        while ((line = readLine()) != null) {
+            if (LogEntryScanner.isHeader(line)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private void skipContinuation() throws IOException {
+        String line;
+        while ((line = readLine()) != null) {
+            if (LogEntryScanner.isHeader(line)) {
+                pendingHeader = line;
+                return;
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        if (eof) {
+            return null;
+        }
+        String line = reader.readLine();
+        if (line == null) {
+            eof = true;
+        }
+        return line;
+    }
+}
@@ -0,0 +1,287 @@
+package com.uniops.core.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * LogEntryScanner 日志条目字节级扫描
+ * 直接在字节上识别日志条目的起始行并提取traceId，不把整份文件解码成字符串，用于构建traceId索引
+ *
+ * @author liyang
+ * @since 2026/2/12
+ */
+public final class LogEntryScanner {
+
+    /**
+     * 日志框架输出的traceId以及消息中常见的traceId写法
+     */
+    public static final Pattern TRACE_ID_PATTERN = Pattern.compile(
+            "\\[traceId=([\\w-]+)\\]|traceId=([\\w-]+)(?=\\s|$)|\"traceId\":\"([^\"]+)\"");
+
+    /**
+     * logback按平台默认编码写日志
+     */
+    public static final Charset LOG_CHARSET = Charset.defaultCharset();
+
+    private static final byte[] TRACE_ID_MARK = "[traceId=".getBytes(LOG_CHARSET);
+    private static final byte[] TRACE_ID_WORD = "traceId".getBytes(LOG_CHARSET);
+
+    /**
+     * 起始行格式：yyyy-MM-dd HH:mm:ss.SSS
+     */
+    private static final int HEADER_LENGTH = 23;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private LogEntryScanner() {
+    }
+
+    /**
+     * 条目回调
+     */
+    @FunctionalInterface
+    public interface EntryHandler {
+        /**
+         * @param offset  条目在文件中的起始位置
+         * @param length  条目字节长度（包含末尾换行）
+         * @param traceId 条目起始行中的traceId，没有则为null
+         */
+        void onEntry(long offset, int length, String traceId);
+    }
+
+    /**
+     * 扫描文件的[from, to)区间
+     *
+     * @param requireComplete 为true时最后一个条目不回调（文件仍在写入，条目可能不完整）
+     * @return 已完整回调的位置，下次增量扫描从这里开始
+     */
+    public static long scan(FileChannel channel, long from, long to, boolean requireComplete,
+                            EntryHandler handler) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        long base = from;       // buf[0]对应的文件位置
+        long readPos = from;    // 下一次从文件读取的位置
+        int len = 0;
+        int p = 0;
+        boolean skipping = false;   // 超长行，丢弃到下一个换行
+        long entryStart = -1;
+        String entryTraceId = null;
+        long partialLine = -1;      // 末尾没有换行的行的起始位置
+
+        while (true) {
+            int nl = indexOf(buf, p, len, (byte) '\n');
+            boolean eof = readPos >= to;
+            if (nl < 0 && !eof) {
+                if (skipping || (p == 0 && len == buf.length)) {
+                    if (!skipping) {
+                        // 行比缓冲区还长，起始行判断只需要行首，先判断再丢弃剩余部分
+                        if (isHeader(buf, p, len)) {
+                            if (entryStart >= 0) {
+                                handler.onEntry(entryStart, (int) (base + p - entryStart), entryTraceId);
+                            }
+                            entryStart = base + p;
+                            entryTraceId = extractTraceId(buf, p, len);
+                        }
+                        skipping = true;
+                    }
+                    base += len;
+                    p = 0;
+                    len = 0;
+                } else if (p > 0) {
+                    System.arraycopy(buf, p, buf, 0, len - p);
+                    base += p;
+                    len -= p;
+                    p = 0;
+                }
+                int n = channel.read(ByteBuffer.wrap(buf, len, (int) Math.min(buf.length - len, to - readPos)), readPos);
+                if (n < 0) {
+                    to = readPos;
+                } else {
+                    readPos += n;
+                    len += n;
+                }
+                continue;
+            }
+            if (skipping) {
+                skipping = false;
+                if (nl < 0) {
+                    break;
+                }
+                p = nl + 1;
+                continue;
+            }
+            int lineEnd = nl < 0 ? len : nl;
+            if (p < lineEnd && isHeader(buf, p, lineEnd)) {
+                long lineOffset = base + p;
+                if (entryStart >= 0) {
+                    handler.onEntry(entryStart, (int) (lineOffset - entryStart), entryTraceId);
+                }
+                entryStart = lineOffset;
+                entryTraceId = extractTraceId(buf, p, lineEnd);
+            }
+            if (nl < 0) {
+                if (p < len) {
+                    partialLine = base + p;
+                }
+                break;
+            }
+            p = nl + 1;
+        }
+
+        long end = base + len;
+        if (entryStart < 0) {
+            // 起始行还没写完整（不足23字节时无法识别），下次从这一行重新扫描，否则该条目会被跳过
+            return requireComplete && partialLine >= 0 ? partialLine : end;
+        }
+        if (requireComplete) {
+            return entryStart;
+        }
+        handler.onEntry(entryStart, (int) (end - entryStart), entryTraceId);
+        return end;
+    }
+
+    /**
+     * 判断一行是否是日志条目的起始行
+     */
+    public static boolean isHeader(byte[] buf, int from, int to) {
+        if (to - from < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HEADER_LENGTH; i++) {
+            byte b = buf[from + i];
+            switch (i) {
+                case 4, 7 -> {
+                    if (b != '-') {
+                        return false;
+                    }
+                }
+                case 10 -> {
+                    if (b != ' ' && b != '\t') {
+                        return false;
+                    }
+                }
+                case 13, 16 -> {
+                    if (b != ':') {
+                        return false;
+                    }
+                }
+                case 19 -> {
+                    if (b != '.') {
+                        return false;
+                    }
+                }
+                default -> {
+                    if (b < '0' || b > '9') {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从起始行中提取traceId，优先取日志框架输出的[traceId=xxx]
+     */
+    public static String extractTraceId(byte[] buf, int from, int to) {
+        int mark = indexOf(buf, from, to, TRACE_ID_MARK);
+        if (mark >= 0) {
+            int start = mark + TRACE_ID_MARK.length;
+            int i = start;
+            while (i < to && isTraceIdByte(buf[i])) {
+                i++;
+            }
+            if (i > start && i < to && buf[i] == ']') {
+                return new String(buf, start, i - start, LOG_CHARSET);
+            }
+        }
+        // 框架输出的traceId为空时，再按消息中的写法匹配，和原有正则保持一致
+        if (indexOf(buf, mark >= 0 ? mark + TRACE_ID_MARK.length : from, to, TRACE_ID_WORD) < 0) {
+            return null;
+        }
+        return extractTraceId(new String(buf, from, to - from, LOG_CHARSET));
+    }
+
+    /**
+     * 从起始行文本中提取traceId
+     */
+    public static String extractTraceId(CharSequence line) {
+        Matcher matcher = TRACE_ID_PATTERN.matcher(line);
+        if (matcher.find()) {
+            String traceId = matcher.group(1);
+            if (traceId == null) {
+                traceId = matcher.group(2);
+            }
+            if (traceId == null) {
+                traceId = matcher.group(3);
+            }
+            return traceId;
+        }
+        return null;
+    }
+
+    /**
+     * 判断一行文本是否是日志条目的起始行
+     */
+    public static boolean isHeader(CharSequence line) {
+        if (line.length() < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HEADER_LENGTH; i++) {
+            char c = line.charAt(i);
+            boolean ok = switch (i) {
+                case 4, 7 -> c == '-';
+                case 10 -> c == ' ' || c == '\t';
+                case 13, 16 -> c == ':';
+                case 19 -> c == '.';
+                default -> c >= '0' && c <= '9';
+            };
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * traceId的64位哈希（FNV-1a），索引文件按它排序
+     */
+    public static long hash(String traceId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < traceId.length(); i++) {
+            h ^= traceId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static boolean isTraceIdByte(byte b) {
+        return (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_' || b == '-';
+    }
+
+    private static int indexOf(byte[] buf, int from, int to, byte target) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] buf, int from, int to, byte[] target) {
+        int last = to - target.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (buf[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -3,6 +3,7 @@ package com.uniops.core.util;
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -14,118 +15,99 @@ import java.util.concurrent.atomic.AtomicLong;
 public class MDCUtil {
     public static final String TRACE_ID = "traceId";
 
+    /**
+     * 当前请求/任务的spanId，出站调用以它作为父span
+     */
+    public static final String SPAN_ID = "spanId";
+
+    /**
+     * 非W3C调用方使用的链路ID请求头，只传traceId
+     */
+    public static final String X_TRACE_ID_HEADER = "X-Trace-Id";
+
+    /**
+     * W3C Trace Context请求头
+     */
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
     /**
      * 雪花算法生成器
+     * 时间戳和毫秒内序列打包在一个AtomicLong里用CAS推进，不加锁也不自旋等待：
+     * 序列用完时直接进位到下一毫秒（借用未来时间），时钟回拨时沿用上次的时间戳继续递增，不抛异常
      */
     private static class SnowflakeGenerator {
-        // 开始时间截 (2026-01-01)，避免时间回拨问题
+        // 开始时间截 (2026-01-01)
         private static final long START_TIME = 1767225600000L; // 2026-01-01 00:00:00
 
-        // 数据中心ID所占位数
-        private static final long DATA_CENTER_ID_BITS = 2L;
-
-        // 机器ID所占位数
-        private static final long MACHINE_ID_BITS = 8L;
+        // 节点ID所占位数，与原来的数据中心ID(2位)+机器ID(8位)相同，ID格式不变
+        private static final long NODE_ID_BITS = 10L;
 
         // 序列号所占位数
         private static final long SEQUENCE_BITS = 12L;
 
-        // 数据中心ID最大值 (2^2 - 1 = 3)
-        private static final long MAX_DATA_CENTER_ID = ~(-1L << DATA_CENTER_ID_BITS);
-
-        // 机器ID最大值 (2^8 - 1 = 255)
-        private static final long MAX_MACHINE_ID = ~(-1L << MACHINE_ID_BITS);
-
-        // 序列号最大值 (2^12 - 1 = 4095)
-        private static final long MAX_SEQUENCE = ~(-1L << SEQUENCE_BITS);
+        // 节点ID最大值 (2^10 - 1 = 1023)
+        private static final long MAX_NODE_ID = ~(-1L << NODE_ID_BITS);
 
-        // 机器ID偏移量
-        private static final long MACHINE_ID_SHIFT = SEQUENCE_BITS;
+        // 序列号掩码 (2^12 - 1 = 4095)
+        private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
 
-        // 数据中心ID偏移量
-        private static final long DATA_CENTER_ID_SHIFT = SEQUENCE_BITS + MACHINE_ID_BITS;
+        // 节点ID偏移量
+        private static final long NODE_ID_SHIFT = SEQUENCE_BITS;
 
         // 时间戳偏移量
-        private static final long TIMESTAMP_LEFT_SHIFT = SEQUENCE_BITS + MACHINE_ID_BITS + DATA_CENTER_ID_BITS;
+        private static final long TIMESTAMP_LEFT_SHIFT = SEQUENCE_BITS + NODE_ID_BITS;
 
-        // 数据中心ID
-        private final long dataCenterId;
+        // 节点ID，注册成功后替换为租用的ID
+        private volatile long nodeId;
 
-        // 机器ID
-        private final long machineId;
+        // 高位为相对START_TIME的毫秒数，低12位为毫秒内序列
+        private final AtomicLong state = new AtomicLong();
 
-        // 毫秒内序列(0~4095)
-        private long sequence = 0L;
-
-        // 上次生成ID的时间截
-        private long lastTimestamp = -1L;
-
-        // 原子操作确保线程安全
-        private final AtomicLong atomicSequence = new AtomicLong(0);
+        public SnowflakeGenerator(long nodeId) {
+            setNodeId(nodeId);
+        }
 
-        public SnowflakeGenerator(long dataCenterId, long machineId) {
-            if (dataCenterId > MAX_DATA_CENTER_ID || dataCenterId < 0) {
+        void setNodeId(long nodeId) {
+            if (nodeId > MAX_NODE_ID || nodeId < 0) {
                 throw new IllegalArgumentException(
-                    String.format("数据中心ID不能大于 %d 或小于 0", MAX_DATA_CENTER_ID));
+                    String.format("节点ID不能大于 %d 或小于 0", MAX_NODE_ID));
             }
-            if (machineId > MAX_MACHINE_ID || machineId < 0) {
-                throw new IllegalArgumentException(
-                    String.format("机器ID不能大于 %d 或小于 0", MAX_MACHINE_ID));
-            }
-            this.dataCenterId = dataCenterId;
-            this.machineId = machineId;
+            this.nodeId = nodeId;
         }
 
         /**
          * 获得下一个ID (该方法是线程安全的)
          * @return Snowflake ID
          */
-        public synchronized long nextId() {
-            long timestamp = System.currentTimeMillis();
-
-            // 如果当前时间小于上一次ID生成的时间戳，说明系统时钟回退过，抛出异常
-            if (timestamp < lastTimestamp) {
-                throw new RuntimeException(
-                    String.format("时钟向后移动。拒绝生成ID直到 %d", lastTimestamp - timestamp));
-            }
-
-            // 如果是同一时间生成的，则进行毫秒内序列
-            if (lastTimestamp == timestamp) {
-                sequence = atomicSequence.incrementAndGet() & MAX_SEQUENCE;
-
-                // 毫秒内序列溢出
-                if (sequence == 0) {
-                    // 阻塞到下一毫秒,获得新的时间戳
-                    timestamp = waitNextMillis(lastTimestamp);
+        public long nextId() {
+            long next;
+            while (true) {
+                long current = state.get();
+                long now = System.currentTimeMillis() - START_TIME;
+                // 时钟前进则从新毫秒的0号序列开始；同一毫秒或时钟回拨则在上次的基础上加一，溢出自然进位到下一毫秒
+                next = now > (current >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : current + 1;
+                if (state.compareAndSet(current, next)) {
+                    break;
                 }
-            } else {
-                // 时间戳改变，毫秒内序列重置为0
-                atomicSequence.set(0);
-                sequence = 0L;
             }
-
-            // 上次生成ID的时间截
-            lastTimestamp = timestamp;
+            long timestamp = next >>> SEQUENCE_BITS;
+            long sequence = next & SEQUENCE_MASK;
 
             // 移位并通过或运算拼到一起组成64位的ID
-            return ((timestamp - START_TIME) << TIMESTAMP_LEFT_SHIFT) |
-                   (dataCenterId << DATA_CENTER_ID_SHIFT) |
-                   (machineId << MACHINE_ID_SHIFT) |
+            return (timestamp << TIMESTAMP_LEFT_SHIFT) |
+                   (nodeId << NODE_ID_SHIFT) |
                    sequence;
         }
+    }
 
-        /**
-         * 阻塞到下一毫秒，直到获得新的时间戳
-         * @param lastTimestamp 上次生成ID的时间截
-         * @return 当前时间戳
-         */
-        private long waitNextMillis(long lastTimestamp) {
-            long timestamp = System.currentTimeMillis();
-            while (timestamp <= lastTimestamp) {
-                timestamp = System.currentTimeMillis();
-            }
-            return timestamp;
-        }
+    /**
+     * 解析后的traceparent
+     *
+     * @param traceId      链路ID，由本系统生成的还原为十进制，其他系统的保持32位十六进制
+     * @param parentSpanId 上游调用的spanId，16位十六进制
+     * @param flags        采样标志，2位十六进制
+     */
+    public record Traceparent(String traceId, String parentSpanId, String flags) {
     }
 
     // 单例实例
@@ -134,11 +116,8 @@ public class MDCUtil {
     private SnowflakeGenerator generator;
 
     private MDCUtil() {
-        // 获取机器ID，使用MAC地址的一部分作为机器标识
-        long machineId = generateMachineId();
-        // 使用进程ID的一部分作为数据中心ID
-        long dataCenterId = generateDataCenterId();
-        this.generator = new SnowflakeGenerator(dataCenterId, machineId);
+        // 先用MAC地址和进程名推算一个节点ID，在注册表中租到节点ID后改用租用的ID
+        this.generator = new SnowflakeGenerator(generateFallbackNodeId());
     }
 
     public static MDCUtil getInstance() {
@@ -152,6 +131,30 @@ public class MDCUtil {
         return instance;
     }
 
+    /**
+     * 节点ID的个数，租用的ID取值为[0, NODE_ID_COUNT)
+     */
+    public static final int NODE_ID_COUNT = (int) SnowflakeGenerator.MAX_NODE_ID + 1;
+
+    /**
+     * 使用在uniops_system_register中租用的节点ID
+     */
+    public static void useNodeId(long nodeId) {
+        getInstance().generator.setNodeId(nodeId);
+    }
+
+    public static long getNodeId() {
+        return getInstance().generator.nodeId;
+    }
+
+    /**
+     * 推算节点ID：进程名哈希取2位作为高位，MAC地址取8位作为低位，和原来的数据中心ID+机器ID一致
+     * @return 节点ID
+     */
+    private long generateFallbackNodeId() {
+        return (generateDataCenterId() << 8) | generateMachineId();
+    }
+
     /**
      * 生成机器ID
      * @return 机器ID
@@ -181,8 +184,7 @@ public class MDCUtil {
         try {
             String processName = ManagementFactory.getRuntimeMXBean().getName();
             // 使用进程名的一部分作为数据中心ID
-            int hash = processName.hashCode();
-            return Math.abs(hash) % 4; // 限制在0-3之间
+            return Math.floorMod(processName.hashCode(), 4); // 限制在0-3之间
         } catch (Exception e) {
             // 如果获取失败，使用默认值
             return 1;
@@ -196,4 +198,140 @@ public class MDCUtil {
     public static String generateTraceId() {
         return String.valueOf(getInstance().generator.nextId());
     }
+
+    /**
+     * 外部传入的traceId是否可用：1-64位字母、数字、下划线或中划线，和日志检索识别的字符一致
+     */
+    public static boolean isValidTraceId(String traceId) {
+        if (traceId == null || traceId.isEmpty() || traceId.length() > 64) {
+            return false;
+        }
+        for (int i = 0; i < traceId.length(); i++) {
+            char c = traceId.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '-')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 生成spanId，16位十六进制，可直接用于traceparent
+     */
+    public static String generateSpanId() {
+        return toHex16(getInstance().generator.nextId());
+    }
+
+    /**
+     * 组装W3C traceparent：00-{32位traceId}-{16位spanId}-01
+     * 十进制的雪花ID左侧补零为32位十六进制，其他系统传入的32位十六进制原样使用
+     *
+     * @return traceId或spanId格式不合法时返回null
+     */
+    public static String toTraceparent(String traceId, String spanId) {
+        String hexTraceId = toW3cTraceId(traceId);
+        if (hexTraceId == null || spanId == null || spanId.length() != 16 || !isLowerHex(spanId)) {
+            return null;
+        }
+        return "00-" + hexTraceId + "-" + spanId + "-01";
+    }
+
+    /**
+     * 按名称取请求头的值，HTTP请求头名称不区分大小写
+     *
+     * @return 没有该请求头时返回null
+     */
+    public static String headerValue(Map<String, String> headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        String value = headers.get(name);
+        if (value != null) {
+            return value;
+        }
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 解析W3C traceparent
+     *
+     * @return 格式不合法时返回null
+     */
+    public static Traceparent parseTraceparent(String header) {
+        if (header == null) {
+            return null;
+        }
+        String value = header.trim();
+        // version(2)-traceId(32)-parentId(16)-flags(2)，后续版本可能在末尾追加字段
+        if (value.length() < 55 || value.charAt(2) != '-' || value.charAt(35) != '-' || value.charAt(52) != '-'
+                || (value.length() > 55 && value.charAt(55) != '-')) {
+            return null;
+        }
+        String version = value.substring(0, 2);
+        String traceId = value.substring(3, 35);
+        String parentId = value.substring(36, 52);
+        String flags = value.substring(53, 55);
+        if (!isLowerHex(version) || "ff".equals(version) || !isLowerHex(traceId) || !isLowerHex(parentId)
+                || !isLowerHex(flags) || isAllZero(traceId) || isAllZero(parentId)) {
+            return null;
+        }
+        return new Traceparent(fromW3cTraceId(traceId), parentId, flags);
+    }
+
+    private static String toW3cTraceId(String traceId) {
+        if (traceId == null || traceId.isEmpty()) {
+            return null;
+        }
+        if (traceId.length() == 32 && isLowerHex(traceId) && !isAllZero(traceId)) {
+            return traceId;
+        }
+        try {
+            long id = Long.parseLong(traceId);
+            return id <= 0 ? null : "0000000000000000" + toHex16(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 高16位全为0且低位是正数时是本系统生成的ID，还原为十进制，和日志里的traceId保持一致
+     */
+    private static String fromW3cTraceId(String hexTraceId) {
+        if (hexTraceId.startsWith("0000000000000000")) {
+            long id = Long.parseUnsignedLong(hexTraceId.substring(16), 16);
+            if (id > 0) {
+                return String.valueOf(id);
+            }
+        }
+        return hexTraceId;
+    }
+
+    private static String toHex16(long value) {
+        String hex = Long.toHexString(value);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    private static boolean isLowerHex(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAllZero(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,204 @@
+package com.uniops.core.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * MappedLogMatcher 基于内存映射的traceId字节匹配
+ * 直接在映射的字节上查找traceId，命中后才向前后扩展到条目边界并解码该条目，不解码其余内容
+ *
+ * @author liyang
+ * @since 2026/2/13
+ */
+public final class MappedLogMatcher {
+
+    /**
+     * 单个映射窗口1GB，超过2GB的文件分多个窗口映射
+     */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /**
+     * 起始行格式yyyy-MM-dd HH:mm:ss.SSS的长度
+     */
+    private static final int HEADER_LENGTH = 23;
+
+    private MappedLogMatcher() {
+    }
+
+    /**
+     * 查找起始行traceId等于指定值的所有条目
+     * 按traceId的两种写法（traceId=xxx 和 "traceId":"xxx"）整体查找，用Horspool按needle长度跳跃，
+     * 不会在时间戳等数字上频繁命中首字节
+     *
+     * @param handler 接收解码后的完整条目，按文件顺序回调
+     */
+    public static void find(FileChannel channel, String traceId, Consumer<String> handler) throws IOException {
+        if (traceId == null || traceId.isBlank()) {
+            return;
+        }
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        byte[][] needles = {
+                ("traceId=" + traceId).getBytes(LogEntryScanner.LOG_CHARSET),
+                ("\"traceId\":\"" + traceId).getBytes(LogEntryScanner.LOG_CHARSET)
+        };
+        int[][] shifts = {shiftTable(needles[0]), shiftTable(needles[1])};
+        Segments data = new Segments(channel, size);
+        long[] next = {data.indexOf(needles[0], shifts[0], 0), data.indexOf(needles[1], shifts[1], 0)};
+        // 已处理到的位置，同一行/同一条目中的后续命中直接跳过
+        long processed = 0;
+        while (true) {
+            int k = next[0] < 0 ? 1 : next[1] < 0 || next[0] <= next[1] ? 0 : 1;
+            long pos = next[k];
+            if (pos < 0) {
+                break;
+            }
+            if (pos >= processed) {
+                long lineStart = data.lineStart(pos);
+                long lineEnd = data.lineEnd(pos);
+                processed = lineEnd;
+                // 和原有逻辑一致，只认起始行上的traceId，续行中出现的不算
+                if (data.isHeader(lineStart, lineEnd)) {
+                    byte[] header = data.bytes(lineStart, lineEnd);
+                    if (traceId.equals(LogEntryScanner.extractTraceId(header, 0, header.length))) {
+                        long entryEnd = data.entryEnd(lineEnd);
+                        handler.accept(new String(data.bytes(lineStart, entryEnd), LogEntryScanner.LOG_CHARSET).trim());
+                        processed = entryEnd;
+                    }
+                }
+            }
+            next[k] = data.indexOf(needles[k], shifts[k], Math.max(pos + 1, processed));
+            int other = 1 - k;
+            if (next[other] >= 0 && next[other] < processed) {
+                next[other] = data.indexOf(needles[other], shifts[other], processed);
+            }
+        }
+    }
+
+    /**
+     * Horspool跳转表：文本中与needle末字节对齐的字节决定可以跳过多少
+     */
+    private static int[] shiftTable(byte[] needle) {
+        int[] shift = new int[256];
+        Arrays.fill(shift, needle.length);
+        for (int i = 0; i < needle.length - 1; i++) {
+            shift[needle[i] & 0xff] = needle.length - 1 - i;
+        }
+        return shift;
+    }
+
+    /**
+     * 按窗口映射的整个文件，提供跨窗口的按位置访问
+     */
+    private static final class Segments {
+        private final MappedByteBuffer[] buffers;
+        private final long size;
+
+        Segments(FileChannel channel, long size) throws IOException {
+            this.size = size;
+            int count = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+            this.buffers = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long offset = (long) i << SEGMENT_SHIFT;
+                buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(SEGMENT_SIZE, size - offset));
+            }
+        }
+
+        byte at(long pos) {
+            return buffers[(int) (pos >>> SEGMENT_SHIFT)].get((int) (pos & SEGMENT_MASK));
+        }
+
+        /**
+         * 从from开始查找needle，没有时返回-1
+         */
+        long indexOf(byte[] needle, int[] shift, long from) {
+            int last = needle.length - 1;
+            byte tail = needle[last];
+            for (long i = from; i + last < size; ) {
+                byte b = at(i + last);
+                if (b == tail && matches(i, needle)) {
+                    return i;
+                }
+                i += shift[b & 0xff];
+            }
+            return -1;
+        }
+
+        private boolean matches(long pos, byte[] needle) {
+            for (int j = 0; j < needle.length - 1; j++) {
+                if (at(pos + j) != needle[j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long lineStart(long pos) {
+            for (long p = pos - 1; p >= 0; p--) {
+                if (at(p) == '\n') {
+                    return p + 1;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return 行尾换行符的位置，没有换行时为文件末尾
+         */
+        long lineEnd(long pos) {
+            for (long p = pos; p < size; p++) {
+                if (at(p) == '\n') {
+                    return p;
+                }
+            }
+            return size;
+        }
+
+        boolean isHeader(long lineStart, long lineEnd) {
+            if (lineEnd - lineStart < HEADER_LENGTH) {
+                return false;
+            }
+            return LogEntryScanner.isHeader(bytes(lineStart, lineStart + HEADER_LENGTH), 0, HEADER_LENGTH);
+        }
+
+        /**
+         * 条目结束位置，即下一条起始行的开头
+         */
+        long entryEnd(long headerLineEnd) {
+            long p = headerLineEnd;
+            while (p < size) {
+                long nextStart = p + 1;
+                if (nextStart >= size) {
+                    return size;
+                }
+                long nextEnd = lineEnd(nextStart);
+                if (isHeader(nextStart, nextEnd)) {
+                    return nextStart;
+                }
+                p = nextEnd;
+            }
+            return size;
+        }
+
+        byte[] bytes(long from, long to) {
+            byte[] result = new byte[(int) (to - from)];
+            int copied = 0;
+            while (copied < result.length) {
+                long pos = from + copied;
+                MappedByteBuffer buf = buffers[(int) (pos >>> SEGMENT_SHIFT)];
+                int index = (int) (pos & SEGMENT_MASK);
+                int length = Math.min(result.length - copied, buf.limit() - index);
+                buf.get(index, result, copied, length);
+                copied += length;
+            }
+            return result;
+        }
+    }
+}
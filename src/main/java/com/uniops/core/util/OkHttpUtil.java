@@ -1,34 +1,71 @@
 // src/main/java/com/uniops/core/util/OkHttpUtil.java
 package com.uniops.core.util;
 
+import com.uniops.core.cache.CircuitBreakerManager;
+import com.uniops.core.cache.ResponseCacheManager;
 import com.uniops.core.service.ThirdPartyHttpLogService;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 @Component
+@Slf4j
 public class OkHttpUtil {
 
     @Autowired
     private ThirdPartyHttpLogService thirdPartyHttpLogService;
-
-    private final OkHttpClient defaultHttpClient;
-
-    public OkHttpUtil() {
+    @Resource
+    UniOpsProperties uniOpsProperties;
+    @Resource
+    CircuitBreakerManager circuitBreakerManager;
+    @Resource
+    ResponseCacheManager responseCacheManager;
+    @Resource
+    CapturePolicy capturePolicy;
+
+    private OkHttpClient defaultHttpClient;
+
+    @PostConstruct
+    public void init() {
+        UniOpsProperties.HttpClient config = uniOpsProperties.getHttpClient();
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
         this.defaultHttpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
-                .writeTimeout(60, TimeUnit.SECONDS)
+                .connectTimeout(config.getConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(config.getReadTimeoutMs(), TimeUnit.MILLISECONDS)
+                .writeTimeout(config.getWriteTimeoutMs(), TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(config.getMaxIdleConnections(), config.getKeepAliveMs(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
                 .build();
     }
 
+    @PreDestroy
+    public void destroy() {
+        defaultHttpClient.dispatcher().executorService().shutdown();
+        defaultHttpClient.connectionPool().evictAll();
+    }
+
     /**
      * 发送GET请求并记录日志
+     * 配置了uniops.response-cache.ttl-ms的第三方会缓存成功响应并合并相同的并发请求，命中时不发请求也不记录日志
      *
      * @param thirdPartyName 第三方服务名称
      * @param url            请求URL
@@ -36,7 +73,8 @@ public class OkHttpUtil {
      * @return 响应结果
      */
     public HttpResponseResult get(String thirdPartyName, String url, Map<String, String> headers) {
-        return executeHttpRequest(thirdPartyName, url, "GET", headers, null, null);
+        return responseCacheManager.load(thirdPartyName, url, headers,
+                () -> executeHttpRequest(thirdPartyName, url, "GET", headers, null, null, null));
     }
 
     /**
@@ -49,7 +87,7 @@ public class OkHttpUtil {
      * @return 响应结果
      */
     public HttpResponseResult post(String thirdPartyName, String url, Map<String, String> headers, String body) {
-        return executeHttpRequest(thirdPartyName, url, "POST", headers, null, body);
+        return executeHttpRequest(thirdPartyName, url, "POST", headers, null, body, null);
     }
 
     /**
@@ -62,7 +100,7 @@ public class OkHttpUtil {
      * @return 响应结果
      */
     public HttpResponseResult postForm(String thirdPartyName, String url, Map<String, String> headers, Map<String, String> formParams) {
-        return executeHttpRequest(thirdPartyName, url, "POST", headers, formParams, null);
+        return executeHttpRequest(thirdPartyName, url, "POST", headers, formParams, null, null);
     }
 
     /**
@@ -75,7 +113,7 @@ public class OkHttpUtil {
      * @return 响应结果
      */
     public HttpResponseResult put(String thirdPartyName, String url, Map<String, String> headers, String body) {
-        return executeHttpRequest(thirdPartyName, url, "PUT", headers, null, body);
+        return executeHttpRequest(thirdPartyName, url, "PUT", headers, null, body, null);
     }
 
     /**
@@ -87,7 +125,7 @@ public class OkHttpUtil {
      * @return 响应结果
      */
     public HttpResponseResult delete(String thirdPartyName, String url, Map<String, String> headers) {
-        return executeHttpRequest(thirdPartyName, url, "DELETE", headers, null, null);
+        return executeHttpRequest(thirdPartyName, url, "DELETE", headers, null, null, null);
     }
 
     /**
@@ -100,7 +138,154 @@ public class OkHttpUtil {
      * @return 响应结果
      */
     public HttpResponseResult patch(String thirdPartyName, String url, Map<String, String> headers, String body) {
-        return executeHttpRequest(thirdPartyName, url, "PATCH", headers, null, body);
+        return executeHttpRequest(thirdPartyName, url, "PATCH", headers, null, body, null);
+    }
+
+    /**
+     * 发送请求并记录日志，可单独指定本次调用的超时
+     *
+     * @param timeout 整个调用（连接、写入、读取）的超时，为null时使用默认配置
+     * @return 响应结果
+     */
+    public HttpResponseResult execute(String thirdPartyName, String url, String method,
+                                      Map<String, String> headers, String body, Duration timeout) {
+        return executeHttpRequest(thirdPartyName, url, method, headers, null, body, timeout);
+    }
+
+    /**
+     * 异步发送GET请求，日志在请求完成时记录，缓存规则同get
+     */
+    public CompletableFuture<HttpResponseResult> getAsync(String thirdPartyName, String url, Map<String, String> headers) {
+        return responseCacheManager.loadAsync(thirdPartyName, url, headers,
+                () -> executeHttpRequestAsync(thirdPartyName, url, "GET", headers, null, null, null));
+    }
+
+    /**
+     * 异步发送POST请求，日志在请求完成时记录
+     */
+    public CompletableFuture<HttpResponseResult> postAsync(String thirdPartyName, String url, Map<String, String> headers, String body) {
+        return executeHttpRequestAsync(thirdPartyName, url, "POST", headers, null, body, null);
+    }
+
+    /**
+     * 异步发送POST请求（表单提交），日志在请求完成时记录
+     */
+    public CompletableFuture<HttpResponseResult> postFormAsync(String thirdPartyName, String url, Map<String, String> headers, Map<String, String> formParams) {
+        return executeHttpRequestAsync(thirdPartyName, url, "POST", headers, formParams, null, null);
+    }
+
+    /**
+     * 异步发送PUT请求，日志在请求完成时记录
+     */
+    public CompletableFuture<HttpResponseResult> putAsync(String thirdPartyName, String url, Map<String, String> headers, String body) {
+        return executeHttpRequestAsync(thirdPartyName, url, "PUT", headers, null, body, null);
+    }
+
+    /**
+     * 异步发送DELETE请求，日志在请求完成时记录
+     */
+    public CompletableFuture<HttpResponseResult> deleteAsync(String thirdPartyName, String url, Map<String, String> headers) {
+        return executeHttpRequestAsync(thirdPartyName, url, "DELETE", headers, null, null, null);
+    }
+
+    /**
+     * 异步发送PATCH请求，日志在请求完成时记录
+     */
+    public CompletableFuture<HttpResponseResult> patchAsync(String thirdPartyName, String url, Map<String, String> headers, String body) {
+        return executeHttpRequestAsync(thirdPartyName, url, "PATCH", headers, null, body, null);
+    }
+
+    /**
+     * 异步发送请求，可单独指定本次调用的超时
+     * 并发数受uniops.http-client.max-requests和max-requests-per-host限制，超出的请求在客户端排队
+     *
+     * @param timeout 整个调用（连接、写入、读取）的超时，为null时使用默认配置
+     * @return 请求完成（成功或失败）时完成的future，失败时success为false，不会异常完成
+     */
+    public CompletableFuture<HttpResponseResult> executeAsync(String thirdPartyName, String url, String method,
+                                                              Map<String, String> headers, String body, Duration timeout) {
+        return executeHttpRequestAsync(thirdPartyName, url, method, headers, null, body, timeout);
+    }
+
+    /**
+     * 流式发送GET请求，响应体交给handler边读边处理，不整体读入内存
+     *
+     * @param handler 在调用线程上执行，返回值放入结果的value
+     * @return 响应结果，handler读取失败时success为false
+     */
+    public <T> HttpStreamResult<T> getStream(String thirdPartyName, String url, Map<String, String> headers,
+                                             BodyHandler<T> handler) {
+        return executeStream(thirdPartyName, url, "GET", headers, null, null, handler);
+    }
+
+    /**
+     * 流式发送请求，适合大文件下载等响应体很大的调用
+     * 日志只保存响应体的开头（长度见uniops.capture），内存占用和响应大小无关
+     * 熔断的慢调用按收到响应头的耗时判断，并发名额一直占用到handler处理完
+     *
+     * @param timeout 整个调用的超时，为null时使用默认配置，下载大文件时注意留足时间
+     * @param handler 在调用线程上执行，返回值放入结果的value
+     * @return 响应结果，handler读取失败时success为false
+     */
+    public <T> HttpStreamResult<T> executeStream(String thirdPartyName, String url, String method,
+                                                 Map<String, String> headers, String body, Duration timeout,
+                                                 BodyHandler<T> handler) {
+        headers = withTraceHeaders(thirdPartyName, headers);
+        Request request = buildRequest(url, method, headers, null, body);
+
+        CircuitBreakerManager.Permit permit = circuitBreakerManager.acquire(thirdPartyName);
+        if (permit.isRejected()) {
+            HttpResponseResult rejected = rejected(url, method, permit);
+            return new HttpStreamResult<>(false, null, null, null, rejected.getErrorMessage());
+        }
+        // 耗时从拿到并发名额后算起，等待名额的时间不算作第三方慢
+        long startTime = System.currentTimeMillis();
+        Integer responseCode = null;
+        long headersReceivedAt = startTime;
+        // 按采集规则的长度截取，UTF-8下字节数不少于字符数；留出截断说明的长度，保存时不会被再次截断
+        BodyCapture capture = new BodyCapture(capturePolicy.forThirdParty(thirdPartyName).maxChars() - 32);
+        Charset charset = StandardCharsets.UTF_8;
+        try (Response response = client(timeout).newCall(request).execute()) {
+            headersReceivedAt = System.currentTimeMillis();
+            responseCode = response.code();
+            Map<String, String> responseHeaders = headersOf(response);
+            ResponseBody responseBody = response.body();
+            if (responseBody != null && responseBody.contentType() != null) {
+                charset = responseBody.contentType().charset(StandardCharsets.UTF_8);
+            }
+            T value;
+            try (InputStream in = capture.tee(responseBody != null ? responseBody.byteStream() : InputStream.nullInputStream())) {
+                value = handler.handle(responseCode, responseHeaders, in);
+            }
+            permit.complete(responseCode, null, headersReceivedAt - startTime);
+            logSuccessfulCall(thirdPartyName, url, method, headers, "", body,
+                    responseCode, responseHeaders, capture.toText(charset), startTime);
+            return new HttpStreamResult<>(true, responseCode, value, responseHeaders, null);
+        } catch (IOException e) {
+            String errorMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            permit.complete(responseCode, errorMessage, headersReceivedAt - startTime);
+            // 读到一半失败时保留已截取的部分，便于排查
+            thirdPartyHttpLogService.recordHttpCall(thirdPartyName, url, method, headers, "", body,
+                    responseCode, null, capture.toText(charset), errorMessage, System.currentTimeMillis() - startTime);
+            return new HttpStreamResult<>(false, responseCode, null, null, errorMessage);
+        } finally {
+            // 兜底handler抛出的运行时异常，已归还时不重复计数
+            permit.complete(responseCode, "调用异常", headersReceivedAt - startTime);
+        }
+    }
+
+    /**
+     * 流式响应体处理函数
+     */
+    @FunctionalInterface
+    public interface BodyHandler<T> {
+
+        /**
+         * @param statusCode      响应码，非2xx时同样会调用，由处理函数决定如何处理
+         * @param responseHeaders 响应头
+         * @param body            响应体，处理函数返回后自动关闭
+         */
+        T handle(int statusCode, Map<String, String> responseHeaders, InputStream body) throws IOException;
     }
 
     /**
@@ -112,12 +297,104 @@ public class OkHttpUtil {
      * @param headers        请求头
      * @param formParams     表单参数
      * @param body           请求体
+     * @param timeout        本次调用的超时，为null时使用默认配置
      * @return 响应结果
      */
     private HttpResponseResult executeHttpRequest(String thirdPartyName, String url, String method,
-                                                  Map<String, String> headers, Map<String, String> formParams, String body) {
-        Long startTime = System.currentTimeMillis();
+                                                  Map<String, String> headers, Map<String, String> formParams,
+                                                  String body, Duration timeout) {
+        // 带上链路信息，日志里记录的请求头就是实际发出的请求头
+        headers = withTraceHeaders(thirdPartyName, headers);
+        Request request = buildRequest(url, method, headers, formParams, body);
+
+        CircuitBreakerManager.Permit permit = circuitBreakerManager.acquire(thirdPartyName);
+        if (permit.isRejected()) {
+            return rejected(url, method, permit);
+        }
+        // 耗时从拿到并发名额后算起，等待名额的时间不算作第三方慢
+        long startTime = System.currentTimeMillis();
+        try (Response response = client(timeout).newCall(request).execute()) {
+            return handleResponse(thirdPartyName, url, method, headers, formParams, body, response, startTime, permit);
+        } catch (IOException e) {
+            return handleFailure(thirdPartyName, url, method, headers, formParams, body, e, startTime, permit);
+        } finally {
+            // 正常路径已在记录日志前归还，这里兜底运行时异常
+            permit.complete(null, "调用异常", System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * 异步执行，请求进入OkHttp的调度队列，读取响应和记录日志都在完成回调中进行
+     * 第三方并发名额已满时在熔断管理器中排队，拿到名额后才交给OkHttp，排队的调用不占用调度器的名额，耗时从交给OkHttp时算起
+     */
+    private CompletableFuture<HttpResponseResult> executeHttpRequestAsync(String thirdPartyName, String url, String method,
+                                                                          Map<String, String> headers, Map<String, String> formParams,
+                                                                          String body, Duration timeout) {
+        Map<String, String> requestHeaders = withTraceHeaders(thirdPartyName, headers);
+        Request request = buildRequest(url, method, requestHeaders, formParams, body);
+        // 回调线程没有调用方的MDC，日志需要的traceId/spanId在这里取出，回调时恢复
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        CompletableFuture<HttpResponseResult> future = new CompletableFuture<>();
+
+        circuitBreakerManager.acquireAsync(thirdPartyName, permit -> {
+            if (permit.isRejected()) {
+                future.complete(rejected(url, method, permit));
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            try {
+                client(timeout).newCall(request).enqueue(new Callback() {
+                    @Override
+                    public void onResponse(Call call, Response response) {
+                        withMdc(mdc, () -> {
+                            try (response) {
+                                future.complete(handleResponse(thirdPartyName, url, method, requestHeaders, formParams, body, response, startTime, permit));
+                            } catch (IOException e) {
+                                future.complete(handleFailure(thirdPartyName, url, method, requestHeaders, formParams, body, e, startTime, permit));
+                            } catch (RuntimeException e) {
+                                permit.complete(null, e.getMessage(), System.currentTimeMillis() - startTime);
+                                future.completeExceptionally(e);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        withMdc(mdc, () -> {
+                            try {
+                                future.complete(handleFailure(thirdPartyName, url, method, requestHeaders, formParams, body, e, startTime, permit));
+                            } catch (RuntimeException ex) {
+                                permit.complete(null, e.getMessage(), System.currentTimeMillis() - startTime);
+                                future.completeExceptionally(ex);
+                            }
+                        });
+                    }
+                });
+            } catch (RuntimeException e) {
+                // 许可可能在其他调用的完成线程上拿到，发起失败时不能抛给那个线程
+                permit.complete(null, e.getMessage(), System.currentTimeMillis() - startTime);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 指定了超时的调用派生一个客户端，和默认客户端共用连接池和调度器
+     */
+    private OkHttpClient client(Duration timeout) {
+        if (timeout == null) {
+            return defaultHttpClient;
+        }
+        return defaultHttpClient.newBuilder()
+                .callTimeout(timeout)
+                .readTimeout(timeout)
+                .writeTimeout(timeout)
+                .build();
+    }
 
+    private Request buildRequest(String url, String method, Map<String, String> headers,
+                                 Map<String, String> formParams, String body) {
         // 准备请求构建器
         Request.Builder requestBuilder = new Request.Builder().url(url);
 
@@ -183,39 +460,109 @@ public class OkHttpUtil {
                 break;
         }
 
-        Request request = requestBuilder.build();
-
-        try {
-            // 执行请求
-            Response response = defaultHttpClient.newCall(request).execute();
-
-            // 解析响应
-            String responseBody = response.body() != null ? response.body().string() : null;
-            int responseCode = response.code();
-            Map<String, String> responseHeaders = new HashMap<>();
-            for (String name : response.headers().names()) {
-                responseHeaders.put(name, response.headers().get(name));
-            }
+        return requestBuilder.build();
+    }
 
-            // 计算耗时
-            Long duration = System.currentTimeMillis() - startTime;
+    /**
+     * 解析响应并记录成功日志
+     */
+    private HttpResponseResult handleResponse(String thirdPartyName, String url, String method,
+                                              Map<String, String> headers, Map<String, String> formParams, String body,
+                                              Response response, long startTime,
+                                              CircuitBreakerManager.Permit permit) throws IOException {
+        // 解析响应
+        String responseBody = response.body() != null ? response.body().string() : null;
+        int responseCode = response.code();
+        permit.complete(responseCode, null, System.currentTimeMillis() - startTime);
+        Map<String, String> responseHeaders = headersOf(response);
+
+        // 记录成功日志
+        logSuccessfulCall(thirdPartyName, url, method, headers, formParams != null ? formParams.toString() : "", body,
+                responseCode, responseHeaders, responseBody, startTime);
+
+        return new HttpResponseResult(true, responseCode, responseBody, responseHeaders, null);
+    }
 
-            // 记录成功日志
-            logSuccessfulCall(thirdPartyName, url, method, headers, formParams != null ? formParams.toString() : "", body,
-                    responseCode, responseHeaders, responseBody, startTime);
+    /**
+     * 记录失败日志
+     */
+    private HttpResponseResult handleFailure(String thirdPartyName, String url, String method,
+                                             Map<String, String> headers, Map<String, String> formParams, String body,
+                                             IOException e, long startTime,
+                                             CircuitBreakerManager.Permit permit) {
+        permit.complete(null, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName(),
+                System.currentTimeMillis() - startTime);
+        logFailedCall(thirdPartyName, url, method, headers, formParams != null ? formParams.toString() : "", body,
+                e.getMessage(), startTime);
+
+        return new HttpResponseResult(false, null, null, null, e.getMessage());
+    }
 
-            return new HttpResponseResult(true, responseCode, responseBody, responseHeaders, null);
+    /**
+     * 熔断或并发超限时不发出请求，也不写调用日志，拒绝次数在熔断统计里查看
+     */
+    private HttpResponseResult rejected(String url, String method, CircuitBreakerManager.Permit permit) {
+        log.debug("[UniOps] {} {} {}", method, url, permit.getRejectReason());
+        return new HttpResponseResult(false, null, null, null, permit.getRejectReason());
+    }
 
-        } catch (IOException e) {
-            // 计算耗时
-            Long duration = System.currentTimeMillis() - startTime;
+    /**
+     * 按下标遍历响应头，同名的多个值保留最后一个
+     */
+    private Map<String, String> headersOf(Response response) {
+        Headers headers = response.headers();
+        Map<String, String> result = new HashMap<>(Math.max(16, headers.size() * 2));
+        for (int i = 0; i < headers.size(); i++) {
+            result.put(headers.name(i), headers.value(i));
+        }
+        return result;
+    }
 
-            // 记录失败日志
-            logFailedCall(thirdPartyName, url, method, headers, formParams != null ? formParams.toString() : "", body,
-                    e.getMessage(), startTime);
+    private void withMdc(Map<String, String> mdc, Runnable action) {
+        Map<String, String> previous = MDC.getCopyOfContextMap();
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        }
+        try {
+            action.run();
+        } finally {
+            if (previous != null) {
+                MDC.setContextMap(previous);
+            } else {
+                MDC.clear();
+            }
+        }
+    }
 
-            return new HttpResponseResult(false, null, null, null, e.getMessage());
+    /**
+     * 在调用方的请求头上追加traceparent和X-Trace-Id，调用方已设置的不覆盖
+     * 每次出站调用生成新的spanId作为下游的父span；当前线程没有traceId时新建一个，下游仍能串起来。
+     * 关闭传播或该第三方不接收链路请求头时原样返回
+     */
+    private Map<String, String> withTraceHeaders(String thirdPartyName, Map<String, String> headers) {
+        UniOpsProperties.HttpClient config = uniOpsProperties.getHttpClient();
+        if (!config.isPropagateTraceHeaders()
+                || (thirdPartyName != null && config.getTraceHeaderExcludedParties().contains(thirdPartyName))
+                || containsHeader(headers, MDCUtil.TRACEPARENT_HEADER)) {
+            return headers;
+        }
+        String traceId = MDC.get(MDCUtil.TRACE_ID);
+        if (traceId == null || traceId.isEmpty()) {
+            traceId = MDCUtil.generateTraceId();
         }
+        String traceparent = MDCUtil.toTraceparent(traceId, MDCUtil.generateSpanId());
+        Map<String, String> result = headers == null ? new LinkedHashMap<>() : new LinkedHashMap<>(headers);
+        if (traceparent != null) {
+            result.put(MDCUtil.TRACEPARENT_HEADER, traceparent);
+        }
+        if (!containsHeader(headers, MDCUtil.X_TRACE_ID_HEADER)) {
+            result.put(MDCUtil.X_TRACE_ID_HEADER, traceId);
+        }
+        return result;
+    }
+
+    private boolean containsHeader(Map<String, String> headers, String name) {
+        return MDCUtil.headerValue(headers, name) != null;
     }
 
     /**
@@ -245,42 +592,3 @@ public class OkHttpUtil {
                 errorMessage, duration);
     }
 }
-
-// 响应结果封装类
-class HttpResponseResult {
-    private boolean success;
-    private Integer statusCode;
-    private String responseBody;
-    private Map<String, String> responseHeaders;
-    private String errorMessage;
-
-    public HttpResponseResult(boolean success, Integer statusCode, String responseBody,
-                              Map<String, String> responseHeaders, String errorMessage) {
-        this.success = success;
-        this.statusCode = statusCode;
-        this.responseBody = responseBody;
-        this.responseHeaders = responseHeaders;
-        this.errorMessage = errorMessage;
-    }
-
-    // Getter方法
-    public boolean isSuccess() {
-        return success;
-    }
-
-    public Integer getStatusCode() {
-        return statusCode;
-    }
-
-    public String getResponseBody() {
-        return responseBody;
-    }
-
-    public Map<String, String> getResponseHeaders() {
-        return responseHeaders;
-    }
-
-    public String getErrorMessage() {
-        return errorMessage;
-    }
-}
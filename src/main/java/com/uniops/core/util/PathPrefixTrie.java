@@ -0,0 +1,90 @@
+package com.uniops.core.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * PathPrefixTrie 路径前缀字典树
+ * 构建后只读，判断路径是否以任一前缀开头只需按字符走一遍，不产生临时对象
+ *
+ * @author liyang
+ * @since 2026/2/17
+ */
+public final class PathPrefixTrie {
+
+    private static final PathPrefixTrie EMPTY = new PathPrefixTrie(new Node(new char[0], new Node[0], false));
+
+    private final Node root;
+
+    private PathPrefixTrie(Node root) {
+        this.root = root;
+    }
+
+    public static PathPrefixTrie of(Collection<String> prefixes) {
+        if (prefixes == null || prefixes.isEmpty()) {
+            return EMPTY;
+        }
+        Builder root = new Builder();
+        for (String prefix : prefixes) {
+            if (prefix == null) {
+                continue;
+            }
+            Builder node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Builder());
+            }
+            node.terminal = true;
+        }
+        return new PathPrefixTrie(root.build());
+    }
+
+    /**
+     * path从from开始的部分是否以任一前缀开头
+     */
+    public boolean matches(String path, int from) {
+        Node node = root;
+        if (node.terminal) {
+            return true;
+        }
+        for (int i = from; i < path.length(); i++) {
+            node = node.child(path.charAt(i));
+            if (node == null) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 只读节点，子节点按字符升序排列，二分查找
+     */
+    private record Node(char[] keys, Node[] children, boolean terminal) {
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index < 0 ? null : children[index];
+        }
+    }
+
+    private static final class Builder {
+        private final Map<Character, Builder> children = new TreeMap<>();
+        private boolean terminal;
+
+        Node build() {
+            char[] keys = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i] = entry.getValue().build();
+                i++;
+            }
+            return new Node(keys, nodes, terminal);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.uniops.core.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 第三方调用熔断与并发隔离统计视图对象
+ *
+ * @author liyang
+ * @since 2026/2/20
+ */
+@Data
+public class CircuitBreakerStatsVO {
+    private String thirdPartyName;      // 第三方名称
+    private String state;               // CLOSED/OPEN/HALF_OPEN
+    private LocalDateTime stateSince;   // 进入当前状态的时间
+    private int bufferedCalls;          // 窗口内的调用数
+    private int failedCalls;            // 窗口内失败（含慢调用）数
+    private double failureRate;         // 窗口内失败率（百分比）
+    private int activeCalls;            // 正在进行的调用数
+    private int queuedCalls;            // 排队等待名额的异步调用数
+    private int maxConcurrentCalls;     // 最大并发数，0表示不限制
+    private long breakerRejected;       // 熔断拒绝次数
+    private long bulkheadRejected;      // 并发超限拒绝次数
+    private long openCount;             // 熔断次数
+}
@@ -0,0 +1,19 @@
+package com.uniops.core.vo;
+
+import lombok.Data;
+
+/**
+ * 耗时百分位视图对象
+ *
+ * @author liyang
+ * @since 2026/2/15
+ */
+@Data
+public class LatencyPercentileVO {
+    private String name;        // 接口路径或第三方名称
+    private long count;         // 样本数
+    private long p50;           // 毫秒
+    private long p95;           // 毫秒
+    private long p99;           // 毫秒
+    private long max;           // 毫秒
+}
@@ -0,0 +1,17 @@
+package com.uniops.core.vo;
+
+import lombok.Data;
+
+/**
+ * 授权缓存统计视图对象
+ *
+ * @author liyang
+ * @since 2026/2/18
+ */
+@Data
+public class LicenseCacheStatsVO {
+    private int size;               // 当前条数（含尚未清理的过期条目）
+    private long hits;              // 命中次数
+    private long misses;            // 未命中次数（含已过期）
+    private long expirations;       // 过期删除的条目数
+}
@@ -0,0 +1,23 @@
+package com.uniops.core.vo;
+
+import lombok.Data;
+
+/**
+ * 实时指标视图对象
+ * 按接口路径/任务/第三方名称汇总的内存统计
+ *
+ * @author liyang
+ * @since 2026/2/15
+ */
+@Data
+public class LiveMetricVO {
+    private String name;            // 接口路径、任务(bean.method)或第三方名称
+    private long count;             // 调用次数
+    private long successCount;      // 成功次数
+    private long failedCount;       // 失败次数
+    private double avgDuration;     // 平均耗时（毫秒）
+    private long maxDuration;       // 最大耗时（毫秒）
+    private long p50;               // 今日耗时p50（毫秒），最近N分钟视图不统计
+    private long p95;               // 今日耗时p95（毫秒）
+    private long p99;               // 今日耗时p99（毫秒）
+}
@@ -0,0 +1,22 @@
+package com.uniops.core.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 日志保留清理统计视图对象
+ *
+ * @author liyang
+ * @since 2026/2/25
+ */
+@Data
+public class LogRetentionStatsVO {
+    private String tableName;           // 表名
+    private int retentionDays;          // 表的保留天数（未单独配置保留天数的应用）
+    private LocalDateTime lastRunTime;  // 最近一次运行时间
+    private long lastRemoved;           // 最近一次运行删除的行数
+    private long totalRemoved;          // 本实例启动以来删除的行数
+    private boolean resumePending;      // 上次运行超时，下次从中断位置继续
+    private String lastError;           // 最近一次运行的错误
+}
@@ -0,0 +1,23 @@
+package com.uniops.core.vo;
+
+import lombok.Data;
+
+/**
+ * 第三方GET响应缓存统计视图对象
+ *
+ * @author liyang
+ * @since 2026/2/21
+ */
+@Data
+public class ResponseCacheStatsVO {
+    private String thirdPartyName;      // 第三方名称
+    private long ttlMs;                 // 缓存时间（毫秒）
+    private int size;                   // 当前条数
+    private int maxEntries;             // 最大条数
+    private long hits;                  // 命中次数
+    private long misses;                // 未命中（实际发出请求）次数
+    private long coalesced;             // 合并到进行中请求的次数
+    private double hitRate;             // 命中率，合并的请求也算命中
+    private long expiredEvictions;      // 过期清理条数
+    private long capacityEvictions;     // 容量淘汰条数
+}
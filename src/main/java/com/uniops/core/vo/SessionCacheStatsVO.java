@@ -0,0 +1,24 @@
+package com.uniops.core.vo;
+
+import lombok.Data;
+
+/**
+ * 会话缓存统计视图对象
+ *
+ * @author liyang
+ * @since 2026/2/16
+ */
+@Data
+public class SessionCacheStatsVO {
+    private int size;                   // 当前条数
+    private int negativeSize;           // 其中无效令牌条数
+    private int maxEntries;             // 最大条数
+    private int maxNegativeEntries;     // 无效令牌最大条数
+    private long hits;                  // 命中有效会话次数
+    private long negativeHits;          // 命中无效令牌次数
+    private long misses;                // 未命中次数
+    private double hitRate;             // 命中率
+    private long expiredEvictions;      // 过期清理条数
+    private long capacityEvictions;     // 容量淘汰条数
+    private long negativeRejected;      // 无效令牌超限未缓存次数
+}
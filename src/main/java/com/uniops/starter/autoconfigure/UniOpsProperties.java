@@ -1,10 +1,16 @@
 package com.uniops.starter.autoconfigure;
 
+import com.uniops.core.util.BatchLogWriter;
+import com.uniops.core.util.CapturePolicy;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @ConfigurationProperties(prefix = "uniops")
 @Data
@@ -21,4 +27,413 @@ public class UniOpsProperties {
      * 需要认证的路径前缀,需要登录才能访问的接口的前缀,一般来说不包含content-path
      */
     private List<String> includeAuthPathPrefixes;
+    /**
+     * HTTP请求日志异步写入配置
+     */
+    private LogWriter httpLogWriter = new LogWriter();
+    /**
+     * 第三方调用日志异步写入配置
+     */
+    private LogWriter thirdPartyLogWriter = new LogWriter();
+    /**
+     * traceId日志索引配置
+     */
+    private TraceIndex traceIndex = new TraceIndex();
+    /**
+     * 统计配置
+     */
+    private Statistics statistics = new Statistics();
+    /**
+     * 定时任务监控配置
+     */
+    private ScheduledMonitor scheduledMonitor = new ScheduledMonitor();
+    /**
+     * 登录会话配置
+     */
+    private Session session = new Session();
+    /**
+     * 授权校验配置
+     */
+    private License license = new License();
+    /**
+     * OkHttpUtil客户端配置
+     */
+    private HttpClient httpClient = new HttpClient();
+    /**
+     * 第三方调用熔断与并发隔离配置
+     */
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    /**
+     * 第三方GET响应缓存配置
+     */
+    private ResponseCache responseCache = new ResponseCache();
+    /**
+     * 接口日志和第三方调用日志的报文采集配置
+     */
+    private Capture capture = new Capture();
+    /**
+     * 日志大字段压缩配置
+     */
+    private LogCompression logCompression = new LogCompression();
+    /**
+     * 日志保留清理配置
+     */
+    private Retention retention = new Retention();
+
+    /**
+     * 日志异步批量写入配置
+     */
+    @Data
+    public static class LogWriter {
+        /**
+         * 是否异步写入，关闭后退回同步逐条写入
+         */
+        private boolean enabled = true;
+        /**
+         * 内存队列容量
+         */
+        private int queueCapacity = 10000;
+        /**
+         * 单批最大条数
+         */
+        private int batchSize = 200;
+        /**
+         * 攒批最长等待时间（毫秒）
+         */
+        private long flushIntervalMs = 1000;
+        /**
+         * 队列满时的处理策略：DROP/SAMPLE/BLOCK
+         */
+        private BatchLogWriter.OverflowPolicy overflowPolicy = BatchLogWriter.OverflowPolicy.SAMPLE;
+        /**
+         * SAMPLE策略下，队列超过80%后的保留比例
+         */
+        private double sampleRate = 0.1;
+        /**
+         * BLOCK策略下的最长阻塞时间（毫秒）
+         */
+        private long blockTimeoutMs = 100;
+        /**
+         * 停机时等待队列写完的最长时间（毫秒）
+         */
+        private long shutdownTimeoutMs = 10000;
+    }
+
+    /**
+     * traceId日志索引配置
+     */
+    @Data
+    public static class TraceIndex {
+        /**
+         * 是否启用索引，关闭后检索退回全量扫描
+         */
+        private boolean enabled = true;
+        /**
+         * 索引增量刷新间隔（毫秒）
+         */
+        private long refreshIntervalMs = 10000;
+        /**
+         * 日志目录，默认和logback的LOG_PATH一致
+         */
+        private String logDir;
+        /**
+         * 检索时同时扫描的文件数
+         */
+        private int searchParallelism = 4;
+    }
+
+    /**
+     * 统计配置
+     */
+    @Data
+    public static class Statistics {
+        /**
+         * 小时统计增量写入间隔（毫秒）
+         */
+        private long rollupFlushIntervalMs = 30000;
+        /**
+         * 耗时直方图压缩分钟、写入小时数据的间隔（毫秒）
+         */
+        private long latencyTickIntervalMs = 10000;
+    }
+
+    /**
+     * 定时任务监控配置
+     */
+    @Data
+    public static class ScheduledMonitor {
+        /**
+         * 任务配置快照的兜底刷新间隔（毫秒），配置修改时会立即失效，不依赖这个间隔
+         */
+        private long configRefreshIntervalMs = 60000;
+    }
+
+    /**
+     * 登录会话配置
+     */
+    @Data
+    public static class Session {
+        /**
+         * 会话访问时间批量写回间隔（毫秒）
+         */
+        private long accessFlushIntervalMs = 30000;
+        /**
+         * 有效会话的缓存时间（毫秒）
+         */
+        private long cacheTtlMs = 300000;
+        /**
+         * 无效令牌的缓存时间（毫秒）
+         */
+        private long negativeCacheTtlMs = 30000;
+        /**
+         * 缓存最大条数
+         */
+        private int maxEntries = 10000;
+        /**
+         * 无效令牌最多缓存的条数
+         */
+        private int maxNegativeEntries = 1000;
+        /**
+         * 过期缓存清理间隔（毫秒）
+         */
+        private long cacheSweepIntervalMs = 60000;
+        /**
+         * 会话失效记录拉取间隔（毫秒），推送失败时其他实例最迟在这个间隔后清除缓存
+         */
+        private long invalidationPollIntervalMs = 1000;
+        /**
+         * 每次拉取时重新读取最近这段时间内写入的失效记录（毫秒），
+         * 多个实例并发写入时较小的id可能晚于较大的id提交，只按id增量会漏掉
+         */
+        private long invalidationOverlapMs = 30000;
+    }
+
+    /**
+     * 授权校验配置
+     */
+    @Data
+    public static class License {
+        /**
+         * 授权校验结果的刷新cron，需包含每天0点0分，授权调用和过期时会立即刷新
+         */
+        private String verdictRefreshCron = "0 */5 * * * *";
+        /**
+         * 授权缓存过期条目清理间隔（毫秒）
+         */
+        private long cacheSweepIntervalMs = 60000;
+    }
+
+    /**
+     * OkHttpUtil客户端配置
+     */
+    @Data
+    public static class HttpClient {
+        /**
+         * 连接超时（毫秒）
+         */
+        private long connectTimeoutMs = 30000;
+        /**
+         * 读超时（毫秒）
+         */
+        private long readTimeoutMs = 60000;
+        /**
+         * 写超时（毫秒）
+         */
+        private long writeTimeoutMs = 60000;
+        /**
+         * 连接池最大空闲连接数
+         */
+        private int maxIdleConnections = 20;
+        /**
+         * 空闲连接保活时间（毫秒）
+         */
+        private long keepAliveMs = 300000;
+        /**
+         * 异步调用最大并发请求数
+         */
+        private int maxRequests = 64;
+        /**
+         * 异步调用对同一主机的最大并发请求数
+         */
+        private int maxRequestsPerHost = 16;
+        /**
+         * 是否在出站请求上追加traceparent和X-Trace-Id
+         */
+        private boolean propagateTraceHeaders = true;
+        /**
+         * 不追加链路请求头的第三方名称，例如不希望暴露内部traceId的外部合作方
+         */
+        private Set<String> traceHeaderExcludedParties = new HashSet<>();
+    }
+
+    /**
+     * 第三方调用熔断与并发隔离配置，按thirdPartyName分别统计
+     */
+    @Data
+    public static class CircuitBreaker {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+        /**
+         * 统计最近多少次调用
+         */
+        private int windowSize = 50;
+        /**
+         * 窗口内至少有多少次调用才计算失败率
+         */
+        private int minimumCalls = 20;
+        /**
+         * 失败率（含慢调用）达到该百分比时熔断
+         */
+        private int failureRateThreshold = 50;
+        /**
+         * 耗时超过该值（毫秒）的调用按失败计
+         */
+        private long slowCallThresholdMs = 10000;
+        /**
+         * 熔断持续时间（毫秒），之后放行一次探测调用
+         */
+        private long openDurationMs = 30000;
+        /**
+         * 每个第三方同时进行的最大调用数，0表示不限制
+         */
+        private int maxConcurrentCalls = 0;
+        /**
+         * 同步调用等待并发名额的最长时间（毫秒），0表示不等待直接拒绝；异步调用在该第三方的队列中等待，不占用OkHttp调度名额
+         */
+        private long maxWaitMs = 0;
+        /**
+         * 按第三方名称单独设置最大并发数，大于0时对该第三方启用并发限制
+         */
+        private Map<String, Integer> maxConcurrentCallsPerParty = new HashMap<>();
+    }
+
+    /**
+     * 第三方GET响应缓存配置，只缓存在ttlMs中配置了的第三方
+     */
+    @Data
+    public static class ResponseCache {
+        /**
+         * 第三方名称 -> 缓存时间（毫秒），未配置的第三方不缓存也不合并请求
+         */
+        private Map<String, Long> ttlMs = new HashMap<>();
+        /**
+         * 每个第三方最多缓存的响应条数
+         */
+        private int maxEntriesPerParty = 1000;
+        /**
+         * 过期响应清理间隔（毫秒）
+         */
+        private long sweepIntervalMs = 60000;
+    }
+
+    /**
+     * 报文采集配置，这里是默认规则，paths和third-parties中未设置的项沿用默认值
+     */
+    @Data
+    public static class Capture {
+        /**
+         * 每个报文字段最多保存的字符数
+         */
+        private int maxChars = 16384;
+        /**
+         * 截断方式：HEAD只保留开头，HEAD_TAIL保留开头和结尾
+         */
+        private CapturePolicy.TruncateMode truncateMode = CapturePolicy.TruncateMode.HEAD;
+        /**
+         * 成功调用保存报文的比例
+         */
+        private double successSampleRate = 1.0;
+        /**
+         * 失败调用保存报文的比例
+         */
+        private double errorSampleRate = 1.0;
+        /**
+         * 接口路径前缀 -> 规则，按最长前缀匹配
+         */
+        private Map<String, CaptureRule> paths = new HashMap<>();
+        /**
+         * 第三方名称 -> 规则
+         */
+        private Map<String, CaptureRule> thirdParties = new HashMap<>();
+    }
+
+    /**
+     * 单个接口前缀或第三方的采集规则，未设置的项沿用默认值
+     */
+    @Data
+    public static class CaptureRule {
+        private Integer maxChars;
+        private CapturePolicy.TruncateMode truncateMode;
+        private Double successSampleRate;
+        private Double errorSampleRate;
+    }
+
+    /**
+     * 日志大字段压缩配置，作用于接口日志和第三方调用日志的参数、报文和异常栈字段
+     */
+    @Data
+    public static class LogCompression {
+        /**
+         * 是否压缩新写入的日志，关闭后仍能读取已压缩的数据
+         */
+        private boolean enabled = true;
+        /**
+         * 达到该字符数才压缩
+         */
+        private int thresholdChars = 1024;
+        /**
+         * 是否在后台压缩已有的日志
+         */
+        private boolean migrationEnabled = true;
+        /**
+         * 每轮迁移每张表处理的行数
+         */
+        private int migrationBatchSize = 200;
+        /**
+         * 迁移间隔（毫秒）
+         */
+        private long migrationIntervalMs = 10000;
+    }
+
+    /**
+     * 日志保留清理配置，作用于接口日志、定时任务日志和第三方调用日志
+     * 保留天数优先取appDays，其次tableDays，最后defaultDays；天数小于等于0表示不清理
+     */
+    @Data
+    public static class Retention {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+        /**
+         * 默认保留天数
+         */
+        private int defaultDays = 7;
+        /**
+         * 表名 -> 保留天数
+         */
+        private Map<String, Integer> tableDays = new HashMap<>();
+        /**
+         * 应用名（spring.application.name） -> 保留天数，对该应用在各表中的日志生效
+         */
+        private Map<String, Integer> appDays = new HashMap<>();
+        /**
+         * 每批删除的最大行数，控制单条DELETE的锁范围和事务日志大小
+         */
+        private int batchSize = 500;
+        /**
+         * 两批之间的暂停时间（毫秒）
+         */
+        private long pauseMs = 100;
+        /**
+         * 单次运行的最长时间（毫秒），超出后记住位置，下次从这里继续
+         */
+        private long maxRunMs = 120000;
+        /**
+         * 运行间隔（毫秒）
+         */
+        private long runIntervalMs = 600000;
+    }
 }
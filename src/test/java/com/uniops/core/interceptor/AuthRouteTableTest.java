@@ -0,0 +1,42 @@
+package com.uniops.core.interceptor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthRouteTableTest {
+
+    private final AuthRouteTable table = new AuthRouteTable();
+
+    @Test
+    void publicPrefixesAfterServletPath() {
+        String servletPath = "/uni-ops";
+        for (String path : new String[]{"/auth/login", "/api-docs", "/webjars/x.png", "/swagger-ui",
+                "/system/register", "/index.html"}) {
+            assertTrue(table.isPublic(servletPath + path, servletPath.length()), path);
+        }
+        assertFalse(table.isPublic(servletPath + "/uniops/users", servletPath.length()));
+        assertFalse(table.isPublic(servletPath + "/statistics/today", servletPath.length()));
+        // 前缀只在servlet路径之后匹配
+        assertFalse(table.isPublic("/auth/uniops/users", "/auth".length()));
+    }
+
+    @Test
+    void staticMarkersAnywhereInPath() {
+        // 和原来的contains判断一致：.html/.htm/.css/.js出现在任意位置都放行
+        assertTrue(table.isPublic("/uniops/page.html", 0));
+        assertTrue(table.isPublic("/uniops/page.htm", 0));
+        assertTrue(table.isPublic("/static/app.css", 0));
+        assertTrue(table.isPublic("/static/app.js", 0));
+        assertTrue(table.isPublic("/static/app.json", 0));
+        assertTrue(table.isPublic("/uniops/a.jsp/data", 0));
+        assertFalse(table.isPublic("/uniops/jsdata", 0));
+    }
+
+    @Test
+    void staticMarkersIgnoredBeforeOffset() {
+        assertTrue(table.isPublic("/app.js/uniops/x.css", 0));
+        assertFalse(table.isPublic("/app.js/uniops/data", "/app.js".length()));
+    }
+}
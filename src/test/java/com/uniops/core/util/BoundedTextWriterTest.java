@@ -0,0 +1,71 @@
+package com.uniops.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedTextWriterTest {
+
+    @Test
+    void headModeKeepsTextAtExactLimit() throws IOException {
+        BoundedTextWriter writer = new BoundedTextWriter(5, false);
+        writer.write("abcde");
+
+        assertFalse(writer.isLimitReached());
+        assertEquals("abcde", writer.toString());
+    }
+
+    @Test
+    void headModeStopsOneCharPastLimit() throws IOException {
+        BoundedTextWriter writer = new BoundedTextWriter(5, false);
+        writer.write("abc");
+
+        assertThrows(BoundedTextWriter.LimitReachedException.class, () -> writer.write("def"));
+        assertTrue(writer.isLimitReached());
+        assertEquals("abcde...[已截断]", writer.toString());
+        // 写满后再写入继续中止
+        assertThrows(BoundedTextWriter.LimitReachedException.class, () -> writer.write("g"));
+    }
+
+    @Test
+    void headTailModeKeepsTextAtExactLimit() throws IOException {
+        BoundedTextWriter writer = new BoundedTextWriter(6, true);
+        writer.write("abc");
+        writer.write("def");
+
+        assertEquals("abcdef", writer.toString());
+    }
+
+    @Test
+    void headTailModeKeepsHeadAndTail() throws IOException {
+        BoundedTextWriter writer = new BoundedTextWriter(6, true);
+        writer.write("abcdefg");
+
+        assertEquals("abc...[已截断，共7字符]...efg", writer.toString());
+    }
+
+    @Test
+    void headTailModeWrapsRingBuffer() throws IOException {
+        BoundedTextWriter writer = new BoundedTextWriter(7, true);
+        // 开头4个字符，末尾3个字符的环形数组被多次覆盖
+        for (char c = 'a'; c <= 'z'; c++) {
+            writer.write(c);
+        }
+
+        assertEquals("abcd...[已截断，共26字符]...xyz", writer.toString());
+    }
+
+    @Test
+    void headTailModeSkipsPartOfLongWrite() throws IOException {
+        BoundedTextWriter writer = new BoundedTextWriter(4, true);
+        writer.write("ab");
+        writer.write("0123456789");
+
+        assertEquals("ab...[已截断，共12字符]...89", writer.toString());
+    }
+}
@@ -0,0 +1,77 @@
+package com.uniops.core.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CapturePolicyTest {
+
+    private CapturePolicy capturePolicy;
+
+    @BeforeEach
+    void setUp() {
+        capturePolicy = new CapturePolicy();
+        ReflectionTestUtils.setField(capturePolicy, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void serializeHeadStopsAtLimit() {
+        CapturePolicy.Rule rule = rule(10, CapturePolicy.TruncateMode.HEAD);
+
+        assertEquals("[\"abcdef\"]", capturePolicy.serialize(List.of("abcdef"), rule, "fallback"));
+        assertEquals("[\"abcdefgh...[已截断]", capturePolicy.serialize(List.of("abcdefghij"), rule, "fallback"));
+    }
+
+    @Test
+    void serializeHeadTailKeepsBothEnds() {
+        CapturePolicy.Rule rule = rule(10, CapturePolicy.TruncateMode.HEAD_TAIL);
+
+        assertEquals("[\"abcdef\"]", capturePolicy.serialize(List.of("abcdef"), rule, "fallback"));
+        assertEquals("[\"abc...[已截断，共14字符]...hij\"]",
+                capturePolicy.serialize(List.of("abcdefghij"), rule, "fallback"));
+    }
+
+    @Test
+    void truncateAtExactLimitKeepsText() {
+        String text = "0123456789";
+
+        assertSame(text, capturePolicy.truncate(text, rule(10, CapturePolicy.TruncateMode.HEAD)));
+        assertSame(text, capturePolicy.truncate(text, rule(10, CapturePolicy.TruncateMode.HEAD_TAIL)));
+    }
+
+    @Test
+    void truncateOnePastLimit() {
+        String text = "0123456789A";
+
+        assertEquals("0123456789...[已截断，共11字符]",
+                capturePolicy.truncate(text, rule(10, CapturePolicy.TruncateMode.HEAD)));
+        assertEquals("01234...[已截断，共11字符]...6789A",
+                capturePolicy.truncate(text, rule(10, CapturePolicy.TruncateMode.HEAD_TAIL)));
+    }
+
+    @Test
+    void samplingFollowsRates() {
+        CapturePolicy.Sampling all = capturePolicy.sample(new CapturePolicy.Rule(10, CapturePolicy.TruncateMode.HEAD, 1, 1));
+        assertTrue(all.sampled(true));
+        assertTrue(all.sampled(false));
+
+        CapturePolicy.Sampling errorsOnly = capturePolicy.sample(new CapturePolicy.Rule(10, CapturePolicy.TruncateMode.HEAD, 0, 1));
+        assertFalse(errorsOnly.sampled(true));
+        assertTrue(errorsOnly.sampled(false));
+        assertFalse(errorsOnly.none());
+
+        assertTrue(capturePolicy.sample(new CapturePolicy.Rule(10, CapturePolicy.TruncateMode.HEAD, 0, 0)).none());
+    }
+
+    private static CapturePolicy.Rule rule(int maxChars, CapturePolicy.TruncateMode mode) {
+        return new CapturePolicy.Rule(maxChars, mode, 1, 1);
+    }
+}
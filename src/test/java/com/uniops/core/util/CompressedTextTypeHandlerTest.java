@@ -0,0 +1,79 @@
+package com.uniops.core.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedTextTypeHandlerTest {
+
+    @BeforeEach
+    void setUp() {
+        CompressedTextTypeHandler.configure(true, 64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        CompressedTextTypeHandler.configure(true, 1024);
+    }
+
+    @Test
+    void roundTrip() {
+        String text = "{\"traceId\":\"abc\",\"message\":\"中文内容\"}".repeat(20);
+        String compressed = CompressedTextTypeHandler.compress(text);
+
+        assertTrue(CompressedTextTypeHandler.isCompressed(compressed));
+        assertTrue(compressed.length() < text.length());
+        assertEquals(text, CompressedTextTypeHandler.decompress(compressed));
+    }
+
+    @Test
+    void belowThresholdIsStoredAsIs() {
+        String text = "x".repeat(63);
+
+        assertSame(text, CompressedTextTypeHandler.compress(text));
+        assertSame(text, CompressedTextTypeHandler.decompress(text));
+        assertNull(CompressedTextTypeHandler.compress(null));
+        assertNull(CompressedTextTypeHandler.decompress(null));
+    }
+
+    @Test
+    void disabledIsStoredAsIs() {
+        CompressedTextTypeHandler.configure(false, 64);
+        String text = "y".repeat(500);
+
+        assertSame(text, CompressedTextTypeHandler.compress(text));
+    }
+
+    @Test
+    void incompressibleTextIsStoredAsIs() {
+        // 随机性强的短文本压缩后加上Base64和前缀反而更长
+        String text = "Qz7#kP2@vL9!mX4$wR8%tY1^bN6&cJ3*hF5(gD0)sA-eU+iO=pK[lZ]".repeat(2).substring(0, 70);
+
+        assertFalse(CompressedTextTypeHandler.isCompressed(CompressedTextTypeHandler.compress(text)));
+    }
+
+    @Test
+    void alreadyCompressedIsNotCompressedTwice() {
+        String compressed = CompressedTextTypeHandler.compress("z".repeat(500));
+
+        assertSame(compressed, CompressedTextTypeHandler.compress(compressed));
+    }
+
+    @Test
+    void corruptInputIsReturnedAsIs() {
+        String invalidBase64 = CompressedTextTypeHandler.MARKER + "not base64!";
+        String invalidDeflate = CompressedTextTypeHandler.MARKER + "////////";
+        String compressed = CompressedTextTypeHandler.compress("abc".repeat(300));
+        String truncated = compressed.substring(0, CompressedTextTypeHandler.MARKER.length() + 8);
+
+        assertEquals(invalidBase64, CompressedTextTypeHandler.decompress(invalidBase64));
+        assertEquals(invalidDeflate, CompressedTextTypeHandler.decompress(invalidDeflate));
+        assertEquals(truncated, CompressedTextTypeHandler.decompress(truncated));
+    }
+}
@@ -0,0 +1,53 @@
+package com.uniops.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class LatencyHistogramTest {
+
+    @Test
+    void snapshotEncodeDecodeRoundTrip() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = {0, 1, 2, 127, 128, 129, 1000, 16_383, 16_384, 250_000, LatencyHistogram.MAX_VALUE};
+        for (long value : values) {
+            histogram.record(value);
+        }
+        // 大计数需要多字节变长整数
+        for (int i = 0; i < 300; i++) {
+            histogram.record(42);
+        }
+        LatencyHistogram.Snapshot snapshot = LatencyHistogram.Snapshot.of(histogram.snapshot(), histogram.getMax());
+
+        LatencyHistogram.Snapshot decoded = LatencyHistogram.Snapshot.decode(snapshot.encode(), snapshot.max());
+
+        assertArrayEquals(snapshot.indexes(), decoded.indexes());
+        assertArrayEquals(snapshot.counts(), decoded.counts());
+        assertEquals(snapshot.max(), decoded.max());
+        assertEquals(values.length + 300, decoded.totalCount());
+    }
+
+    @Test
+    void decodedSnapshotRestoresBuckets() {
+        long[] buckets = new long[LatencyHistogram.BUCKET_COUNT];
+        buckets[0] = 3;
+        buckets[LatencyHistogram.indexOf(500)] = 1L << 40;
+        buckets[LatencyHistogram.BUCKET_COUNT - 1] = 7;
+
+        long[] restored = new long[LatencyHistogram.BUCKET_COUNT];
+        LatencyHistogram.Snapshot.decode(LatencyHistogram.Snapshot.of(buckets, 900).encode(), 900).addTo(restored);
+
+        assertArrayEquals(buckets, restored);
+    }
+
+    @Test
+    void emptySnapshotRoundTrip() {
+        LatencyHistogram.Snapshot empty = LatencyHistogram.Snapshot.of(new long[LatencyHistogram.BUCKET_COUNT], 0);
+
+        assertEquals(0, LatencyHistogram.Snapshot.decode(empty.encode(), 0).totalCount());
+        assertSame(LatencyHistogram.Snapshot.EMPTY, LatencyHistogram.Snapshot.decode(null, 0));
+        assertSame(LatencyHistogram.Snapshot.EMPTY, LatencyHistogram.Snapshot.decode("", 0));
+    }
+}
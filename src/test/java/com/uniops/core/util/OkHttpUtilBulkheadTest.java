@@ -0,0 +1,121 @@
+package com.uniops.core.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.uniops.core.cache.CircuitBreakerManager;
+import com.uniops.core.service.ThirdPartyHttpLogService;
+import com.uniops.core.vo.CircuitBreakerStatsVO;
+import com.uniops.starter.autoconfigure.UniOpsProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OkHttpUtilBulkheadTest {
+
+    private static final int SLOW_CALLS = 10;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final CountDownLatch releaseSlow = new CountDownLatch(1);
+    private final AtomicInteger slowInFlight = new AtomicInteger();
+    private final AtomicInteger slowMaxInFlight = new AtomicInteger();
+    private OkHttpUtil okHttpUtil;
+    private CircuitBreakerManager circuitBreakerManager;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/slow", exchange -> {
+            slowMaxInFlight.accumulateAndGet(slowInFlight.incrementAndGet(), Math::max);
+            try {
+                releaseSlow.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            slowInFlight.decrementAndGet();
+            respond(exchange);
+        });
+        server.createContext("/fast", OkHttpUtilBulkheadTest::respond);
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        UniOpsProperties properties = new UniOpsProperties();
+        // 两个第三方在同一个主机上，调度器每个主机只有4个名额
+        properties.getHttpClient().setMaxRequestsPerHost(4);
+        properties.getCircuitBreaker().getMaxConcurrentCallsPerParty().put("slow", 1);
+        properties.getCircuitBreaker().setSlowCallThresholdMs(60000);
+
+        circuitBreakerManager = new CircuitBreakerManager();
+        ReflectionTestUtils.setField(circuitBreakerManager, "uniOpsProperties", properties);
+        okHttpUtil = new OkHttpUtil();
+        okHttpUtil.uniOpsProperties = properties;
+        okHttpUtil.circuitBreakerManager = circuitBreakerManager;
+        ReflectionTestUtils.setField(okHttpUtil, "thirdPartyHttpLogService", Mockito.mock(ThirdPartyHttpLogService.class));
+        okHttpUtil.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseSlow.countDown();
+        okHttpUtil.destroy();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void saturatedPartyDoesNotDelayOtherParty() throws Exception {
+        List<CompletableFuture<HttpResponseResult>> slowCalls = new ArrayList<>();
+        for (int i = 0; i < SLOW_CALLS; i++) {
+            slowCalls.add(okHttpUtil.postAsync("slow", baseUrl + "/slow", null, "{}"));
+        }
+
+        // 排队的调用不占用调度器名额，另一个第三方的调用不受影响
+        HttpResponseResult fast = okHttpUtil.postAsync("fast", baseUrl + "/fast", null, "{}").get(5, TimeUnit.SECONDS);
+        assertTrue(fast.isSuccess());
+        assertEquals(200, fast.getStatusCode());
+
+        CircuitBreakerStatsVO slowStats = statsOf("slow");
+        assertEquals(1, slowStats.getActiveCalls());
+        assertEquals(SLOW_CALLS - 1, slowStats.getQueuedCalls());
+
+        releaseSlow.countDown();
+        for (CompletableFuture<HttpResponseResult> call : slowCalls) {
+            assertTrue(call.get(10, TimeUnit.SECONDS).isSuccess());
+        }
+        assertEquals(1, slowMaxInFlight.get());
+        assertEquals(0, statsOf("slow").getQueuedCalls());
+    }
+
+    private CircuitBreakerStatsVO statsOf(String thirdPartyName) {
+        return circuitBreakerManager.stats().stream()
+                .filter(vo -> vo.getThirdPartyName().equals(thirdPartyName))
+                .findFirst().orElseThrow();
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+}
@@ -0,0 +1,69 @@
+package com.uniops.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathPrefixTrieTest {
+
+    @Test
+    void matchesFromOffset() {
+        PathPrefixTrie trie = PathPrefixTrie.of(List.of("/auth", "/uniops"));
+        String uri = "/ctx/auth/login";
+
+        assertTrue(trie.matches(uri, "/ctx".length()));
+        assertFalse(trie.matches(uri, 0));
+        // 偏移之前的内容不参与匹配
+        assertFalse(trie.matches("/auth/ctx", "/auth".length()));
+        assertTrue(trie.matches("/ctx/uniops", 4));
+    }
+
+    @Test
+    void pathShorterThanPrefixDoesNotMatch() {
+        PathPrefixTrie trie = PathPrefixTrie.of(List.of("/swagger"));
+
+        assertFalse(trie.matches("/swag", 0));
+        assertFalse(trie.matches("/ctx", 4));
+        assertTrue(trie.matches("/swagger", 0));
+        assertTrue(trie.matches("/swagger-ui/index", 0));
+    }
+
+    @Test
+    void emptyPrefixMatchesEverything() {
+        PathPrefixTrie trie = PathPrefixTrie.of(List.of("", "/auth"));
+
+        assertTrue(trie.matches("/anything", 0));
+        assertTrue(trie.matches("", 0));
+        assertTrue(trie.matches("/ctx", 4));
+    }
+
+    @Test
+    void emptyOrNullPrefixesMatchNothing() {
+        assertFalse(PathPrefixTrie.of(List.of()).matches("/auth", 0));
+        assertFalse(PathPrefixTrie.of(null).matches("/auth", 0));
+        assertFalse(PathPrefixTrie.of(Arrays.asList((String) null)).matches("/auth", 0));
+        assertFalse(PathPrefixTrie.of(List.of("/auth")).matches("", 0));
+    }
+
+    @Test
+    void overlappingPrefixes() {
+        PathPrefixTrie trie = PathPrefixTrie.of(List.of("/sys", "/system/admin", "/a", "/abc"));
+
+        // 较短的前缀先命中
+        assertTrue(trie.matches("/system/admin/x", 0));
+        assertTrue(trie.matches("/sysfoo", 0));
+        assertTrue(trie.matches("/ab", 0));
+        assertTrue(trie.matches("/abc", 0));
+        assertFalse(trie.matches("/sy", 0));
+        assertFalse(trie.matches("/b", 0));
+
+        PathPrefixTrie longOnly = PathPrefixTrie.of(List.of("/system/admin", "/system/audit"));
+        assertTrue(longOnly.matches("/system/audit/1", 0));
+        assertFalse(longOnly.matches("/system/a", 0));
+        assertFalse(longOnly.matches("/system", 0));
+    }
+}